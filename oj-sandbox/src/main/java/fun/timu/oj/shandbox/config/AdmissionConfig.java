@@ -0,0 +1,58 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.task.AdmissionController;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 同步执行准入控制配置
+ * 绑定配置文件中以"sandbox.admission"开头的属性，并在启动时应用到准入控制器
+ */
+@ConfigurationProperties(prefix = "sandbox.admission")
+@Configuration
+@Data
+public class AdmissionConfig {
+    private static final Logger logger = Logger.getLogger(AdmissionConfig.class.getName());
+
+    // 是否启用准入控制
+    private boolean enabled = true;
+    // 每种语言等待执行许可的最大请求数，超出后立即返回 429
+    private int maxQueue = 20;
+    // 等待执行许可的最长时间（毫秒），超时后返回 429
+    private long maxWaitMillis = 10_000;
+    // 按语言覆盖的配置，key 为语言标识（java/python/javascript）
+    private Map<String, LanguageAdmission> languages = new HashMap<>();
+
+    @Data
+    public static class LanguageAdmission {
+        // 同时执行的请求数，未设置时与该语言容器池的最大容器数一致
+        private Integer permits;
+        private Integer maxQueue;
+    }
+
+    @PostConstruct
+    public void applyToAdmissionController() {
+        AdmissionController controller = AdmissionController.getInstance();
+        controller.configure(enabled, maxQueue, maxWaitMillis);
+
+        languages.forEach((language, admission) -> {
+            ProgrammingLanguage programmingLanguage;
+            try {
+                programmingLanguage = ProgrammingLanguage.valueOf(language.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warning("忽略未知语言的准入控制配置: " + language);
+                return;
+            }
+            controller.configureLanguage(programmingLanguage,
+                    admission.getPermits() != null ? admission.getPermits() : 0,
+                    admission.getMaxQueue() != null ? admission.getMaxQueue() : maxQueue);
+        });
+    }
+}
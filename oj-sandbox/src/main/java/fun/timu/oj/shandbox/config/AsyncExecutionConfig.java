@@ -0,0 +1,67 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.task.ExecutionTaskManager;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 异步执行队列配置
+ * 绑定配置文件中以"sandbox.async"开头的属性，并在启动时应用到异步任务管理器
+ */
+@ConfigurationProperties(prefix = "sandbox.async")
+@Configuration
+@Data
+public class AsyncExecutionConfig {
+    private static final Logger logger = Logger.getLogger(AsyncExecutionConfig.class.getName());
+
+    // 每种语言同时执行的任务数（执行槽位）
+    private int workers = 2;
+    // 每种语言排队等待的最大任务数
+    private int queueCapacity = 50;
+    // 已结束任务结果的保留时间（秒）
+    private long resultRetentionSeconds = 600;
+    // SSE 连接的最长保持时间（秒）
+    private long sseTimeoutSeconds = 120;
+    // 按语言覆盖的队列配置，key 为语言标识（java/python/javascript）
+    private Map<String, LanguageQueue> languages = new HashMap<>();
+
+    @Data
+    public static class LanguageQueue {
+        private Integer workers;
+        private Integer queueCapacity;
+    }
+
+    @PostConstruct
+    public void applyToTaskManager() {
+        ExecutionTaskManager manager = ExecutionTaskManager.getInstance();
+        manager.configure(workers, queueCapacity, resultRetentionSeconds);
+
+        languages.forEach((language, queue) -> {
+            ProgrammingLanguage programmingLanguage;
+            try {
+                programmingLanguage = ProgrammingLanguage.valueOf(language.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warning("忽略未知语言的异步队列配置: " + language);
+                return;
+            }
+            manager.configureLanguage(programmingLanguage,
+                    queue.getWorkers() != null ? queue.getWorkers() : workers,
+                    queue.getQueueCapacity() != null ? queue.getQueueCapacity() : queueCapacity);
+        });
+
+        logger.info("异步执行队列配置已应用");
+    }
+
+    @PreDestroy
+    public void shutdownTaskManager() {
+        ExecutionTaskManager.getInstance().shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.task.BatchExecutionManager;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 批量执行配置
+ * 绑定配置文件中以"sandbox.batch"开头的属性，并在启动时应用到批量执行管理器
+ */
+@ConfigurationProperties(prefix = "sandbox.batch")
+@Configuration
+@Data
+public class BatchExecutionConfig {
+    private static final Logger logger = Logger.getLogger(BatchExecutionConfig.class.getName());
+
+    // 每种语言同时执行的批量请求数
+    private int concurrency = 4;
+    // 单个请求从开始执行起的超时时间（秒）
+    private long itemTimeoutSeconds = 60;
+    // 每种语言排队等待的最大请求数，超出后整批拒绝
+    private int queueCapacity = 100;
+    // 按语言覆盖的并发上限，key 为语言标识（java/python/javascript）
+    private Map<String, Integer> languages = new HashMap<>();
+
+    @PostConstruct
+    public void applyToBatchManager() {
+        BatchExecutionManager manager = BatchExecutionManager.getInstance();
+        manager.configure(concurrency, itemTimeoutSeconds, queueCapacity);
+
+        languages.forEach((language, languageConcurrency) -> {
+            try {
+                manager.configureLanguage(ProgrammingLanguage.valueOf(language.toUpperCase()), languageConcurrency);
+            } catch (IllegalArgumentException e) {
+                logger.warning("忽略未知语言的批量执行配置: " + language);
+            }
+        });
+
+        logger.info("批量执行配置已应用");
+    }
+
+    @PreDestroy
+    public void shutdownBatchManager() {
+        BatchExecutionManager.getInstance().shutdown();
+    }
+}
@@ -0,0 +1,31 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.cleanup.CleanupQueue;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 执行后清理队列配置
+ * 绑定配置文件中以"sandbox.cleanup"开头的属性，并在启动时应用到清理队列
+ */
+@ConfigurationProperties(prefix = "sandbox.cleanup")
+@Configuration
+@Data
+public class CleanupQueueConfig {
+    // 后台清理线程数
+    private int workers = 4;
+    // 队列容量
+    private int capacity = 1000;
+    // 每批最多处理的任务数
+    private int batchSize = 32;
+    // 队列已满时提交方的最长等待时间（毫秒），超时后在提交线程中直接清理
+    private long offerTimeoutMillis = 2000;
+
+    @PostConstruct
+    public void applyToCleanupQueue() {
+        CleanupQueue.getInstance().configure(workers, capacity, batchSize, offerTimeoutMillis);
+    }
+}
@@ -0,0 +1,29 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.cache.CompileCache;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 编译产物缓存配置
+ * 绑定配置文件中以"sandbox.compile-cache"开头的属性，并在启动时应用到编译缓存
+ */
+@ConfigurationProperties(prefix = "sandbox.compile-cache")
+@Configuration
+@Data
+public class CompileCacheConfig {
+    // 是否启用编译缓存
+    private boolean enabled = true;
+    // 最多缓存的编译结果数
+    private int maxEntries = 256;
+    // 缓存占用的最大内存（MB）
+    private long maxSizeMb = 64;
+
+    @PostConstruct
+    public void applyToCompileCache() {
+        CompileCache.getInstance().configure(enabled, maxEntries, maxSizeMb * 1024 * 1024);
+    }
+}
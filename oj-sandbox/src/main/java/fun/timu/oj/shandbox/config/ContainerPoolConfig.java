@@ -0,0 +1,78 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 长期运行容器池配置
+ * 绑定配置文件中以"sandbox.pool"开头的属性，并在启动时应用到容器管理器
+ */
+@ConfigurationProperties(prefix = "sandbox.pool")
+@Configuration
+@Data
+public class ContainerPoolConfig {
+    private static final Logger logger = Logger.getLogger(ContainerPoolConfig.class.getName());
+
+    // 每种语言最少保持的容器数（启动时预热）
+    private int minSize = 1;
+    // 每种语言最多创建的容器数
+    private int maxSize = 4;
+    // 空闲容器回收时间（秒）
+    private long idleTimeoutSeconds = 300;
+    // 借出容器的最长等待时间（秒）
+    private long borrowTimeoutSeconds = 30;
+    // 是否在启动时预热容器
+    private boolean prewarm = true;
+    // 池容器是否运行常驻执行代理（通过挂载目录派发任务，不再为每次运行创建 docker exec）
+    private boolean runnerAgent = false;
+    // 容器挂载目录所在的宿主机目录，为空时优先使用 tmpfs（/dev/shm）
+    private String hostWorkRoot = "";
+    // 按语言覆盖的容器池大小，key 为语言标识（java/python/javascript）
+    private Map<String, LanguagePool> languages = new HashMap<>();
+    // 容器回收策略
+    private Recycle recycle = new Recycle();
+
+    @Data
+    public static class LanguagePool {
+        private Integer minSize;
+        private Integer maxSize;
+    }
+
+    /**
+     * 容器回收策略，满足任一条件时提前创建替换容器，0 表示不按该条件回收
+     */
+    @Data
+    public static class Recycle {
+        // 执行次数上限
+        private int maxExecutions = 500;
+        // 容器运行时间上限（秒）
+        private long maxAgeSeconds = 3600;
+        // 空闲容器内存占用上限（MB）
+        private long maxMemoryMb = 400;
+        // 空闲容器 /tmp 占用上限（MB）
+        private long maxTmpMb = 50;
+    }
+
+    @PostConstruct
+    public void applyToContainerManager() {
+        LongRunningContainerManager manager = LongRunningContainerManager.getInstance();
+        manager.configurePool(minSize, maxSize, idleTimeoutSeconds, borrowTimeoutSeconds, prewarm);
+        manager.configureRunnerAgent(runnerAgent);
+        manager.configureHostWorkRoot(hostWorkRoot);
+        manager.configureRecycling(recycle.getMaxExecutions(), recycle.getMaxAgeSeconds(),
+                recycle.getMaxMemoryMb(), recycle.getMaxTmpMb());
+
+        languages.forEach((language, pool) -> manager.configureLanguagePool(language,
+                pool.getMinSize() != null ? pool.getMinSize() : minSize,
+                pool.getMaxSize() != null ? pool.getMaxSize() : maxSize));
+
+        logger.info("容器池配置已应用");
+    }
+}
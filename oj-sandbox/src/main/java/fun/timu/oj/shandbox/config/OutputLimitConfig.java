@@ -0,0 +1,29 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.executor.AbstractDockerExecutor;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.logging.Logger;
+
+/**
+ * 程序输出上限配置
+ * 绑定配置文件中以"sandbox.output"开头的属性，并在启动时应用到所有执行器
+ */
+@ConfigurationProperties(prefix = "sandbox.output")
+@Configuration
+@Data
+public class OutputLimitConfig {
+    private static final Logger logger = Logger.getLogger(OutputLimitConfig.class.getName());
+
+    // 单次运行最多接收的输出（KB），超过后终止程序并返回 OUTPUT_LIMIT_EXCEEDED，小于等于0表示不限制
+    private long maxSizeKb = AbstractDockerExecutor.DEFAULT_OUTPUT_LIMIT_BYTES / 1024;
+
+    @PostConstruct
+    public void applyToExecutors() {
+        AbstractDockerExecutor.configureOutputLimit(maxSizeKb * 1024);
+        logger.info("输出上限配置已应用: " + maxSizeKb + "KB");
+    }
+}
@@ -0,0 +1,65 @@
+package fun.timu.oj.shandbox.config;
+
+import fun.timu.oj.shandbox.docker.executor.DockerCodeExecutor;
+import fun.timu.oj.shandbox.docker.executor.JavaScriptDockerExecutor;
+import fun.timu.oj.shandbox.docker.executor.PythonDockerExecutor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import java.util.logging.Logger;
+
+/**
+ * 池容器内常驻语言运行时配置
+ * 绑定配置文件中以"sandbox.warm-runtime"开头的属性，并在启动时应用到各语言的执行器
+ */
+@ConfigurationProperties(prefix = "sandbox.warm-runtime")
+@Configuration
+@Data
+public class WarmRuntimeConfig {
+    private static final Logger logger = Logger.getLogger(WarmRuntimeConfig.class.getName());
+
+    // Java：池容器内常驻的 JVM
+    private Runtime java = new Runtime();
+    // Python：池容器内常驻的 fork 服务器
+    private Runtime python = new Runtime(1000);
+    // JavaScript：池容器内预先启动的 node 进程池
+    private NodeRuntime javascript = new NodeRuntime();
+
+    @Data
+    public static class Runtime {
+        // 是否启用
+        private boolean enabled = false;
+        // 每个常驻进程最多运行的次数，达到后退出并重新启动
+        private int maxRuns = 200;
+
+        public Runtime() {
+        }
+
+        public Runtime(int maxRuns) {
+            this.maxRuns = maxRuns;
+        }
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class NodeRuntime extends Runtime {
+        // 保持的空闲 node 进程数
+        private int poolSize = 2;
+
+        public NodeRuntime() {
+            super(1000);
+        }
+    }
+
+    @PostConstruct
+    public void applyToExecutors() {
+        DockerCodeExecutor.configureWarmJvm(java.isEnabled(), java.getMaxRuns());
+        PythonDockerExecutor.configureForkServer(python.isEnabled(), python.getMaxRuns());
+        JavaScriptDockerExecutor.configureProcessPool(javascript.isEnabled(), javascript.getMaxRuns(), javascript.getPoolSize());
+        logger.info("常驻运行时配置已应用: java=" + java.isEnabled() + ", python=" + python.isEnabled()
+                + ", javascript=" + javascript.isEnabled());
+    }
+}
@@ -1,23 +1,42 @@
 package fun.timu.oj.shandbox.controller;
 
+import fun.timu.oj.shandbox.config.AsyncExecutionConfig;
+import fun.timu.oj.shandbox.docker.compare.CompareMode;
+import fun.timu.oj.shandbox.docker.compare.OutputComparator;
+import fun.timu.oj.shandbox.docker.executor.AbstractDockerExecutor;
 import fun.timu.oj.shandbox.docker.executor.DockerCodeExecutor;
 import fun.timu.oj.shandbox.docker.executor.JavaScriptDockerExecutor;
 import fun.timu.oj.shandbox.docker.executor.PythonDockerExecutor;
 import fun.timu.oj.shandbox.docker.entity.ExecutionResult;
 import fun.timu.oj.shandbox.docker.entity.ExecutionMetrics;
+import fun.timu.oj.shandbox.docker.entity.InputType;
+import fun.timu.oj.shandbox.docker.task.AdmissionController;
+import fun.timu.oj.shandbox.docker.task.BatchExecutionManager;
+import fun.timu.oj.shandbox.docker.task.ExecutionTask;
+import fun.timu.oj.shandbox.docker.task.ExecutionTaskManager;
 import fun.timu.oj.shandbox.interfaces.ExecuteCodeRequest;
 import fun.timu.oj.shandbox.interfaces.ExecuteCodeResponse;
+import fun.timu.oj.shandbox.interfaces.ExecuteTaskResponse;
 import fun.timu.oj.shandbox.interfaces.JudgeInfo;
 import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -37,6 +56,18 @@ public class MainController {
     private final PythonDockerExecutor pythonExecutor = new PythonDockerExecutor(false);
     private final JavaScriptDockerExecutor jsExecutor = new JavaScriptDockerExecutor(false);
 
+    // 异步执行任务管理器
+    private final ExecutionTaskManager taskManager = ExecutionTaskManager.getInstance();
+
+    // 批量执行管理器
+    private final BatchExecutionManager batchManager = BatchExecutionManager.getInstance();
+
+    // 同步执行准入控制
+    private final AdmissionController admissionController = AdmissionController.getInstance();
+
+    @Autowired
+    private AsyncExecutionConfig asyncExecutionConfig;
+
     /**
      * 构造函数，初始化执行器并启用容器复用
      */
@@ -48,6 +79,19 @@ public class MainController {
         logger.info("沙箱控制器初始化完成，已启用容器复用功能");
     }
 
+    /**
+     * 应用启动完成后在后台并行预热各语言的容器池
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmContainers() {
+        logger.info("开始预热容器池...");
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(javaExecutor::prewarmContainers),
+                CompletableFuture.runAsync(pythonExecutor::prewarmContainers),
+                CompletableFuture.runAsync(jsExecutor::prewarmContainers)
+        ).whenComplete((result, error) -> logger.info("容器池预热结束"));
+    }
+
     /**
      * 检查请求头中的鉴权信息
      */
@@ -84,7 +128,11 @@ public class MainController {
                     .body(buildErrorResponse("请求参数不完整：language和code为必填项"));
         }
 
-        try {
+        try (AdmissionController.Permit permit = admissionController.acquire(request.getLanguage())) {
+            if (!permit.isAdmitted()) {
+                return buildAdmissionRejectedResponse(request.getLanguage(), permit);
+            }
+
             logger.info("开始执行 " + request.getLanguage() + " 代码，输入参数数量: " +
                     (request.getInputs() != null ? request.getInputs().size() : 0));
 
@@ -119,6 +167,116 @@ public class MainController {
         }
     }
 
+    /**
+     * 异步代码执行接口 - 请求进入对应语言的有界队列，立即返回任务凭证
+     * 通过 GET /execute/async/{taskId} 轮询结果，或通过 GET /execute/async/{taskId}/events 订阅完成事件
+     */
+    @PostMapping("/execute/async")
+    public ResponseEntity<ExecuteTaskResponse> submitExecution(
+            @RequestHeader(name = AUTH_REQUEST_HEADER, required = false) String auth,
+            @RequestBody ExecuteCodeRequest request) {
+
+        if (!authenticateRequest(auth)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        if (request == null || request.getLanguage() == null || request.getCode() == null || request.getCode().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ExecutionTask task = taskManager.submit(request.getLanguage(), () -> executeWithAdmission(request));
+        if (task.getStatus() == ExecuteTaskResponse.TaskStatus.REJECTED) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(task.toResponse());
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(task.toResponse());
+    }
+
+    /**
+     * 查询异步执行任务状态
+     */
+    @GetMapping("/execute/async/{taskId}")
+    public ResponseEntity<ExecuteTaskResponse> getExecutionTask(
+            @RequestHeader(name = AUTH_REQUEST_HEADER, required = false) String auth,
+            @PathVariable String taskId) {
+
+        if (!authenticateRequest(auth)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ExecutionTask task = taskManager.getTask(taskId);
+        if (task == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(task.toResponse());
+    }
+
+    /**
+     * 订阅异步执行任务的完成事件（SSE）
+     * 连接建立后立即推送一次当前状态（status 事件），任务结束时推送最终结果（result 事件）并关闭连接
+     */
+    @GetMapping(value = "/execute/async/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeExecutionTask(
+            @RequestHeader(name = AUTH_REQUEST_HEADER, required = false) String auth,
+            @PathVariable String taskId) {
+
+        if (!authenticateRequest(auth)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ExecutionTask task = taskManager.getTask(taskId);
+        if (task == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(asyncExecutionConfig.getSseTimeoutSeconds() * 1000);
+        try {
+            emitter.send(SseEmitter.event().name("status").data(task.toResponse()));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return ResponseEntity.ok(emitter);
+        }
+
+        // 任务结束时推送结果，若已结束则立即推送
+        task.getCompletion().whenComplete((finished, error) -> {
+            try {
+                emitter.send(SseEmitter.event().name("result").data(finished.toResponse()));
+                emitter.complete();
+            } catch (Exception e) {
+                logger.warning("推送异步任务结果失败: " + taskId + ", 原因: " + e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 在后台工作线程（异步任务、批量请求）中执行代码
+     * 与同步接口共用同一语言的执行许可，同时占用容器的执行数不超过许可数
+     */
+    private ExecuteCodeResponse executeWithAdmission(ExecuteCodeRequest request) throws Exception {
+        try (AdmissionController.Permit permit = admissionController.acquireBlocking(request.getLanguage())) {
+            return executeByLanguage(request);
+        }
+    }
+
+    /**
+     * 根据语言选择执行器执行代码
+     */
+    private ExecuteCodeResponse executeByLanguage(ExecuteCodeRequest request) throws Exception {
+        switch (request.getLanguage()) {
+            case JAVA:
+                return executeJavaCodeInternal(request);
+            case JAVASCRIPT:
+                return executeJavaScriptCodeInternal(request);
+            case PYTHON:
+                return executePythonCodeInternal(request);
+            default:
+                throw new IllegalArgumentException("不支持的编程语言: " + request.getLanguage());
+        }
+    }
+
     /**
      * 执行Java代码 (独立接口)
      */
@@ -135,7 +293,11 @@ public class MainController {
         // 强制设置语言为Java
         request.setLanguage(ProgrammingLanguage.JAVA);
 
-        try {
+        try (AdmissionController.Permit permit = admissionController.acquire(ProgrammingLanguage.JAVA)) {
+            if (!permit.isAdmitted()) {
+                return buildAdmissionRejectedResponse(ProgrammingLanguage.JAVA, permit);
+            }
+
             logger.info("执行Java代码，代码长度: " +
                     (request.getCode() != null ? request.getCode().length() : 0) + " 字符");
 
@@ -167,7 +329,11 @@ public class MainController {
         // 强制设置语言为JavaScript
         request.setLanguage(ProgrammingLanguage.JAVASCRIPT);
 
-        try {
+        try (AdmissionController.Permit permit = admissionController.acquire(ProgrammingLanguage.JAVASCRIPT)) {
+            if (!permit.isAdmitted()) {
+                return buildAdmissionRejectedResponse(ProgrammingLanguage.JAVASCRIPT, permit);
+            }
+
             logger.info("执行JavaScript代码，代码长度: " +
                     (request.getCode() != null ? request.getCode().length() : 0) + " 字符");
 
@@ -199,7 +365,11 @@ public class MainController {
         // 强制设置语言为Python
         request.setLanguage(ProgrammingLanguage.PYTHON);
 
-        try {
+        try (AdmissionController.Permit permit = admissionController.acquire(ProgrammingLanguage.PYTHON)) {
+            if (!permit.isAdmitted()) {
+                return buildAdmissionRejectedResponse(ProgrammingLanguage.PYTHON, permit);
+            }
+
             logger.info("执行Python代码，代码长度: " +
                     (request.getCode() != null ? request.getCode().length() : 0) + " 字符");
 
@@ -215,6 +385,63 @@ public class MainController {
         }
     }
 
+    /**
+     * 执行许可已满时快速拒绝，返回 429 和建议的重试间隔
+     */
+    private ResponseEntity<ExecuteCodeResponse> buildAdmissionRejectedResponse(ProgrammingLanguage language,
+                                                                               AdmissionController.Permit permit) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(permit.getRetryAfterSeconds()))
+                .body(buildErrorResponse(language + " 执行繁忙，请 " + permit.getRetryAfterSeconds() + " 秒后重试"));
+    }
+
+    /**
+     * 计算本次请求的时间限制（毫秒）：测试用例覆盖值优先，其次为题目时间限制，都未设置时使用默认值
+     */
+    private long resolveTimeLimit(ExecuteCodeRequest request) {
+        Integer timeLimit = request.getTimeLimitOverride() != null ? request.getTimeLimitOverride() : request.getTimeLimit();
+        return timeLimit != null && timeLimit > 0 ? timeLimit : AbstractDockerExecutor.DEFAULT_TIME_LIMIT_MILLIS;
+    }
+
+    /**
+     * 根据请求中的比对模式创建输出比对器，未指定时使用精确比对
+     */
+    private OutputComparator resolveComparator(ExecuteCodeRequest request) {
+        if (request.getCompareMode() == null || request.getCompareMode().trim().isEmpty()) {
+            return OutputComparator.EXACT;
+        }
+        try {
+            CompareMode mode = CompareMode.valueOf(request.getCompareMode().trim().toUpperCase());
+            return OutputComparator.of(mode, request.getFloatEpsilon());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的输出比对模式: " + request.getCompareMode());
+        }
+    }
+
+    /**
+     * 解析请求中的输入类型，未指定时为命令行参数
+     */
+    private InputType resolveInputType(ExecuteCodeRequest request) {
+        if (request.getInputType() == null || request.getInputType().trim().isEmpty()) {
+            return InputType.PARAMS;
+        }
+        try {
+            return InputType.valueOf(request.getInputType().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的输入类型: " + request.getInputType());
+        }
+    }
+
+    /**
+     * 标准输入内容：每个输入占一行
+     */
+    private String buildStdinInput(List<String> inputs) {
+        if (inputs == null || inputs.isEmpty()) {
+            return "";
+        }
+        return String.join("\n", inputs) + "\n";
+    }
+
     /**
      * 内部方法：执行Java代码并返回接口定义的响应对象
      */
@@ -226,25 +453,32 @@ public class MainController {
 
         ExecutionResult result;
         int executionCount = Math.max(1, request.getExecutionCount() != null ? request.getExecutionCount() : 1);
+        long timeLimitMillis = resolveTimeLimit(request);
+        OutputComparator comparator = resolveComparator(request);
 
-        logger.info("开始执行Java代码，执行次数: " + executionCount);
+        logger.info("开始执行Java代码，执行次数: " + executionCount + "，时间限制: " + timeLimitMillis + "ms");
 
-        if (request.getInputs() != null && !request.getInputs().isEmpty()) {
+        if (resolveInputType(request) == InputType.STDIN) {
+            // 标准输入模式
+            String stdinInput = buildStdinInput(request.getInputs());
+            logger.info("使用标准输入模式，输入长度: " + stdinInput.length());
+            result = javaExecutor.executeCodeWithStdin(request.getCode(), stdinInput, request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
+        } else if (request.getInputs() != null && !request.getInputs().isEmpty()) {
             // 命令行参数模式
             String[] args = request.getInputs().toArray(new String[0]);
             logger.info("使用命令行参数模式，参数数量: " + args.length);
-            result = javaExecutor.executeJavaCodeWithArgs(request.getCode(), args, null, executionCount);
+            result = javaExecutor.executeCodeWithArgs(request.getCode(), args, request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
         } else {
             // 无输入的代码执行
             logger.info("使用无参数模式");
-            result = javaExecutor.executeJavaCode(request.getCode(), null, executionCount);
+            result = javaExecutor.executeCode(request.getCode(), request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
         }
 
         logger.info("Java代码执行完成，成功: " + result.isSuccess() +
                 ", 最大内存: " + result.getMaxMemoryUsed() + "B" +
                 ", 最大执行时间: " + result.getMaxExecutionTime() + "ms");
 
-        return convertToExecuteCodeResponse(result, "Java");
+        return convertToExecuteCodeResponse(result, "Java", request.getExpectedOutput() != null);
     }
 
     /**
@@ -258,25 +492,32 @@ public class MainController {
 
         ExecutionResult result;
         int executionCount = Math.max(1, request.getExecutionCount() != null ? request.getExecutionCount() : 1);
+        long timeLimitMillis = resolveTimeLimit(request);
+        OutputComparator comparator = resolveComparator(request);
 
-        logger.info("开始执行JavaScript代码，执行次数: " + executionCount);
+        logger.info("开始执行JavaScript代码，执行次数: " + executionCount + "，时间限制: " + timeLimitMillis + "ms");
 
-        if (request.getInputs() != null && !request.getInputs().isEmpty()) {
+        if (resolveInputType(request) == InputType.STDIN) {
+            // 标准输入模式
+            String stdinInput = buildStdinInput(request.getInputs());
+            logger.info("使用标准输入模式，输入长度: " + stdinInput.length());
+            result = jsExecutor.executeCodeWithStdin(request.getCode(), stdinInput, request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
+        } else if (request.getInputs() != null && !request.getInputs().isEmpty()) {
             // 命令行参数模式
             String[] args = request.getInputs().toArray(new String[0]);
             logger.info("使用命令行参数模式，参数数量: " + args.length);
-            result = jsExecutor.executeJavaScriptCodeWithArgs(request.getCode(), args, null, executionCount);
+            result = jsExecutor.executeCodeWithArgs(request.getCode(), args, request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
         } else {
             // 无输入的代码执行
             logger.info("使用无参数模式");
-            result = jsExecutor.executeJavaScriptCode(request.getCode(), null, executionCount);
+            result = jsExecutor.executeCode(request.getCode(), request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
         }
 
         logger.info("JavaScript代码执行完成，成功: " + result.isSuccess() +
                 ", 最大内存: " + result.getMaxMemoryUsed() + "B" +
                 ", 最大执行时间: " + result.getMaxExecutionTime() + "ms");
 
-        return convertToExecuteCodeResponse(result, "JavaScript");
+        return convertToExecuteCodeResponse(result, "JavaScript", request.getExpectedOutput() != null);
     }
 
     /**
@@ -290,35 +531,50 @@ public class MainController {
 
         ExecutionResult result;
         int executionCount = Math.max(1, request.getExecutionCount() != null ? request.getExecutionCount() : 1);
+        long timeLimitMillis = resolveTimeLimit(request);
+        OutputComparator comparator = resolveComparator(request);
 
-        logger.info("开始执行Python代码，执行次数: " + executionCount);
+        logger.info("开始执行Python代码，执行次数: " + executionCount + "，时间限制: " + timeLimitMillis + "ms");
 
-        if (request.getInputs() != null && !request.getInputs().isEmpty()) {
+        if (resolveInputType(request) == InputType.STDIN) {
+            // 标准输入模式
+            String stdinInput = buildStdinInput(request.getInputs());
+            logger.info("使用标准输入模式，输入长度: " + stdinInput.length());
+            result = pythonExecutor.executeCodeWithStdin(request.getCode(), stdinInput, request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
+        } else if (request.getInputs() != null && !request.getInputs().isEmpty()) {
             // 命令行参数模式
             String[] args = request.getInputs().toArray(new String[0]);
             logger.info("使用命令行参数模式，参数数量: " + args.length);
-            result = pythonExecutor.executePythonCodeWithArgs(request.getCode(), args, null, executionCount);
+            result = pythonExecutor.executeCodeWithArgs(request.getCode(), args, request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
         } else {
             // 无输入的代码执行
             logger.info("使用无参数模式");
-            result = pythonExecutor.executePythonCode(request.getCode(), null, executionCount);
+            result = pythonExecutor.executeCode(request.getCode(), request.getExpectedOutput(), executionCount, timeLimitMillis, comparator);
         }
 
         logger.info("Python代码执行完成，成功: " + result.isSuccess() +
                 ", 最大内存: " + result.getMaxMemoryUsed() + "B" +
                 ", 最大执行时间: " + result.getMaxExecutionTime() + "ms");
 
-        return convertToExecuteCodeResponse(result, "Python");
+        return convertToExecuteCodeResponse(result, "Python", request.getExpectedOutput() != null);
     }
 
     /**
      * 转换Docker执行结果为接口响应模型
      */
-    private ExecuteCodeResponse convertToExecuteCodeResponse(ExecutionResult result, String language) {
+    private ExecuteCodeResponse convertToExecuteCodeResponse(ExecutionResult result, String language, boolean outputCompared) {
         ExecuteCodeResponse response = new ExecuteCodeResponse();
 
+        // 任意一次运行超过时间限制、内存限制、输出上限或因输出不一致被提前终止即视为失败
+        String limitStatus = result.getExecutionResults() == null ? null : result.getExecutionResults().stream()
+                .map(ExecutionMetrics::getStatus)
+                .filter(status -> "TIMEOUT_ERROR".equals(status) || "MEMORY_LIMIT_EXCEEDED".equals(status)
+                        || "OUTPUT_LIMIT_EXCEEDED".equals(status) || "WRONG_ANSWER".equals(status))
+                .findFirst()
+                .orElse(null);
+
         // 设置执行状态
-        response.setStatus(result.isSuccess() ?
+        response.setStatus(result.isSuccess() && limitStatus == null ?
                 ExecuteCodeResponse.ExecuteStatus.SUCCEED :
                 ExecuteCodeResponse.ExecuteStatus.FAILED);
 
@@ -338,7 +594,9 @@ public class MainController {
         JudgeInfo judgeInfo = new JudgeInfo();
 
         // 设置状态消息
-        if (result.isSuccess()) {
+        if (limitStatus != null) {
+            judgeInfo.setMessage(language + "代码执行失败: " + limitStatus);
+        } else if (result.isSuccess()) {
             judgeInfo.setMessage(language + "代码执行成功");
         } else {
             judgeInfo.setMessage(language + "代码执行失败");
@@ -352,17 +610,23 @@ public class MainController {
             }
         }
 
-        // 设置内存使用（转换为KB）
+        // 设置内存使用（转换为KB），没有测得内存（如常驻 JVM 执行）时为空
         long memoryKB = result.getMaxMemoryUsed() / 1024;
-        judgeInfo.setMemory(memoryKB);
+        judgeInfo.setMemory(result.getMaxMemoryUsed() >= 0 ? memoryKB : null);
 
-        // 设置执行时间
+        // 设置执行时间（墙钟时间和CPU时间）
         judgeInfo.setTime(result.getMaxExecutionTime());
+        judgeInfo.setCpuTime(result.getMaxCpuTime());
+
+        // 提供了预期输出时返回比对结果
+        if (outputCompared) {
+            judgeInfo.setOutputMatched(result.isOutputMatched());
+        }
 
         response.setJudgeInfo(judgeInfo);
 
         logger.info(language + "执行结果转换完成 - 状态: " + response.getStatus() +
-                ", 内存: " + memoryKB + "KB, 时间: " + result.getMaxExecutionTime() + "ms");
+                ", 内存: " + (judgeInfo.getMemory() != null ? memoryKB + "KB" : "未测得") + ", 时间: " + result.getMaxExecutionTime() + "ms");
 
         return response;
     }
@@ -382,6 +646,7 @@ public class MainController {
         judgeInfo.setMessage(errorMessage != null ? errorMessage : "执行失败");
         judgeInfo.setMemory(0L);
         judgeInfo.setTime(0L);
+        judgeInfo.setCpuTime(0L);
         response.setJudgeInfo(judgeInfo);
 
         return response;
@@ -431,42 +696,9 @@ public class MainController {
                 return;
             }
 
-            // 并行清理执行器资源
+            // 三个执行器的容器一起交给清理队列，在这里等待全部销毁
             logger.info("开始并行清理执行器...");
-
-            // 使用CompletableFuture并行执行清理
-            CompletableFuture<Void> javaCleanup = CompletableFuture.runAsync(() -> {
-                try {
-                    logger.info("清理Java执行器...");
-                    javaExecutor.cleanup();
-                    logger.info("Java执行器清理完成");
-                } catch (Exception e) {
-                    logger.severe("Java执行器清理失败: " + e.getMessage());
-                }
-            });
-
-            CompletableFuture<Void> pythonCleanup = CompletableFuture.runAsync(() -> {
-                try {
-                    logger.info("清理Python执行器...");
-                    pythonExecutor.cleanup();
-                    logger.info("Python执行器清理完成");
-                } catch (Exception e) {
-                    logger.severe("Python执行器清理失败: " + e.getMessage());
-                }
-            });
-
-            CompletableFuture<Void> jsCleanup = CompletableFuture.runAsync(() -> {
-                try {
-                    logger.info("清理JavaScript执行器...");
-                    jsExecutor.cleanup();
-                    logger.info("JavaScript执行器清理完成");
-                } catch (Exception e) {
-                    logger.severe("JavaScript执行器清理失败: " + e.getMessage());
-                }
-            });
-
-            // 等待所有清理任务完成
-            CompletableFuture.allOf(javaCleanup, pythonCleanup, jsCleanup)
+            CompletableFuture.allOf(javaExecutor.cleanup(), pythonExecutor.cleanup(), jsExecutor.cleanup())
                     .get(60, TimeUnit.SECONDS);
 
             long duration = System.currentTimeMillis() - startTime;
@@ -474,9 +706,11 @@ public class MainController {
 
         } catch (java.util.concurrent.TimeoutException e) {
             logger.severe("清理任务超时: " + e.getMessage());
+        } catch (InterruptedException e) {
+            logger.warning("清理任务被中断");
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            logger.severe("清理资源时出错: " + e.getMessage());
-            e.printStackTrace();
+            logger.log(Level.SEVERE, "清理资源时出错: " + e.getMessage(), e);
         }
     }
 
@@ -549,6 +783,7 @@ public class MainController {
 
     /**
      * 批量执行代码接口 - 支持同时执行多种语言的代码
+     * 各请求按语言并行执行（每种语言有并发上限），响应顺序与请求顺序一致
      */
     @PostMapping("/execute/batch")
     public ResponseEntity<List<ExecuteCodeResponse>> executeBatch(
@@ -565,40 +800,15 @@ public class MainController {
 
         try {
             logger.info("开始批量执行代码，请求数量: " + requests.size());
-            List<ExecuteCodeResponse> responses = new ArrayList<>();
-
-            for (int i = 0; i < requests.size(); i++) {
-                ExecuteCodeRequest request = requests.get(i);
-                try {
-                    logger.info("执行第 " + (i + 1) + " 个请求，语言: " + request.getLanguage());
-
-                    ExecuteCodeResponse response;
-                    switch (request.getLanguage()) {
-                        case JAVA:
-                            response = executeJavaCodeInternal(request);
-                            break;
-                        case JAVASCRIPT:
-                            response = executeJavaScriptCodeInternal(request);
-                            break;
-                        case PYTHON:
-                            response = executePythonCodeInternal(request);
-                            break;
-                        default:
-                            response = buildErrorResponse("不支持的编程语言: " + request.getLanguage());
-                            break;
-                    }
-
-                    responses.add(response);
-
-                } catch (Exception e) {
-                    logger.warning("第 " + (i + 1) + " 个请求执行失败: " + e.getMessage());
-                    responses.add(buildErrorResponse("执行失败: " + e.getMessage()));
-                }
-            }
+
+            // 按语言并行执行，结果保持原始顺序
+            List<ExecuteCodeResponse> responses = batchManager.executeAll(requests, this::executeWithAdmission, this::buildErrorResponse);
 
             logger.info("批量执行完成，成功处理 " + responses.size() + " 个请求");
             return ResponseEntity.ok(responses);
 
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             logger.severe("批量执行出错: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
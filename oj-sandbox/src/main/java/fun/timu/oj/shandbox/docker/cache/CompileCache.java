@@ -0,0 +1,229 @@
+package fun.timu.oj.shandbox.docker.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 编译产物缓存
+ * 以"源代码 + 编译器镜像ID"的 SHA-256 作为键缓存编译生成的文件（如 .class），
+ * 同一提交的多次执行、多个测试用例以及相同代码的重复提交都可以跳过编译；
+ * 按最近最少使用（LRU）顺序淘汰，同时限制条目数和总字节数
+ */
+public class CompileCache {
+    private static final Logger logger = Logger.getLogger(CompileCache.class.getName());
+
+    // 单例实例
+    private static volatile CompileCache instance;
+    private static final Object lock = new Object();
+
+    // 按访问顺序排列的缓存条目，访问时加锁
+    private final LinkedHashMap<String, CompiledArtifact> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // 当前缓存的总字节数
+    private long totalBytes = 0;
+
+    // 命中统计
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // 默认配置，可通过 configure 覆盖
+    private volatile boolean enabled = true;
+    private volatile int maxEntries = 256;
+    private volatile long maxBytes = 64L * 1024 * 1024; // 64MB
+
+    /**
+     * 一次编译生成的全部文件（相对路径 -> 文件内容）
+     */
+    public static class CompiledArtifact {
+        private final Map<String, byte[]> files;
+        private final long size;
+
+        CompiledArtifact(Map<String, byte[]> files) {
+            this.files = Collections.unmodifiableMap(files);
+            long total = 0;
+            for (byte[] content : files.values()) {
+                total += content.length;
+            }
+            this.size = total;
+        }
+
+        public Map<String, byte[]> getFiles() {
+            return files;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    private CompileCache() {
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static CompileCache getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new CompileCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 配置缓存开关和容量
+     */
+    public synchronized void configure(boolean enabled, int maxEntries, long maxBytes) {
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+        if (!enabled) {
+            entries.clear();
+            totalBytes = 0;
+        } else {
+            evictIfNecessary();
+        }
+        logger.info("编译缓存配置: enabled=" + enabled + ", maxEntries=" + this.maxEntries + ", maxBytes=" + this.maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 计算缓存键：SHA-256(编译器镜像ID + 源代码)
+     * 使用镜像ID而不是标签，同一标签重新拉取出不同版本的编译器后不会命中旧的编译产物
+     */
+    public static String buildKey(String compilerImage, String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(compilerImage.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 查询缓存，未启用或未命中时返回 null
+     */
+    public synchronized CompiledArtifact get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        CompiledArtifact artifact = entries.get(key);
+        if (artifact != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return artifact;
+    }
+
+    /**
+     * 收集目录中匹配后缀的编译产物并放入缓存
+     *
+     * @param key       缓存键
+     * @param directory 编译输出目录
+     * @param suffix    编译产物后缀（如 ".class"）
+     */
+    public void put(String key, Path directory, String suffix) {
+        if (!enabled) {
+            return;
+        }
+
+        Map<String, byte[]> files = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            Iterator<Path> iterator = paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(suffix))
+                    .iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                files.put(directory.relativize(path).toString(), Files.readAllBytes(path));
+            }
+        } catch (IOException e) {
+            logger.warning("收集编译产物失败，跳过缓存: " + e.getMessage());
+            return;
+        }
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        CompiledArtifact artifact = new CompiledArtifact(files);
+        if (artifact.getSize() > maxBytes) {
+            logger.info("编译产物过大，不放入缓存: " + artifact.getSize() + "B");
+            return;
+        }
+
+        synchronized (this) {
+            CompiledArtifact previous = entries.put(key, artifact);
+            if (previous != null) {
+                totalBytes -= previous.getSize();
+            }
+            totalBytes += artifact.getSize();
+            evictIfNecessary();
+        }
+        logger.fine("编译产物已缓存: " + key + ", 文件数: " + files.size());
+    }
+
+    /**
+     * 将缓存的编译产物写入目标目录
+     */
+    public void restore(CompiledArtifact artifact, Path directory) throws IOException {
+        for (Map.Entry<String, byte[]> entry : artifact.getFiles().entrySet()) {
+            Path target = directory.resolve(entry.getKey());
+            Files.createDirectories(target.getParent());
+            Files.write(target, entry.getValue());
+        }
+    }
+
+    /**
+     * 按 LRU 顺序淘汰条目，直到条目数和总字节数都不超过上限
+     */
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<String, CompiledArtifact>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, CompiledArtifact> eldest = iterator.next();
+            totalBytes -= eldest.getValue().getSize();
+            iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
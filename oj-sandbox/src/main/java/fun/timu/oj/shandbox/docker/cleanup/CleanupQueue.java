@@ -0,0 +1,310 @@
+package fun.timu.oj.shandbox.docker.cleanup;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.model.Frame;
+import fun.timu.oj.shandbox.docker.client.SharedDockerClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 执行后清理队列
+ * 工作区、临时目录和废弃容器的清理不再占用执行线程，放入有界队列后由后台线程批量处理：
+ * 一批任务中同一容器内的多个工作区合并为一次 rm -rf exec，其余任务依次执行。
+ * 队列已满时提交方最多等待一段时间，仍然无法入队则在提交线程中直接清理，
+ * 清理跟不上时由提交方分担，队列不会无限增长。
+ * 队列长度通过 sandbox.cleanup.queue.depth 指标暴露，提交方直接清理的次数记录在 sandbox.cleanup.caller.runs
+ */
+public class CleanupQueue {
+    private static final Logger logger = Logger.getLogger(CleanupQueue.class.getName());
+
+    // 单例实例
+    private static volatile CleanupQueue instance;
+    private static final Object lock = new Object();
+
+    private static final long EXEC_TIMEOUT = 30; // 单次 rm -rf exec 的最长等待时间（秒）
+    private static final long SHUTDOWN_DRAIN_TIMEOUT = 10_000; // 应用关闭时等待队列清空的最长时间（毫秒）
+
+    private final DockerClient dockerClient;
+
+    // 默认配置，可通过 configure 覆盖，需在首次提交前调用
+    private volatile int workers = 4;
+    private volatile int capacity = 1000;
+    private volatile int batchSize = 32;
+    private volatile long offerTimeoutMillis = 2000;
+
+    // 清理任务队列，首次提交时按配置创建
+    private volatile BlockingQueue<CleanupTask> queue;
+
+    private final Counter callerRuns;
+
+    /**
+     * 一个清理任务：在容器内删除的工作区，或任意清理动作
+     */
+    private static class CleanupTask {
+        private final String containerId;
+        private final String containerPath;
+        private final Runnable action;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        CleanupTask(String containerId, String containerPath, Runnable action) {
+            this.containerId = containerId;
+            this.containerPath = containerPath;
+            this.action = action;
+        }
+
+        boolean isWorkspace() {
+            return containerId != null;
+        }
+    }
+
+    private CleanupQueue() {
+        this.dockerClient = SharedDockerClient.getInstance();
+        Gauge.builder("sandbox.cleanup.queue.depth", this, cleanupQueue -> {
+                    BlockingQueue<CleanupTask> current = cleanupQueue.queue;
+                    return current != null ? current.size() : 0;
+                })
+                .description("等待处理的清理任务数")
+                .register(Metrics.globalRegistry);
+        this.callerRuns = Counter.builder("sandbox.cleanup.caller.runs")
+                .description("清理队列已满时由提交线程直接执行的清理任务数")
+                .register(Metrics.globalRegistry);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "CleanupQueue-Shutdown"));
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static CleanupQueue getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new CleanupQueue();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 配置清理线程数、队列容量、批大小和队列已满时的等待时间，需在首次提交前调用
+     */
+    public void configure(int workers, int capacity, int batchSize, long offerTimeoutMillis) {
+        this.workers = Math.max(1, workers);
+        this.capacity = Math.max(1, capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.offerTimeoutMillis = Math.max(0, offerTimeoutMillis);
+        logger.info("清理队列配置: workers=" + this.workers + ", capacity=" + this.capacity +
+                ", batchSize=" + this.batchSize + ", offerTimeout=" + this.offerTimeoutMillis + "ms");
+    }
+
+    /**
+     * 删除容器内的工作区，同一批中同一容器的工作区合并为一次 exec
+     *
+     * @param containerId   容器ID
+     * @param containerPath 容器内的目录
+     */
+    public CompletableFuture<Void> submitWorkspace(String containerId, String containerPath) {
+        return enqueue(new CleanupTask(containerId, containerPath, null));
+    }
+
+    /**
+     * 删除宿主机上的目录
+     */
+    public CompletableFuture<Void> submitDirectory(Path directory) {
+        if (directory == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(new CleanupTask(null, null, () -> deleteDirectory(directory)));
+    }
+
+    /**
+     * 提交任意清理动作（如销毁容器）
+     */
+    public CompletableFuture<Void> submit(Runnable action) {
+        return enqueue(new CleanupTask(null, null, action));
+    }
+
+    /**
+     * 当前等待处理的清理任务数
+     */
+    public int getDepth() {
+        BlockingQueue<CleanupTask> current = queue;
+        return current != null ? current.size() : 0;
+    }
+
+    private CompletableFuture<Void> enqueue(CleanupTask task) {
+        BlockingQueue<CleanupTask> current = ensureStarted();
+        boolean queued;
+        try {
+            queued = current.offer(task, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            // 清理跟不上，由提交线程直接完成
+            callerRuns.increment();
+            logger.fine("清理队列已满，在提交线程中直接清理，队列长度: " + current.size());
+            runBatch(List.of(task));
+        }
+        return task.future;
+    }
+
+    /**
+     * 按当前配置创建队列和清理线程
+     */
+    private BlockingQueue<CleanupTask> ensureStarted() {
+        BlockingQueue<CleanupTask> current = queue;
+        if (current == null) {
+            synchronized (this) {
+                current = queue;
+                if (current == null) {
+                    BlockingQueue<CleanupTask> created = new LinkedBlockingQueue<>(capacity);
+                    for (int i = 0; i < workers; i++) {
+                        Thread thread = new Thread(() -> processLoop(created), "CleanupQueue-Worker-" + (i + 1));
+                        thread.setDaemon(true);
+                        thread.start();
+                    }
+                    queue = created;
+                    current = created;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 清理线程：阻塞等待任务，取到后把队列中已有的任务一并取出作为一批处理
+     */
+    private void processLoop(BlockingQueue<CleanupTask> current) {
+        List<CleanupTask> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(current.take());
+                current.drainTo(batch, batchSize - 1);
+                runBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "清理任务执行失败: " + e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 处理一批清理任务
+     */
+    private void runBatch(List<CleanupTask> batch) {
+        Map<String, List<CleanupTask>> workspaces = new LinkedHashMap<>();
+        for (CleanupTask task : batch) {
+            if (task.isWorkspace()) {
+                workspaces.computeIfAbsent(task.containerId, key -> new ArrayList<>()).add(task);
+                continue;
+            }
+            try {
+                task.action.run();
+                task.future.complete(null);
+            } catch (Exception e) {
+                logger.warning("清理任务执行失败: " + e.getMessage());
+                task.future.completeExceptionally(e);
+            }
+        }
+        workspaces.forEach(this::removeWorkspaces);
+    }
+
+    /**
+     * 用一次 rm -rf exec 删除同一容器内的多个工作区
+     */
+    private void removeWorkspaces(String containerId, List<CleanupTask> tasks) {
+        List<String> command = new ArrayList<>();
+        command.add("rm");
+        command.add("-rf");
+        for (CleanupTask task : tasks) {
+            command.add(task.containerPath);
+        }
+
+        try {
+            ExecCreateCmdResponse exec = dockerClient.execCreateCmd(containerId)
+                    .withCmd(command.toArray(new String[0]))
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            dockerClient.execStartCmd(exec.getId())
+                    .exec(new ResultCallback.Adapter<Frame>())
+                    .awaitCompletion(EXEC_TIMEOUT, TimeUnit.SECONDS);
+            logger.fine("已清理容器 " + containerId + " 中的 " + tasks.size() + " 个工作区");
+            tasks.forEach(task -> task.future.complete(null));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            tasks.forEach(task -> task.future.completeExceptionally(e));
+        } catch (Exception e) {
+            // 容器已被销毁时工作区随挂载目录一起删除
+            logger.fine("清理容器工作区失败: " + containerId + ", 错误: " + e.getMessage());
+            tasks.forEach(task -> task.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 递归删除宿主机目录
+     */
+    private void deleteDirectory(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warning("删除文件失败: " + path + ", 错误: " + e.getMessage());
+                }
+            });
+            logger.fine("清理临时目录: " + directory);
+        } catch (IOException e) {
+            logger.warning("清理临时目录时出错: " + directory + ", 错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 应用关闭时等待队列中的任务处理完毕
+     */
+    private void drain() {
+        BlockingQueue<CleanupTask> current = queue;
+        if (current == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + SHUTDOWN_DRAIN_TIMEOUT;
+        while (!current.isEmpty() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (!current.isEmpty()) {
+            logger.warning("应用关闭时仍有 " + current.size() + " 个清理任务未处理");
+        }
+    }
+}
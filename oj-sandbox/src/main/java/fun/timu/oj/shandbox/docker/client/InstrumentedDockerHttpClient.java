@@ -0,0 +1,198 @@
+package fun.timu.oj.shandbox.docker.client;
+
+import com.github.dockerjava.transport.DockerHttpClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 记录指标的Docker HTTP客户端
+ * 在传输层包装每一个Docker API请求，按命令类型（create、start、execCreate、execStart、inspect、stats、remove 等）记录：
+ * <ul>
+ *     <li>sandbox.docker.command：从发出请求到收到响应头的耗时（直方图），即Docker守护进程的响应延迟，
+ *     不包含 execStart 等流式响应之后用户程序的运行时间</li>
+ *     <li>sandbox.docker.command.errors：请求失败（IO异常或HTTP 4xx/5xx）次数</li>
+ *     <li>sandbox.docker.requests.in_flight：已发出且响应尚未关闭的请求数</li>
+ *     <li>sandbox.docker.connections.max：客户端配置的最大连接数</li>
+ * </ul>
+ * 连接池由 ApacheDockerHttpClient 内部持有，读不到它的统计数据；这里只在包装层统计进行中的请求，
+ * 数值持续接近或超过最大连接数时说明请求可能在排队等待连接
+ */
+class InstrumentedDockerHttpClient implements DockerHttpClient {
+    private static final String COMMAND_TIMER = "sandbox.docker.command";
+    private static final String COMMAND_ERRORS = "sandbox.docker.command.errors";
+    private static final Pattern API_VERSION = Pattern.compile("^/v[0-9.]+(?=/)");
+
+    private final DockerHttpClient delegate;
+    private final MeterRegistry registry;
+
+    // 已发出且响应尚未关闭的请求数
+    private final AtomicInteger openRequests = new AtomicInteger();
+
+    InstrumentedDockerHttpClient(DockerHttpClient delegate, MeterRegistry registry, int maxConnections) {
+        this.delegate = delegate;
+        this.registry = registry;
+
+        Gauge.builder("sandbox.docker.connections.max", () -> maxConnections)
+                .description("Docker客户端配置的最大连接数")
+                .register(registry);
+        Gauge.builder("sandbox.docker.requests.in_flight", openRequests, AtomicInteger::get)
+                .description("已发出且响应尚未关闭的Docker请求数")
+                .register(registry);
+    }
+
+    @Override
+    public Response execute(Request request) {
+        String command = commandOf(request.method(), request.path());
+        openRequests.incrementAndGet();
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = delegate.execute(request);
+        } catch (RuntimeException | Error e) {
+            openRequests.decrementAndGet();
+            record(command, start, "io_error");
+            countError(command, e.getClass().getSimpleName());
+            throw e;
+        }
+
+        int status = response.getStatusCode();
+        if (status >= 400) {
+            record(command, start, status >= 500 ? "server_error" : "client_error");
+            countError(command, String.valueOf(status));
+        } else {
+            record(command, start, "success");
+        }
+        return new TrackedResponse(response);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private void record(String command, long start, String outcome) {
+        Timer.builder(COMMAND_TIMER)
+                .description("Docker命令的响应延迟")
+                .tag("command", command)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void countError(String command, String reason) {
+        Counter.builder(COMMAND_ERRORS)
+                .description("Docker命令失败次数")
+                .tag("command", command)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 根据请求方法和路径识别Docker命令类型，路径中的容器ID、镜像名等不会出现在标签里
+     */
+    static String commandOf(String method, String path) {
+        int query = path.indexOf('?');
+        String resource = API_VERSION.matcher(query >= 0 ? path.substring(0, query) : path).replaceFirst("");
+        String[] parts = resource.replaceAll("^/+|/+$", "").split("/");
+
+        switch (parts[0]) {
+            case "containers":
+                if (parts.length == 1 || "json".equals(parts[1])) {
+                    return "list";
+                }
+                if ("create".equals(parts[1])) {
+                    return "create";
+                }
+                if (parts.length == 2) {
+                    return "DELETE".equals(method) ? "remove" : "other";
+                }
+                switch (parts[2]) {
+                    case "json":
+                        return "inspect";
+                    case "exec":
+                        return "execCreate";
+                    case "archive":
+                        return "PUT".equals(method) ? "copyTo" : "copyFrom";
+                    case "start":
+                    case "stop":
+                    case "kill":
+                    case "wait":
+                    case "stats":
+                    case "logs":
+                    case "attach":
+                    case "restart":
+                    case "top":
+                        return parts[2];
+                    default:
+                        return "other";
+                }
+            case "exec":
+                if (parts.length == 3 && "start".equals(parts[2])) {
+                    return "execStart";
+                }
+                if (parts.length == 3 && "json".equals(parts[2])) {
+                    return "execInspect";
+                }
+                return "other";
+            case "images":
+                if (parts.length == 2 && "create".equals(parts[1])) {
+                    return "pull";
+                }
+                return "json".equals(parts[parts.length - 1]) ? "inspectImage" : "image";
+            case "events":
+                return "events";
+            case "_ping":
+                return "ping";
+            default:
+                return "other";
+        }
+    }
+
+    /**
+     * 响应关闭时减少进行中的请求计数
+     */
+    private class TrackedResponse implements Response {
+        private final Response delegate;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        TrackedResponse(Response delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                openRequests.decrementAndGet();
+            }
+            delegate.close();
+        }
+    }
+}
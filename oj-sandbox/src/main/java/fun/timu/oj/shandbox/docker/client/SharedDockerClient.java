@@ -0,0 +1,90 @@
+package fun.timu.oj.shandbox.docker.client;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.logging.Logger;
+
+/**
+ * 沙箱共享的Docker客户端
+ * 所有执行器和容器池共用同一个客户端和同一个HTTP连接池，
+ * 每个Docker命令的耗时、错误和连接占用情况都记录到 Micrometer，通过 actuator 的 metrics 端点查看。
+ * 订阅 Docker 事件使用单独的客户端（{@link #getEventsInstance()}）
+ */
+public final class SharedDockerClient {
+    private static final Logger logger = Logger.getLogger(SharedDockerClient.class.getName());
+
+    // 连接池配置
+    private static final int MAX_CONNECTIONS = 100;
+    private static final Duration CONNECTION_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(45);
+    private static final int EVENTS_MAX_CONNECTIONS = 2; // 事件订阅客户端的连接数（当前订阅和重新订阅时的新订阅）
+
+    // 单例实例
+    private static volatile DockerClient instance;
+    private static volatile DockerClient eventsInstance;
+    private static final Object lock = new Object();
+
+    private SharedDockerClient() {
+    }
+
+    /**
+     * 获取共享的Docker客户端
+     * 客户端随进程存在，使用方不应关闭它
+     */
+    public static DockerClient getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = createClient();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取订阅Docker事件专用的客户端
+     * 事件流长时间没有数据是正常的，该客户端不设置响应超时，空闲的订阅不会被当作出错而断开重连；
+     * 长连接不占用共享连接池，也不计入命令指标。客户端随进程存在，使用方不应关闭它
+     */
+    public static DockerClient getEventsInstance() {
+        if (eventsInstance == null) {
+            synchronized (lock) {
+                if (eventsInstance == null) {
+                    DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+                    eventsInstance = DockerClientImpl.getInstance(config, new ApacheDockerHttpClient.Builder()
+                            .dockerHost(config.getDockerHost())
+                            .sslConfig(config.getSSLConfig())
+                            .maxConnections(EVENTS_MAX_CONNECTIONS)
+                            .connectionTimeout(CONNECTION_TIMEOUT)
+                            .build());
+                    logger.info("Docker事件订阅客户端已初始化: " + config.getDockerHost());
+                }
+            }
+        }
+        return eventsInstance;
+    }
+
+    private static DockerClient createClient() {
+        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
+        ApacheDockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(MAX_CONNECTIONS)
+                .connectionTimeout(CONNECTION_TIMEOUT)
+                .responseTimeout(RESPONSE_TIMEOUT)
+                .build();
+
+        // 注册到全局注册表，Spring Boot 启动后会把 actuator 使用的注册表加入其中
+        DockerClient client = DockerClientImpl.getInstance(config,
+                new InstrumentedDockerHttpClient(httpClient, Metrics.globalRegistry, MAX_CONNECTIONS));
+        logger.info("共享Docker客户端已初始化: " + config.getDockerHost() + "，最大连接数: " + MAX_CONNECTIONS);
+        return client;
+    }
+}
@@ -0,0 +1,26 @@
+package fun.timu.oj.shandbox.docker.compare;
+
+/**
+ * 输出比对模式
+ */
+public enum CompareMode {
+    /**
+     * 精确比对，只忽略输出首尾的空白字符
+     */
+    EXACT,
+
+    /**
+     * 忽略空白差异，按空白字符切分后逐个比对单词
+     */
+    IGNORE_WHITESPACE,
+
+    /**
+     * 逐行比对，忽略行尾空白和末尾空行
+     */
+    LINE_BY_LINE,
+
+    /**
+     * 逐个单词比对，两边都是数字时允许误差（绝对误差或相对误差不超过 epsilon）
+     */
+    FLOAT_EPSILON
+}
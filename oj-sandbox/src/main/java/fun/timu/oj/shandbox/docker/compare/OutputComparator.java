@@ -0,0 +1,63 @@
+package fun.timu.oj.shandbox.docker.compare;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 输出比对器
+ * 保存一道题目的比对方式（比对模式和浮点误差），每次运行通过 {@link #start(String)} 创建独立的流式比对会话
+ */
+public final class OutputComparator {
+    public static final double DEFAULT_EPSILON = 1e-6;
+
+    /**
+     * 默认比对器：精确比对，与原有的 trim 后 equals 行为一致
+     */
+    public static final OutputComparator EXACT = new OutputComparator(CompareMode.EXACT, DEFAULT_EPSILON);
+
+    private final CompareMode mode;
+    private final double epsilon;
+
+    private OutputComparator(CompareMode mode, double epsilon) {
+        this.mode = mode;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * 创建比对器
+     *
+     * @param mode    比对模式，为null时使用精确比对
+     * @param epsilon 浮点误差，为null时使用默认值（仅 FLOAT_EPSILON 模式使用）
+     */
+    public static OutputComparator of(CompareMode mode, Double epsilon) {
+        if (mode == null || mode == CompareMode.EXACT) {
+            return EXACT;
+        }
+        return new OutputComparator(mode, epsilon != null && epsilon >= 0 ? epsilon : DEFAULT_EPSILON);
+    }
+
+    public CompareMode getMode() {
+        return mode;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * 为一次运行创建流式比对会话
+     *
+     * @param expectedOutput 预期输出
+     */
+    public OutputMatcher start(String expectedOutput) {
+        return new OutputMatcher(mode, epsilon, expectedOutput);
+    }
+
+    /**
+     * 比对完整的输出
+     */
+    public boolean matches(String output, String expectedOutput) {
+        OutputMatcher matcher = start(expectedOutput);
+        matcher.feed(output.getBytes(StandardCharsets.UTF_8));
+        return matcher.finish();
+    }
+}
@@ -0,0 +1,212 @@
+package fun.timu.oj.shandbox.docker.compare;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 流式输出比对会话
+ * 直接消费 exec 输出流中的字节，不需要先缓存完整输出；发现第一个不一致的单词（或行）时立即判定为不匹配，
+ * 调用方可以据此提前终止被测程序。
+ * <p>
+ * 只在输出回调线程中使用，非线程安全。
+ */
+public final class OutputMatcher {
+    private final CompareMode mode;
+    private final double epsilon;
+
+    // EXACT 模式：trim 后的预期输出字节
+    private final byte[] expectedBytes;
+    // 其他模式：预期输出切分后的单词或行
+    private final List<byte[]> expectedUnits;
+
+    // EXACT 模式为 expectedBytes 中的位置，其他模式为 expectedUnits 中的位置
+    private int position = 0;
+    // EXACT 模式暂存尚未确定是否为结尾的空白，其他模式暂存当前的单词或行
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    // EXACT 模式：是否已遇到第一个非空白字符
+    private boolean started = false;
+    private boolean mismatched = false;
+
+    OutputMatcher(CompareMode mode, double epsilon, String expectedOutput) {
+        this.mode = mode;
+        this.epsilon = epsilon;
+        String expected = expectedOutput != null ? expectedOutput : "";
+        if (mode == CompareMode.EXACT) {
+            this.expectedBytes = expected.trim().getBytes(StandardCharsets.UTF_8);
+            this.expectedUnits = null;
+        } else if (mode == CompareMode.LINE_BY_LINE) {
+            this.expectedBytes = null;
+            this.expectedUnits = splitLines(expected);
+        } else {
+            this.expectedBytes = null;
+            this.expectedUnits = splitTokens(expected);
+        }
+    }
+
+    /**
+     * 消费一段输出
+     *
+     * @param chunk 输出字节
+     * @return 到目前为止仍然匹配时返回 true，返回 false 后可以停止接收
+     */
+    public boolean feed(byte[] chunk) {
+        for (int i = 0; i < chunk.length && !mismatched; i++) {
+            accept(chunk[i]);
+        }
+        return !mismatched;
+    }
+
+    /**
+     * 输出结束，返回最终比对结果
+     */
+    public boolean finish() {
+        if (mismatched) {
+            return false;
+        }
+        if (mode == CompareMode.EXACT) {
+            return position == expectedBytes.length;
+        }
+        if (pending.size() > 0) {
+            endUnit();
+        }
+        return !mismatched && position >= expectedUnits.size();
+    }
+
+    /**
+     * 是否已发现不一致
+     */
+    public boolean isMismatched() {
+        return mismatched;
+    }
+
+    private void accept(byte b) {
+        switch (mode) {
+            case EXACT:
+                acceptExact(b);
+                break;
+            case LINE_BY_LINE:
+                if (b == '\n') {
+                    endUnit();
+                } else {
+                    pending.write(b);
+                }
+                break;
+            default:
+                if (isTokenSeparator(b)) {
+                    if (pending.size() > 0) {
+                        endUnit();
+                    }
+                } else {
+                    pending.write(b);
+                }
+                break;
+        }
+    }
+
+    private void acceptExact(byte b) {
+        // 与 String.trim() 一致：小于等于空格的字符视为空白，只有后面出现非空白字符时才参与比对
+        if ((b & 0xFF) <= ' ') {
+            if (started) {
+                pending.write(b);
+            }
+            return;
+        }
+        started = true;
+        if (pending.size() > 0) {
+            for (byte whitespace : pending.toByteArray()) {
+                compareExact(whitespace);
+            }
+            pending.reset();
+        }
+        compareExact(b);
+    }
+
+    private void compareExact(byte b) {
+        if (mismatched || position >= expectedBytes.length || expectedBytes[position] != b) {
+            mismatched = true;
+            return;
+        }
+        position++;
+    }
+
+    private void endUnit() {
+        byte[] actual = pending.toByteArray();
+        pending.reset();
+        if (mode == CompareMode.LINE_BY_LINE) {
+            actual = stripLineEnd(actual);
+            if (position >= expectedUnits.size()) {
+                // 预期输出之后只允许出现空行
+                mismatched = actual.length > 0;
+                return;
+            }
+        } else if (position >= expectedUnits.size()) {
+            mismatched = true;
+            return;
+        }
+        if (!unitEquals(expectedUnits.get(position), actual)) {
+            mismatched = true;
+            return;
+        }
+        position++;
+    }
+
+    private boolean unitEquals(byte[] expected, byte[] actual) {
+        if (Arrays.equals(expected, actual)) {
+            return true;
+        }
+        if (mode != CompareMode.FLOAT_EPSILON) {
+            return false;
+        }
+        try {
+            double expectedValue = Double.parseDouble(new String(expected, StandardCharsets.US_ASCII));
+            double actualValue = Double.parseDouble(new String(actual, StandardCharsets.US_ASCII));
+            if (Double.isNaN(expectedValue) || Double.isNaN(actualValue)) {
+                return false;
+            }
+            double diff = Math.abs(expectedValue - actualValue);
+            return diff <= epsilon || diff <= epsilon * Math.abs(expectedValue);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isTokenSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * 去掉行尾的 \r、空格和制表符
+     */
+    private static byte[] stripLineEnd(byte[] line) {
+        int end = line.length;
+        while (end > 0 && (line[end - 1] == '\r' || line[end - 1] == ' ' || line[end - 1] == '\t')) {
+            end--;
+        }
+        return end == line.length ? line : Arrays.copyOf(line, end);
+    }
+
+    private static List<byte[]> splitLines(String expected) {
+        List<byte[]> lines = new ArrayList<>();
+        for (String line : expected.split("\n", -1)) {
+            lines.add(stripLineEnd(line.getBytes(StandardCharsets.UTF_8)));
+        }
+        // 忽略末尾空行
+        while (!lines.isEmpty() && lines.get(lines.size() - 1).length == 0) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
+
+    private static List<byte[]> splitTokens(String expected) {
+        List<byte[]> tokens = new ArrayList<>();
+        for (String token : expected.trim().split("[ \\t\\n\\r\\f\\x0B]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return tokens;
+    }
+}
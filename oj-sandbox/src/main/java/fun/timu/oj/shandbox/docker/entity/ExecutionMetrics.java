@@ -9,4 +9,11 @@ public interface ExecutionMetrics {
     long getExecutionTime();
     long getMemoryUsed();
     boolean isOutputMatched();
+
+    /**
+     * 用户态 + 内核态 CPU 时间（毫秒），未测量时为0
+     */
+    default long getCpuTime() {
+        return 0;
+    }
 }
@@ -13,6 +13,8 @@ public class ExecutionResult {
     protected long averageMemoryUsed;
     protected long maxExecutionTime;
     protected long maxMemoryUsed;
+    protected long averageCpuTime;
+    protected long maxCpuTime;
 
     public boolean isSuccess() {
         return success;
@@ -69,4 +71,20 @@ public class ExecutionResult {
     public void setMaxMemoryUsed(long maxMemoryUsed) {
         this.maxMemoryUsed = maxMemoryUsed;
     }
+
+    public long getAverageCpuTime() {
+        return averageCpuTime;
+    }
+
+    public void setAverageCpuTime(long averageCpuTime) {
+        this.averageCpuTime = averageCpuTime;
+    }
+
+    public long getMaxCpuTime() {
+        return maxCpuTime;
+    }
+
+    public void setMaxCpuTime(long maxCpuTime) {
+        this.maxCpuTime = maxCpuTime;
+    }
 }
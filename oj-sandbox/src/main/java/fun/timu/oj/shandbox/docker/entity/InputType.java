@@ -0,0 +1,21 @@
+package fun.timu.oj.shandbox.docker.entity;
+
+/**
+ * 输入传递方式
+ */
+public enum InputType {
+    /**
+     * 作为命令行参数传给程序
+     */
+    PARAMS,
+
+    /**
+     * 写入测试文件，文件路径作为命令行参数传给程序
+     */
+    FILE,
+
+    /**
+     * 通过 exec 标准输入流直接传给程序，不写文件
+     */
+    STDIN
+}
@@ -9,13 +9,19 @@ public class JavaScriptExecutionMetrics implements ExecutionMetrics {
     private final long executionTime;
     private final long memoryUsed;
     private final boolean outputMatched;
+    private final long cpuTime;
 
     public JavaScriptExecutionMetrics(String status, String output, long executionTime, long memoryUsed, boolean outputMatched) {
+        this(status, output, executionTime, memoryUsed, outputMatched, 0);
+    }
+
+    public JavaScriptExecutionMetrics(String status, String output, long executionTime, long memoryUsed, boolean outputMatched, long cpuTime) {
         this.status = status;
         this.output = output;
         this.executionTime = executionTime;
         this.memoryUsed = memoryUsed;
         this.outputMatched = outputMatched;
+        this.cpuTime = cpuTime;
     }
 
     @Override
@@ -42,4 +48,9 @@ public class JavaScriptExecutionMetrics implements ExecutionMetrics {
     public boolean isOutputMatched() {
         return outputMatched;
     }
+
+    @Override
+    public long getCpuTime() {
+        return cpuTime;
+    }
 }
@@ -0,0 +1,42 @@
+package fun.timu.oj.shandbox.docker.entity;
+
+/**
+ * 测试用例输入
+ * 每个测试用例的输入内容以测试文件或标准输入的形式传给程序
+ */
+public class TestInput {
+    private final String input;
+    private final String expectedOutput;
+    private final Long timeLimitOverride;
+
+    public TestInput(String input, String expectedOutput) {
+        this(input, expectedOutput, null);
+    }
+
+    public TestInput(String input, String expectedOutput, Long timeLimitOverride) {
+        this.input = input;
+        this.expectedOutput = expectedOutput;
+        this.timeLimitOverride = timeLimitOverride;
+    }
+
+    /**
+     * 测试输入内容（测试文件内容或标准输入内容）
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * 预期输出，为null表示不比对输出
+     */
+    public String getExpectedOutput() {
+        return expectedOutput;
+    }
+
+    /**
+     * 测试用例的时间限制覆盖值（毫秒），为null表示使用题目的时间限制
+     */
+    public Long getTimeLimitOverride() {
+        return timeLimitOverride;
+    }
+}
@@ -1,66 +1,82 @@
 package fun.timu.oj.shandbox.docker.executor;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.ExecStartCmd;
 import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.model.Bind;
 import com.github.dockerjava.api.model.Frame;
-import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.dockerjava.api.model.Volume;
 import com.github.dockerjava.api.async.ResultCallback;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientConfig;
-import com.github.dockerjava.core.DockerClientImpl;
-import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import fun.timu.oj.shandbox.docker.cleanup.CleanupQueue;
+import fun.timu.oj.shandbox.docker.client.SharedDockerClient;
+import fun.timu.oj.shandbox.docker.compare.OutputComparator;
+import fun.timu.oj.shandbox.docker.compare.OutputMatcher;
 import fun.timu.oj.shandbox.docker.entity.ExecutionMetrics;
 import fun.timu.oj.shandbox.docker.entity.ExecutionResult;
+import fun.timu.oj.shandbox.docker.entity.InputType;
+import fun.timu.oj.shandbox.docker.entity.TestInput;
+import fun.timu.oj.shandbox.docker.pool.ContainerLease;
 import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import fun.timu.oj.shandbox.docker.pool.RunnerAgent;
 
-import java.io.FileWriter;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * 抽象Docker代码执行器
  * 实现Docker容器内执行代码的模板方法模式
+ * 每次调用的执行期状态保存在 {@link ExecutionContext} 中，同一实例可被多个线程并发调用
  */
 public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
     protected final Logger logger;
     protected final String dockerImage;
     protected static final String WORK_DIR = "/code";
-    protected static final int MEMORY_LIMIT = 256 * 1024 * 1024; // 256MB
+    protected static final int MEMORY_LIMIT = LongRunningContainerManager.PROGRAM_MEMORY_LIMIT; // 与池容器为被测程序保留的内存一致
     protected static final int CPU_LIMIT = 1; // 1 CPU
     protected static final int EXECUTION_TIMEOUT = 10; // 默认执行超时时间（秒）
-    protected static final int CONTAINER_WAIT_TIME = 2; // 默认容器启动等待时间（秒）
+    public static final long DEFAULT_TIME_LIMIT_MILLIS = EXECUTION_TIMEOUT * 1000L; // 未指定时间限制时的默认值
+    protected static final long KILL_GRACE_MILLIS = 3000; // 容器内看门狗未能终止程序时，宿主机额外等待的时间
+    private static final long PROCESS_GROUP_WAIT_MILLIS = 500; // 提前停止接收输出后，等待启动脚本写出进程组号的最长时间
+    private static final long OUTPUT_POLL_INTERVAL_MILLIS = 5; // 常驻进程派发的任务运行期间读取新输出做比对的间隔
+    protected static final int CONTAINER_STARTUP_TIMEOUT = 10; // 等待独立容器就绪的最长时间（秒）
+    public static final long DEFAULT_OUTPUT_LIMIT_BYTES = 8 * 1024 * 1024; // 默认输出上限（8MB）
 
-    protected boolean pullImageAlways = false; // 是否每次都拉取镜像，默认为否
+    // 单次命令输出的上限（字节），所有执行器共享
+    private static volatile long outputLimitBytes = DEFAULT_OUTPUT_LIMIT_BYTES;
 
-    protected DockerClient dockerClient;
-    protected Path tempDirectory;
+    protected volatile boolean pullImageAlways = false; // 是否每次都拉取镜像，默认为否
 
-    // 跟踪当前执行器创建的容器ID列表
-    protected List<String> createdContainers = new ArrayList<>();
+    // 最近一次检查到的镜像ID，镜像标签被重新拉取后随之变化
+    private volatile String imageId;
 
-    // 添加静态变量跟踪所有执行器实例
-    private static final List<AbstractDockerExecutor<?>> ALL_EXECUTORS = new ArrayList<>();
-    private static boolean shutdownHookAdded = false;
+    protected DockerClient dockerClient;
 
-    // 添加线程池用于并行清理
-    private static final ExecutorService CLEANUP_EXECUTOR = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+    // 跟踪当前执行器创建的容器ID列表（并发执行共享，使用线程安全列表）
+    protected final List<String> createdContainers = new CopyOnWriteArrayList<>();
 
     // 长期运行容器管理器
     protected final LongRunningContainerManager containerManager;
     
     // 容器复用标志，默认启用
-    protected boolean enableContainerReuse = true;
+    protected volatile boolean enableContainerReuse = true;
 
     /**
      * 构造函数，初始化Docker客户端
@@ -72,14 +88,11 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
         this.dockerImage = dockerImage;
         this.logger = Logger.getLogger(loggerName);
 
-        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
-        dockerClient = DockerClientImpl.getInstance(config, new ApacheDockerHttpClient.Builder().dockerHost(config.getDockerHost()).sslConfig(config.getSSLConfig()).maxConnections(100).connectionTimeout(Duration.ofSeconds(30)).responseTimeout(Duration.ofSeconds(45)).build());
+        // 所有执行器共用同一个Docker客户端和连接池
+        dockerClient = SharedDockerClient.getInstance();
 
         // 初始化长期运行容器管理器
         this.containerManager = LongRunningContainerManager.getInstance();
-
-        // 注册当前实例并确保全局关闭钩子
-        registerExecutorInstance();
     }
 
     /**
@@ -104,16 +117,41 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
     }
 
     /**
-     * 获取或创建长期运行的容器
+     * 从容器池借出长期运行的容器
      * 
      * @param language 编程语言标识（java/python/javascript）
-     * @return 容器信息
+     * @return 容器租约，使用完毕后需调用 close() 归还
      */
-    protected LongRunningContainerManager.ContainerInfo getOrCreateLongRunningContainer(String language) throws Exception {
+    protected ContainerLease borrowLongRunningContainer(String language) throws Exception {
         if (!enableContainerReuse) {
             return null; // 如果禁用容器复用，返回null让子类自己创建容器
         }
-        return containerManager.getOrCreateContainer(language, dockerImage);
+        return containerManager.borrowContainer(language, dockerImage);
+    }
+
+    /**
+     * 预热当前语言的容器池
+     */
+    public void prewarmContainers() {
+        if (!enableContainerReuse) {
+            return;
+        }
+        try {
+            ensureDockerImage(false);
+            containerManager.prewarm(getLanguageIdentifier(), dockerImage);
+        } catch (Exception e) {
+            logger.warning("预热容器池失败: " + getLanguageIdentifier() + ", 错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 生成本次执行的工作区标识
+     * 长期运行容器内每次执行使用独立的子目录（/code/<workspaceId>），避免同语言并发执行互相覆盖
+     *
+     * @return 工作区标识
+     */
+    protected String createWorkspaceId() {
+        return UUID.randomUUID().toString().replace("-", "");
     }
 
     /**
@@ -125,7 +163,34 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
      * @return 执行结果
      */
     public T executeCode(String code, String expectedOutput, int executionCount) throws Exception {
-        return executeCode(code, expectedOutput, executionCount, pullImageAlways);
+        return executeCode(code, expectedOutput, executionCount, pullImageAlways, DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    /**
+     * 执行代码的模板方法（可指定时间限制）
+     *
+     * @param code            要执行的代码
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @return 执行结果
+     */
+    public T executeCode(String code, String expectedOutput, int executionCount, long timeLimitMillis) throws Exception {
+        return executeCode(code, expectedOutput, executionCount, timeLimitMillis, OutputComparator.EXACT);
+    }
+
+    /**
+     * 执行代码的模板方法（可指定时间限制和输出比对方式）
+     *
+     * @param code            要执行的代码
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @param comparator      输出比对器
+     * @return 执行结果
+     */
+    public T executeCode(String code, String expectedOutput, int executionCount, long timeLimitMillis, OutputComparator comparator) throws Exception {
+        return executeRepeatedly(code, null, null, null, expectedOutput, executionCount, pullImageAlways, timeLimitMillis, comparator);
     }
 
     /**
@@ -138,57 +203,21 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
      * @return 执行结果
      */
     public T executeCode(String code, String expectedOutput, int executionCount, boolean forcePull) throws Exception {
-        try {
-            // 创建临时目录
-            createTempDirectory();
-
-            // 将代码写入文件
-            String fileName = getCodeFileName();
-            String filePath = tempDirectory.resolve(fileName).toString();
-            writeToFile(filePath, code);
-
-            // 执行代码文件写入后的回调
-            afterCodeFileWritten(filePath);
-
-            // 确保Docker镜像存在
-            ensureDockerImage(forcePull);
-
-            // 指标收集
-            List<ExecutionMetrics> metrics = new ArrayList<>();
-            boolean outputMatched = true;
-
-            for (int i = 0; i < executionCount; i++) {
-                logger.info("开始第 " + (i + 1) + "/" + executionCount + " 次执行");
-                try {
-                    // 在容器中执行
-                    ExecutionMetrics executionMetrics = executeInContainer(fileName, expectedOutput);
-                    metrics.add(executionMetrics);
-
-                    if (!executionMetrics.isOutputMatched()) {
-                        outputMatched = false;
-                    }
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "执行第 " + (i + 1) + " 次时发生错误: " + e.getMessage(), e);
-                    metrics.add(createErrorExecutionMetrics("EXECUTION_ERROR", "执行错误: " + e.getMessage()));
-                    outputMatched = false;
-                }
-            }
-
-            // 计算平均指标
-            T result = calculateAverageMetrics(metrics);
-            result.setOutputMatched(outputMatched);
-            return result;
-
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "执行代码时发生错误", e);
-            throw new Exception("执行代码时发生错误: " + e.getMessage(), e);
-        } finally {
-            // 清理临时目录
-            cleanupTempDirectory();
+        return executeCode(code, expectedOutput, executionCount, forcePull, DEFAULT_TIME_LIMIT_MILLIS);
+    }
 
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupAllContainers();
-        }
+    /**
+     * 执行代码的模板方法（可指定是否强制拉取镜像和时间限制）
+     *
+     * @param code            要执行的代码
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param forcePull       是否强制拉取镜像
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @return 执行结果
+     */
+    public T executeCode(String code, String expectedOutput, int executionCount, boolean forcePull, long timeLimitMillis) throws Exception {
+        return executeRepeatedly(code, null, null, null, expectedOutput, executionCount, forcePull, timeLimitMillis, OutputComparator.EXACT);
     }
 
     /**
@@ -201,7 +230,36 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
      * @return 执行结果
      */
     public T executeCodeWithArgs(String code, String[] args, String expectedOutput, int executionCount) throws Exception {
-        return executeCodeWithArgs(code, args, expectedOutput, executionCount, pullImageAlways);
+        return executeCodeWithArgs(code, args, expectedOutput, executionCount, pullImageAlways, DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    /**
+     * 使用命令行参数执行代码的模板方法（可指定时间限制）
+     *
+     * @param code            要执行的代码
+     * @param args            命令行参数
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @return 执行结果
+     */
+    public T executeCodeWithArgs(String code, String[] args, String expectedOutput, int executionCount, long timeLimitMillis) throws Exception {
+        return executeCodeWithArgs(code, args, expectedOutput, executionCount, timeLimitMillis, OutputComparator.EXACT);
+    }
+
+    /**
+     * 使用命令行参数执行代码的模板方法（可指定时间限制和输出比对方式）
+     *
+     * @param code            要执行的代码
+     * @param args            命令行参数
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @param comparator      输出比对器
+     * @return 执行结果
+     */
+    public T executeCodeWithArgs(String code, String[] args, String expectedOutput, int executionCount, long timeLimitMillis, OutputComparator comparator) throws Exception {
+        return executeRepeatedly(code, args, null, null, expectedOutput, executionCount, pullImageAlways, timeLimitMillis, comparator);
     }
 
     /**
@@ -215,17 +273,157 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
      * @return 执行结果
      */
     public T executeCodeWithArgs(String code, String[] args, String expectedOutput, int executionCount, boolean forcePull) throws Exception {
+        return executeCodeWithArgs(code, args, expectedOutput, executionCount, forcePull, DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    /**
+     * 使用命令行参数执行代码的模板方法（可指定是否强制拉取镜像和时间限制）
+     *
+     * @param code            要执行的代码
+     * @param args            命令行参数
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param forcePull       是否强制拉取镜像
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @return 执行结果
+     */
+    public T executeCodeWithArgs(String code, String[] args, String expectedOutput, int executionCount, boolean forcePull, long timeLimitMillis) throws Exception {
+        return executeRepeatedly(code, args, null, null, expectedOutput, executionCount, forcePull, timeLimitMillis, OutputComparator.EXACT);
+    }
+
+    /**
+     * 通过文件读取测试用例执行代码的模板方法
+     *
+     * @param code            要执行的代码
+     * @param testCaseContent 测试用例内容
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @return 执行结果
+     */
+    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount) throws Exception {
+        return executeCodeWithTestFile(code, testCaseContent, expectedOutput, executionCount, pullImageAlways, DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    /**
+     * 通过文件读取测试用例执行代码的模板方法（可指定时间限制）
+     *
+     * @param code            要执行的代码
+     * @param testCaseContent 测试用例内容
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @return 执行结果
+     */
+    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount, long timeLimitMillis) throws Exception {
+        return executeCodeWithTestFile(code, testCaseContent, expectedOutput, executionCount, timeLimitMillis, OutputComparator.EXACT);
+    }
+
+    /**
+     * 通过文件读取测试用例执行代码的模板方法（可指定时间限制和输出比对方式）
+     *
+     * @param code            要执行的代码
+     * @param testCaseContent 测试用例内容
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @param comparator      输出比对器
+     * @return 执行结果
+     */
+    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount, long timeLimitMillis, OutputComparator comparator) throws Exception {
+        return executeRepeatedly(code, null, testCaseContent, null, expectedOutput, executionCount, pullImageAlways, timeLimitMillis, comparator);
+    }
+
+    /**
+     * 通过文件读取测试用例执行代码的模板方法（可指定是否强制拉取镜像）
+     *
+     * @param code            要执行的代码
+     * @param testCaseContent 测试用例内容
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param forcePull       是否强制拉取镜像
+     * @return 执行结果
+     */
+    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount, boolean forcePull) throws Exception {
+        return executeCodeWithTestFile(code, testCaseContent, expectedOutput, executionCount, forcePull, DEFAULT_TIME_LIMIT_MILLIS);
+    }
+
+    /**
+     * 通过文件读取测试用例执行代码的模板方法（可指定是否强制拉取镜像和时间限制）
+     *
+     * @param code            要执行的代码
+     * @param testCaseContent 测试用例内容
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param forcePull       是否强制拉取镜像
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @return 执行结果
+     */
+    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount, boolean forcePull, long timeLimitMillis) throws Exception {
+        return executeRepeatedly(code, null, testCaseContent, null, expectedOutput, executionCount, forcePull, timeLimitMillis, OutputComparator.EXACT);
+    }
+
+    /**
+     * 通过标准输入传入测试数据执行代码的模板方法
+     *
+     * @param code           要执行的代码
+     * @param stdinInput     标准输入内容
+     * @param expectedOutput 预期输出
+     * @param executionCount 执行次数
+     * @return 执行结果
+     */
+    public T executeCodeWithStdin(String code, String stdinInput, String expectedOutput, int executionCount) throws Exception {
+        return executeCodeWithStdin(code, stdinInput, expectedOutput, executionCount, DEFAULT_TIME_LIMIT_MILLIS, OutputComparator.EXACT);
+    }
+
+    /**
+     * 通过标准输入传入测试数据执行代码的模板方法（可指定时间限制和输出比对方式）
+     * 输入直接写入 exec 的标准输入流，不生成测试文件
+     *
+     * @param code            要执行的代码
+     * @param stdinInput      标准输入内容
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param timeLimitMillis 单次运行的时间限制（毫秒），超出后强制终止
+     * @param comparator      输出比对器
+     * @return 执行结果
+     */
+    public T executeCodeWithStdin(String code, String stdinInput, String expectedOutput, int executionCount, long timeLimitMillis, OutputComparator comparator) throws Exception {
+        return executeRepeatedly(code, null, null, stdinInput != null ? stdinInput : "", expectedOutput, executionCount, pullImageAlways, timeLimitMillis, comparator);
+    }
+
+    /**
+     * 将代码（和测试文件）写入独立的临时目录后重复执行指定次数
+     *
+     * @param code            要执行的代码
+     * @param args            命令行参数，可为null
+     * @param testCaseContent 测试用例内容，为null表示不使用测试文件
+     * @param stdinInput      标准输入内容，为null表示不使用标准输入
+     * @param expectedOutput  预期输出
+     * @param executionCount  执行次数
+     * @param forcePull       是否强制拉取镜像
+     * @param timeLimitMillis 单次运行的时间限制（毫秒）
+     * @param comparator      输出比对器
+     * @return 执行结果
+     */
+    private T executeRepeatedly(String code, String[] args, String testCaseContent, String stdinInput, String expectedOutput,
+                                int executionCount, boolean forcePull, long timeLimitMillis,
+                                OutputComparator comparator) throws Exception {
+        String mode = testCaseContent != null ? "(带测试文件)" : stdinInput != null ? "(标准输入)" : args != null ? "(带参数)" : "";
+        ExecutionContext context = null;
         try {
-            // 创建临时目录
-            createTempDirectory();
+            // 创建本次执行的上下文
+            context = createExecutionContext(timeLimitMillis, comparator);
+            context.setStdinInput(stdinInput);
 
-            // 将代码写入文件
+            // 代码和测试文件只保存在内存中，获取容器时直接写入容器工作区
             String fileName = getCodeFileName();
-            String filePath = tempDirectory.resolve(fileName).toString();
-            writeToFile(filePath, code);
+            addWorkspaceFile(context, fileName, code);
 
-            // 执行代码文件写入后的回调
-            afterCodeFileWritten(filePath);
+            String testFileName = null;
+            if (testCaseContent != null) {
+                testFileName = "testcase.txt";
+                addWorkspaceFile(context, testFileName, testCaseContent);
+            }
 
             // 确保Docker镜像存在
             ensureDockerImage(forcePull);
@@ -235,10 +433,10 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
             boolean outputMatched = true;
 
             for (int i = 0; i < executionCount; i++) {
-                logger.info("开始第 " + (i + 1) + "/" + executionCount + " 次执行(带参数)");
+                logger.info("开始第 " + (i + 1) + "/" + executionCount + " 次执行" + mode);
                 try {
-                    // 在容器中执行（带参数）
-                    ExecutionMetrics executionMetrics = executeInContainerWithArgs(fileName, args, expectedOutput);
+                    // 在容器中执行
+                    ExecutionMetrics executionMetrics = executeOnce(context, fileName, args, testFileName, expectedOutput);
                     metrics.add(executionMetrics);
 
                     if (!executionMetrics.isOutputMatched()) {
@@ -257,11 +455,13 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
             return result;
 
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "执行代码(带参数)时发生错误", e);
-            throw new Exception("执行代码(带参数)时发生错误: " + e.getMessage(), e);
+            logger.log(Level.SEVERE, "执行代码" + mode + "时发生错误", e);
+            throw new Exception("执行代码" + mode + "时发生错误: " + e.getMessage(), e);
         } finally {
-            // 清理临时目录
-            cleanupTempDirectory();
+            // 清理独立容器的挂载目录
+            if (context != null) {
+                cleanupTempDirectory(context.getStandaloneWorkDir());
+            }
 
             // 注释掉：不再每次执行后清理容器，提升性能
             // cleanupAllContainers();
@@ -269,86 +469,135 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
     }
 
     /**
-     * 通过文件读取测试用例执行代码的模板方法
+     * 多测试用例执行：代码只写入和准备（编译）一次，然后在同一工作区中依次运行每个测试用例
      *
-     * @param code            要执行的代码
-     * @param testCaseContent 测试用例内容
-     * @param expectedOutput  预期输出
-     * @param executionCount  执行次数
-     * @return 执行结果
+     * @param code       要执行的代码
+     * @param testInputs 测试用例列表
+     * @return 执行结果，每个测试用例对应一个执行指标
      */
-    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount) throws Exception {
-        return executeCodeWithTestFile(code, testCaseContent, expectedOutput, executionCount, pullImageAlways);
+    public T executeCodeWithTestCases(String code, List<TestInput> testInputs) throws Exception {
+        return executeCodeWithTestCases(code, testInputs, InputType.FILE, DEFAULT_TIME_LIMIT_MILLIS, OutputComparator.EXACT, null);
     }
 
     /**
-     * 通过文件读取测试用例执行代码的模板方法（可指定是否强制拉取镜像）
+     * 多测试用例执行，每个测试用例完成后立即回调
      *
      * @param code            要执行的代码
-     * @param testCaseContent 测试用例内容
-     * @param expectedOutput  预期输出
-     * @param executionCount  执行次数
-     * @param forcePull       是否强制拉取镜像
-     * @return 执行结果
+     * @param testInputs      测试用例列表
+     * @param inputType       测试输入的传递方式：FILE（测试文件）或 STDIN（标准输入）
+     * @param timeLimitMillis 题目的时间限制（毫秒），测试用例设置了覆盖值时以覆盖值为准
+     * @param comparator      题目的输出比对器
+     * @param onResult        单个测试用例完成时的回调，可为null
+     * @return 执行结果，每个测试用例对应一个执行指标
      */
-    public T executeCodeWithTestFile(String code, String testCaseContent, String expectedOutput, int executionCount, boolean forcePull) throws Exception {
+    public T executeCodeWithTestCases(String code, List<TestInput> testInputs, InputType inputType, long timeLimitMillis,
+                                      OutputComparator comparator, Consumer<ExecutionMetrics> onResult) throws Exception {
+        if (inputType != InputType.FILE && inputType != InputType.STDIN) {
+            throw new IllegalArgumentException("多测试用例执行只支持 FILE 和 STDIN 输入方式: " + inputType);
+        }
+        boolean viaStdin = inputType == InputType.STDIN;
+        ExecutionContext context = null;
         try {
-            // 创建临时目录
-            createTempDirectory();
+            // 创建本次执行的上下文
+            context = createExecutionContext(timeLimitMillis, comparator);
 
-            // 将代码写入文件
+            // 代码和测试文件只保存在内存中，获取容器时一次性写入容器工作区（标准输入方式不写测试文件）
             String fileName = getCodeFileName();
-            String filePath = tempDirectory.resolve(fileName).toString();
-            writeToFile(filePath, code);
-
-            // 执行代码文件写入后的回调
-            afterCodeFileWritten(filePath);
-
-            // 写入测试用例文件
-            String testCaseFilePath = tempDirectory.resolve("testcase.txt").toString();
-            writeToFile(testCaseFilePath, testCaseContent);
-
-            // 执行测试文件写入后的回调
-            afterTestFileWritten(testCaseFilePath);
+            addWorkspaceFile(context, fileName, code);
+
+            List<String> testFileNames = new ArrayList<>();
+            for (int i = 0; i < testInputs.size() && !viaStdin; i++) {
+                String testFileName = "testcase-" + (i + 1) + ".txt";
+                TestInput testInput = testInputs.get(i);
+                addWorkspaceFile(context, testFileName, testInput.getInput() != null ? testInput.getInput() : "");
+                testFileNames.add(testFileName);
+            }
 
             // 确保Docker镜像存在
-            ensureDockerImage(forcePull);
+            ensureDockerImage(pullImageAlways);
 
-            // 指标收集
             List<ExecutionMetrics> metrics = new ArrayList<>();
             boolean outputMatched = true;
 
-            for (int i = 0; i < executionCount; i++) {
-                logger.info("开始第 " + (i + 1) + "/" + executionCount + " 次执行(带测试文件)");
-                try {
-                    // 在容器中执行（带测试文件）
-                    ExecutionMetrics executionMetrics = executeInContainerWithTestFile(fileName, "testcase.txt", expectedOutput);
-                    metrics.add(executionMetrics);
+            try {
+                acquireContainer(context);
 
-                    if (!executionMetrics.isOutputMatched()) {
+                // 准备（编译）一次，失败时每个测试用例都返回同一个错误
+                ExecutionMetrics prepareError = prepareInContainer(context, fileName);
+
+                for (int i = 0; i < testInputs.size(); i++) {
+                    ExecutionMetrics caseMetrics;
+                    if (prepareError != null) {
+                        caseMetrics = prepareError;
+                    } else {
+                        logger.info("开始执行第 " + (i + 1) + "/" + testInputs.size() + " 个测试用例");
+                        TestInput testInput = testInputs.get(i);
+                        context.setTimeLimitMillis(testInput.getTimeLimitOverride() != null ? testInput.getTimeLimitOverride() : timeLimitMillis);
+                        if (viaStdin) {
+                            context.setStdinInput(testInput.getInput() != null ? testInput.getInput() : "");
+                        }
+                        try {
+                            caseMetrics = runInContainer(context, fileName, null, viaStdin ? null : testFileNames.get(i), testInput.getExpectedOutput());
+                        } catch (Exception e) {
+                            logger.log(Level.SEVERE, "执行第 " + (i + 1) + " 个测试用例时发生错误: " + e.getMessage(), e);
+                            caseMetrics = createErrorExecutionMetrics("EXECUTION_ERROR", "执行错误: " + e.getMessage());
+                        }
+                    }
+
+                    metrics.add(caseMetrics);
+                    if (!caseMetrics.isOutputMatched()) {
                         outputMatched = false;
                     }
-                } catch (Exception e) {
-                    logger.log(Level.SEVERE, "执行第 " + (i + 1) + " 次时发生错误: " + e.getMessage(), e);
-                    metrics.add(createErrorExecutionMetrics("EXECUTION_ERROR", "执行错误: " + e.getMessage()));
-                    outputMatched = false;
+                    if (onResult != null) {
+                        onResult.accept(caseMetrics);
+                    }
                 }
+            } finally {
+                releaseContainer(context);
             }
 
-            // 计算平均指标
             T result = calculateAverageMetrics(metrics);
             result.setOutputMatched(outputMatched);
             return result;
 
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "执行代码(带测试文件)时发生错误", e);
-            throw new Exception("执行代码(带测试文件)时发生错误: " + e.getMessage(), e);
+            logger.log(Level.SEVERE, "执行多测试用例代码时发生错误", e);
+            throw new Exception("执行多测试用例代码时发生错误: " + e.getMessage(), e);
         } finally {
-            // 清理临时目录
-            cleanupTempDirectory();
+            // 清理独立容器的挂载目录
+            if (context != null) {
+                cleanupTempDirectory(context.getStandaloneWorkDir());
+            }
+        }
+    }
 
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupAllContainers();
+    /**
+     * 获取容器、准备并运行一次，结束后释放容器
+     */
+    private ExecutionMetrics executeOnce(ExecutionContext context, String codeFileName, String[] args, String testFileName, String expectedOutput) throws Exception {
+        // 每次运行使用新的子工作区：上一次运行的工作区交给清理队列后台删除，
+        // 容器池按后进先出借出，下一次运行通常拿到同一个容器，继续使用原目录会与删除操作交错
+        context.renewExecutionId(createWorkspaceId());
+        try {
+            // 获取容器（优先使用长期运行容器）
+            acquireContainer(context);
+
+            // 未命中编译缓存时先单独编译，编译产物在被测程序运行之前写入缓存：
+            // 运行之后工作区中的文件可能已被被测程序改写，不能再作为缓存内容
+            List<String> compileCommand = getCompileCommand(context, codeFileName);
+            if (compileCommand != null) {
+                ExecutionMetrics compileError = compileInContainer(context, codeFileName, compileCommand);
+                if (compileError != null) {
+                    return compileError;
+                }
+            }
+
+            // 运行和清理工作区合并到启动脚本的一次 exec 中
+            context.setCleanupAfterRun(true);
+            return runInContainer(context, codeFileName, args, testFileName, expectedOutput);
+        } finally {
+            // 清理工作区并归还容器
+            releaseContainer(context);
         }
     }
 
@@ -368,7 +617,8 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
                 boolean imageExists = false;
                 try {
                     // 通过镜像ID检查镜像是否存在，更准确
-                    imageExists = !dockerClient.inspectImageCmd(dockerImage).exec().getId().isEmpty();
+                    imageId = dockerClient.inspectImageCmd(dockerImage).exec().getId();
+                    imageExists = !imageId.isEmpty();
                     logger.info("镜像检查结果: " + (imageExists ? "存在" : "不存在"));
                 } catch (Exception e) {
                     logger.info("镜像不存在或无法获取信息: " + e.getMessage());
@@ -386,7 +636,7 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
                     logger.info("Docker镜像拉取完成");
 
                     // 验证镜像是否成功拉取
-                    String imageId = dockerClient.inspectImageCmd(dockerImage).exec().getId();
+                    imageId = dockerClient.inspectImageCmd(dockerImage).exec().getId();
                     logger.info("成功拉取镜像，ID: " + imageId);
                 } catch (Exception e) {
                     logger.log(Level.SEVERE, "拉取镜像失败: " + e.getMessage(), e);
@@ -399,84 +649,286 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
         }
     }
 
+    /**
+     * 当前镜像的ID（如 sha256:...），尚未检查过镜像时返回镜像名称
+     * 同一标签重新拉取后ID会变化，可用于区分不同版本的编译器
+     */
+    protected String getImageId() {
+        String current = imageId;
+        return current != null && !current.isEmpty() ? current : dockerImage;
+    }
+
+    /**
+     * 设置单次命令输出的上限
+     *
+     * @param limitBytes 上限（字节），小于等于0表示不限制
+     */
+    public static void configureOutputLimit(long limitBytes) {
+        outputLimitBytes = limitBytes;
+    }
+
     /**
      * 执行命令并获取其输出
      */
     protected CompletedExecution executeCommand(String execId) throws InterruptedException {
-        StringBuilder output = new StringBuilder();
+        return executeCommand(execId, EXECUTION_TIMEOUT * 1000L, null, null, true);
+    }
+
+    /**
+     * 执行Docker命令并获取结果
+     *
+     * @param execId        命令ID
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @param stdin         写入命令标准输入的内容，为null表示不附加标准输入（创建命令时需 withAttachStdin(true)）
+     * @param matcher       标准输出的流式比对会话，为null表示不比对；发现不一致时立即停止接收
+     * @param inspectExit   是否通过 inspect 获取退出码；调用方能从其他途径得到退出码时可省去这次 API 调用
+     * @return 执行结果，超时时 isTimedOut() 为 true，未获取退出码时为 -1
+     */
+    protected CompletedExecution executeCommand(String execId, long timeoutMillis, byte[] stdin, OutputMatcher matcher,
+                                                boolean inspectExit) throws InterruptedException {
+        OutputSink sink = new OutputSink(outputLimitBytes);
+        StringBuilder notice = new StringBuilder();
         final int[] exitCode = {-1};
+        boolean completed = false;
 
         ResultCallback.Adapter<Frame> callback = new ResultCallback.Adapter<Frame>() {
             @Override
             public void onNext(Frame frame) {
-                if (frame != null && frame.getPayload() != null) {
-                    output.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                if (frame == null || frame.getPayload() == null) {
+                    return;
+                }
+                // 输出超过上限，或标准输出已与预期不一致时，断开输出流，不再接收后续内容
+                boolean keepReading = sink.write(frame.getPayload());
+                if (keepReading && matcher != null && frame.getStreamType() != StreamType.STDERR) {
+                    keepReading = matcher.feed(frame.getPayload());
+                }
+                if (!keepReading) {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        logger.log(Level.FINE, "关闭输出流失败: " + e.getMessage());
+                    }
                 }
             }
 
             @Override
             public void onError(Throwable throwable) {
-                logger.log(Level.WARNING, "命令执行过程中出错: " + throwable.getMessage());
+                if (!sink.isLimitExceeded()) {
+                    logger.log(Level.WARNING, "命令执行过程中出错: " + throwable.getMessage());
+                }
             }
         };
 
         try {
-            dockerClient.execStartCmd(execId).exec(callback).awaitCompletion(EXECUTION_TIMEOUT, TimeUnit.SECONDS);
+            ExecStartCmd startCmd = dockerClient.execStartCmd(execId);
+            if (stdin != null) {
+                startCmd.withStdIn(new ByteArrayInputStream(stdin));
+            }
+            completed = startCmd.exec(callback).awaitCompletion(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (!completed) {
+                logger.warning("命令执行超时: " + execId);
+                notice.append("\n执行超时或被中断。");
+            }
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.log(Level.WARNING, "命令执行超时或失败: " + e.getMessage());
-            output.append("\n执行超时或被中断。");
+            notice.append("\n执行超时或被中断。");
         }
 
+        Termination termination = completed ? Termination.EXITED : Termination.TIMED_OUT;
+        if (sink.isLimitExceeded()) {
+            termination = Termination.OUTPUT_LIMIT_EXCEEDED;
+            logger.warning("命令输出超过上限 " + outputLimitBytes + " 字节: " + execId);
+            notice.append("\n输出超过上限，已停止接收。");
+        } else if (matcher != null && matcher.isMismatched()) {
+            termination = Termination.WRONG_ANSWER;
+            logger.info("输出与预期不一致，提前停止: " + execId);
+        } else if (inspectExit) {
+            exitCode[0] = inspectExitCode(execId);
+
+            // 如果exitCode仍为-1，命令可能已超时
+            if (exitCode[0] == -1) {
+                notice.append("\n操作在时间限制内未正常完成。");
+            }
+        }
+
+        boolean outputMatched = termination == Termination.EXITED && matcher != null && matcher.finish();
+        return new CompletedExecution(exitCode[0], sink.getText() + notice, 0, 0, -1, termination, outputMatched);
+    }
+
+    /**
+     * 获取已结束命令的退出码，无法获取时返回 -1
+     */
+    protected int inspectExitCode(String execId) {
         try {
-            exitCode[0] = dockerClient.inspectExecCmd(execId).exec().getExitCode();
+            Long code = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+            if (code != null) {
+                return code.intValue();
+            }
         } catch (Exception e) {
             logger.log(Level.WARNING, "获取退出代码失败: " + e.getMessage());
         }
+        return -1;
+    }
+
+    /**
+     * 创建单次执行的上下文
+     */
+    protected ExecutionContext createExecutionContext(long timeLimitMillis, OutputComparator comparator) {
+        return new ExecutionContext(createWorkspaceId(), timeLimitMillis > 0 ? timeLimitMillis : DEFAULT_TIME_LIMIT_MILLIS, MEMORY_LIMIT,
+                comparator != null ? comparator : OutputComparator.EXACT);
+    }
+
+    /**
+     * 为本次执行获取容器
+     * 启用容器复用时从容器池借出容器并把代码写入独立的子工作区；
+     * 容器池不可用或禁用复用时，创建一个挂载独立目录的容器
+     *
+     * @param context 执行上下文，获取成功后设置容器ID、工作目录和容器租约
+     */
+    protected void acquireContainer(ExecutionContext context) throws Exception {
+        // 尝试使用长期运行容器
+        if (enableContainerReuse) {
+            ContainerLease lease = null;
+            try {
+                lease = borrowLongRunningContainer(getLanguageIdentifier());
+                if (lease != null) {
+                    Path hostWorkDir = lease.getContainerInfo().getHostWorkDir().resolve(context.getExecutionId());
+                    writeWorkspace(context, hostWorkDir);
+                    String workDir = WORK_DIR + "/" + context.getExecutionId();
+                    context.setLease(lease);
+                    context.setContainerId(lease.getContainerId());
+                    context.setWorkDir(workDir);
+                    context.setHostWorkDir(hostWorkDir);
+                    logger.info("使用长期运行容器: " + lease.getContainerId() + "，工作区: " + workDir);
+                    return;
+                }
+            } catch (Exception e) {
+                logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
+                if (lease != null) {
+                    lease.close();
+                }
+            }
+        }
+
+        // 回退到传统方式创建新容器
+        logger.info("创建独立Docker容器");
+
+        // 同一次执行的多个独立容器共用一个挂载目录，代码只写入一次
+        if (context.getStandaloneWorkDir() == null) {
+            Path standaloneWorkDir = containerManager.createHostWorkDir(getTempDirPrefix());
+            context.setStandaloneWorkDir(standaloneWorkDir);
+            writeWorkspace(context, standaloneWorkDir);
+        }
+
+        // 准备卷绑定用于代码目录
+        Volume codeVolume = new Volume(WORK_DIR);
+        Bind bind = new Bind(context.getStandaloneWorkDir().toAbsolutePath().toString(), codeVolume);
+
+        // 创建容器
+        HostConfig hostConfig = HostConfig.newHostConfig()
+                .withBinds(bind)
+                .withMemory(context.getMemoryLimit())
+                .withCpuCount((long) CPU_LIMIT)
+                .withNetworkMode("none"); // 隔离网络
+
+        CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
+                .withHostConfig(hostConfig)
+                .withWorkingDir(WORK_DIR)
+                .withCmd(getKeepAliveCommand())
+                .exec();
+
+        String containerId = container.getId();
+        createdContainers.add(containerId);
+        context.setContainerId(containerId);
+        context.setWorkDir(WORK_DIR);
+        context.setHostWorkDir(context.getStandaloneWorkDir());
+        logger.info("容器创建成功: " + containerId);
+
+        // 启动容器，探测到容器内可以执行命令即视为就绪
+        dockerClient.startContainerCmd(containerId).exec();
+        containerManager.awaitContainerReady(containerId, getContainerStartupTimeoutMillis());
+
+        logger.info("容器已启动并正在运行");
+    }
+
+    /**
+     * 释放本次执行占用的容器
+     * 长期运行容器立即归还容器池，子工作区交给清理队列在后台删除；独立容器在应用结束时统一清理
+     *
+     * @param context 执行上下文
+     */
+    protected void releaseContainer(ExecutionContext context) {
+        if (!context.isUsingLongRunningContainer()) {
+            // 注释掉：不再每次执行后清理容器，提升性能
+            // cleanupContainer(context.getContainerId());
+            return;
+        }
 
-        // 如果exitCode仍为-1，命令可能已超时
-        if (exitCode[0] == -1) {
-            output.append("\n操作在时间限制内未正常完成。");
+        try {
+            if (context.isWorkspaceRemoved()) {
+                // 启动脚本已删除工作区
+                return;
+            }
+
+            // 子工作区只属于这一次运行（同一上下文再次运行时换用新的工作区），删除放到后台
+            CleanupQueue.getInstance().submitWorkspace(context.getContainerId(), WORK_DIR + "/" + context.getExecutionId());
+        } catch (Exception e) {
+            logger.warning("提交工作区清理任务失败: " + e.getMessage());
+        } finally {
+            // 归还容器到容器池
+            context.getLease().close();
+            context.setLease(null);
         }
+    }
 
-        return new CompletedExecution(exitCode[0], output.toString());
+    /**
+     * 独立容器保持运行的命令
+     */
+    protected String[] getKeepAliveCommand() {
+        return new String[]{"tail", "-f", "/dev/null"};
     }
 
     /**
-     * 创建临时目录
+     * 等待独立容器就绪的最长时间（毫秒）
      */
-    protected void createTempDirectory() throws IOException {
-        tempDirectory = Files.createTempDirectory(getTempDirPrefix());
-        logger.info("创建临时目录: " + tempDirectory);
+    protected long getContainerStartupTimeoutMillis() {
+        return CONTAINER_STARTUP_TIMEOUT * 1000L;
     }
 
     /**
-     * 将内容写入文件
+     * 把文件内容（UTF-8）加入本次执行的工作区
      */
-    protected void writeToFile(String filePath, String content) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(content);
-        }
-        logger.info("代码已写入文件: " + filePath);
+    protected void addWorkspaceFile(ExecutionContext context, String fileName, String content) {
+        context.addWorkspaceFile(fileName, content.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * 清理临时目录
+     * 把内存中的工作区文件写入宿主机上的挂载目录，并执行文件写入后的回调
+     *
+     * @param context 执行上下文
+     * @param hostDir 宿主机目录（容器挂载目录或其中的子工作区）
      */
-    protected void cleanupTempDirectory() {
-        if (tempDirectory != null) {
-            try {
-                Files.walk(tempDirectory).sorted((a, b) -> b.compareTo(a)) // 反序以先删除子文件
-                        .map(Path::toFile).forEach(file -> {
-                            if (!file.delete()) {
-                                logger.warning("删除文件失败: " + file);
-                            }
-                        });
-                Files.deleteIfExists(tempDirectory);
-                logger.info("清理临时目录: " + tempDirectory);
-            } catch (IOException e) {
-                logger.log(Level.WARNING, "清理临时目录时出错: " + e.getMessage());
+    private void writeWorkspace(ExecutionContext context, Path hostDir) throws Exception {
+        Files.createDirectories(hostDir);
+        for (Map.Entry<String, byte[]> file : context.getWorkspaceFiles().entrySet()) {
+            Path target = hostDir.resolve(file.getKey());
+            Files.write(target, file.getValue());
+            if (file.getKey().equals(getCodeFileName())) {
+                afterCodeFileWritten(target.toString());
+            } else {
+                afterTestFileWritten(target.toString());
             }
         }
+        logger.info("代码已写入工作区: " + hostDir);
+    }
+
+    /**
+     * 清理临时目录，由清理队列在后台删除
+     */
+    protected void cleanupTempDirectory(Path tempDirectory) {
+        CleanupQueue.getInstance().submitDirectory(tempDirectory);
     }
 
     /**
@@ -525,7 +977,7 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
     }
 
     /**
-     * 并行清理所有由此执行器创建的容器
+     * 并行清理所有由此执行器创建的容器（提交到清理队列，不等待完成）
      */
     protected void cleanupAllContainers() {
         logger.info("开始并行清理所有容器，当前跟踪容器数量: " + createdContainers.size());
@@ -543,25 +995,25 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
     }
 
     /**
-     * 并行清理容器列表
+     * 把容器列表交给清理队列并行销毁，不等待清理完成
+     *
+     * @return 全部容器处理完成时结束的 future，汇总结果已记录在日志中
      */
-    private void cleanupContainersParallel(List<String> containerIds) {
+    private CompletableFuture<Void> cleanupContainersParallel(List<String> containerIds) {
         if (containerIds.isEmpty()) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         AtomicInteger successCount = new AtomicInteger(0);
         AtomicInteger failCount = new AtomicInteger(0);
-        CountDownLatch latch = new CountDownLatch(containerIds.size());
 
-        logger.info("启动并行清理，容器数量: " + containerIds.size());
+        logger.info("提交并行清理，容器数量: " + containerIds.size());
         long startTime = System.currentTimeMillis();
 
-        // 为每个容器创建清理任务
-        List<CompletableFuture<Void>> cleanupTasks = new ArrayList<>();
-
-        for (String containerId : containerIds) {
-            CompletableFuture<Void> task = CompletableFuture.runAsync(() -> {
+        CompletableFuture<?>[] cleanupTasks = new CompletableFuture<?>[containerIds.size()];
+        for (int i = 0; i < cleanupTasks.length; i++) {
+            String containerId = containerIds.get(i);
+            cleanupTasks[i] = CleanupQueue.getInstance().submit(() -> {
                 try {
                     if (cleanupSingleContainer(containerId)) {
                         successCount.incrementAndGet();
@@ -571,31 +1023,14 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
                 } catch (Exception e) {
                     logger.warning("并行清理容器异常: " + containerId + ", 错误: " + e.getMessage());
                     failCount.incrementAndGet();
-                } finally {
-                    latch.countDown();
                 }
-            }, CLEANUP_EXECUTOR);
-
-            cleanupTasks.add(task);
+            });
         }
 
-        try {
-            // 等待所有清理任务完成，最多等待60秒
-            boolean completed = latch.await(60, TimeUnit.SECONDS);
-
-            if (!completed) {
-                logger.warning("并行清理超时，可能还有容器未完成清理");
-                // 取消未完成的任务
-                cleanupTasks.forEach(task -> task.cancel(true));
-            }
-
+        return CompletableFuture.allOf(cleanupTasks).whenComplete((ignored, error) -> {
             long duration = System.currentTimeMillis() - startTime;
             logger.info("并行清理完成 - 耗时: " + duration + "ms, 成功: " + successCount.get() + ", 失败: " + failCount.get());
-
-        } catch (InterruptedException e) {
-            logger.warning("并行清理被中断: " + e.getMessage());
-            Thread.currentThread().interrupt();
-        }
+        });
     }
 
     /**
@@ -661,193 +1096,314 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
 
     /**
      * 清理所有资源，包括创建的临时文件和容器
-     * 应当在应用关闭时调用此方法
+     * 应当在应用关闭时调用此方法；容器交给清理队列销毁，调用方需要等待时使用返回的 future
+     *
+     * @return 全部容器处理完成时结束的 future
      */
-    public void cleanup() {
-        try {
-            logger.info("开始清理所有Docker容器资源，当前跟踪容器数量: " + createdContainers.size());
-
-            if (createdContainers.isEmpty()) {
-                logger.info("没有需要清理的容器");
-                return;
-            }
-
-            // 使用并行清理
-            List<String> containersToClean = new ArrayList<>(createdContainers);
-            cleanupContainersParallel(containersToClean);
-
-            // 关闭Docker客户端
-            if (dockerClient != null) {
-                try {
-                    dockerClient.close();
-                    logger.info("Docker客户端已关闭");
-                } catch (Exception e) {
-                    logger.warning("关闭Docker客户端时出错: " + e.getMessage());
-                }
-            }
+    public CompletableFuture<Void> cleanup() {
+        logger.info("开始清理所有Docker容器资源，当前跟踪容器数量: " + createdContainers.size());
 
-            logger.info("Docker资源清理完成");
-        } catch (Exception e) {
-            logger.severe("清理资源时出错: " + e.getMessage());
-            e.printStackTrace();
+        if (createdContainers.isEmpty()) {
+            logger.info("没有需要清理的容器");
+            return CompletableFuture.completedFuture(null);
         }
+
+        // 使用并行清理
+        List<String> containersToClean = new ArrayList<>(createdContainers);
+        return cleanupContainersParallel(containersToClean);
     }
 
     /**
-     * 注册执行器实例并添加全局关闭钩子
+     * 在容器中运行被测程序并测量资源使用
+     * 命令由 {@link ProgramLauncher} 包装，在一次 exec 中完成上下文中待执行的编译、运行和工作区清理，
+     * 退出码、峰值内存、CPU 时间和墙钟时间从结果文件读取；
+     * 子类的常驻语言运行时（如预热的 JVM）或池容器内的执行代理可用时交给它们执行，都不可用时回退到 docker exec；
+     * 上下文中设置了标准输入内容时通过附加的标准输入流传给程序；
+     * 提供预期输出时按上下文中的比对器边运行边比对标准输出，第一次不一致即终止程序
+     *
+     * @param context        执行上下文（需已获取容器）
+     * @param command        被测程序命令
+     * @param expectedOutput 预期输出，为null表示不比对
+     * @return 执行结果（包含资源使用和比对结果）
      */
-    private synchronized void registerExecutorInstance() {
-        ALL_EXECUTORS.add(this);
+    protected CompletedExecution executeProgram(ExecutionContext context, List<String> command, String expectedOutput) throws InterruptedException {
+        long timeLimitMillis = context.getTimeLimitMillis();
+        if (context.getLease() != null) {
+            context.getLease().recordExecution();
+        }
+        // 编译只随第一次运行执行
+        List<String> compileCommand = context.getCompileCommand();
+        context.setCompileCommand(null);
+
+        // 由启动脚本删除工作区时，结果文件放在工作区之外
+        boolean cleanup = context.isCleanupAfterRun() && context.isUsingLongRunningContainer();
+        String resultName = cleanup ? "." + context.getExecutionId() + ProgramLauncher.RESULT_FILE_NAME : ProgramLauncher.RESULT_FILE_NAME;
+        String resultFile = (cleanup ? WORK_DIR : context.getWorkDir()) + "/" + resultName;
+        Path hostResultFile = (cleanup ? context.getHostWorkDir().getParent() : context.getHostWorkDir()).resolve(resultName);
+
+        byte[] stdin = context.getStdinInput() != null ? context.getStdinInput().getBytes(StandardCharsets.UTF_8) : null;
+        String[] launchCommand = ProgramLauncher.wrap(command, resultFile, timeLimitMillis, stdin != null ? stdin.length : -1,
+                cleanup ? context.getWorkDir() : null, compileCommand, context.getMemoryLimit());
+
+        OutputMatcher matcher = expectedOutput != null ? context.getOutputComparator().start(expectedOutput) : null;
+        long waitMillis = timeLimitMillis + KILL_GRACE_MILLIS + (compileCommand != null ? EXECUTION_TIMEOUT * 1000L : 0);
+        // 多保留一个字节，用于判断输出是否超过上限
+        long jobOutputLimit = outputLimitBytes > 0 ? outputLimitBytes + 1 : 0;
+        String cleanupDir = cleanup ? context.getWorkDir() : null;
+        RunnerAgent.Job job = submitToRuntime(context, command, compileCommand, resultFile, cleanupDir, stdin, jobOutputLimit);
+        if (job == null) {
+            job = submitToAgent(context, launchCommand, stdin, jobOutputLimit);
+        }
 
-        // 只添加一次全局关闭钩子
-        if (!shutdownHookAdded) {
-            addGlobalShutdownHook();
-            shutdownHookAdded = true;
+        String execId = null;
+        CompletedExecution exec;
+        if (job != null) {
+            exec = collectJob(context, job, waitMillis, matcher, hostResultFile);
+        } else {
+            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(context.getContainerId())
+                    .withCmd(launchCommand)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .withAttachStdin(stdin != null)
+                    .exec();
+            execId = execCmd.getId();
+            exec = executeCommand(execId, waitMillis, stdin, matcher, false);
         }
+        switch (exec.getTermination()) {
+            case OUTPUT_LIMIT_EXCEEDED:
+            case WRONG_ANSWER:
+                // 编译失败优先于输出判定：编译信息写入标准错误，不会造成不一致，但可能超过输出上限
+                if (compileCommand != null && ProgramLauncher.isCompileFailed(hostResultFile)) {
+                    ProgramLauncher.Result compileResult = ProgramLauncher.readResult(hostResultFile);
+                    return new CompletedExecution(compileResult.getExitCode(), exec.getOutput(), 0, 0, -1,
+                            Termination.COMPILATION_FAILED, false);
+                }
+                // 提前停止接收时被测程序仍在运行：只终止它的进程组，脚本随后照常结束并清理工作区，不再读取资源测量结果；
+                // 常驻进程派发的任务此时已经结束
+                if (execId != null) {
+                    if (killProgramGroup(context, hostResultFile)) {
+                        context.setWorkspaceRemoved(ProgramLauncher.awaitResult(hostResultFile, KILL_GRACE_MILLIS).isCleaned());
+                    } else {
+                        killRunawayProcesses(context);
+                    }
+                }
+                ProgramLauncher.discard(hostResultFile);
+                return new CompletedExecution(-1, exec.getOutput(), 0, 0, -1, exec.getTermination(), false);
+            case TIMED_OUT:
+                // 容器内看门狗没能按时终止程序，从宿主机强制终止
+                killRunawayProcesses(context);
+                ProgramLauncher.discard(hostResultFile);
+                return new CompletedExecution(-1, exec.getOutput(), 0, 0, timeLimitMillis, Termination.TIMED_OUT, false);
+            default:
+                break;
+        }
+
+        ProgramLauncher.Result result = ProgramLauncher.readResult(hostResultFile);
+        context.setWorkspaceRemoved(result.isCleaned());
+        int exitCode = result.getExitCode() >= 0 || execId == null ? result.getExitCode() : inspectExitCode(execId);
+        if (result.isCompileFailed()) {
+            return new CompletedExecution(exitCode, exec.getOutput(), 0, 0, -1, Termination.COMPILATION_FAILED, false);
+        }
+        context.setCompiled(compileCommand != null);
+
+        long wallTime = result.getWallTimeMicros() >= 0 ? result.getWallTimeMicros() / 1000 : -1;
+        boolean timedOut = result.isTimedOut() || wallTime > timeLimitMillis;
+        Termination termination = Termination.EXITED;
+        if (timedOut) {
+            termination = Termination.TIMED_OUT;
+        } else if (result.isMemoryLimitExceeded(context.getMemoryLimit())) {
+            termination = Termination.MEMORY_LIMIT_EXCEEDED;
+        }
+        return new CompletedExecution(exitCode, exec.getOutput(), result.getPeakMemory(),
+                result.getCpuTimeMicros() / 1000, wallTime,
+                termination, termination == Termination.EXITED && exec.isOutputMatched());
     }
 
     /**
-     * 添加全局JVM关闭钩子，确保在应用意外退出时也能清理所有容器
+     * 把本次运行派发给容器内常驻的语言运行时（如预热的 JVM），默认不支持
+     * 任务文件的格式由运行时自行约定；标准输出、标准错误写入任务的输出文件，
+     * 结构化结果按 {@link ProgramLauncher} 的格式写入 resultFile，需要时先编译、运行后删除 cleanupDir
+     *
+     * @param context        执行上下文（已获取容器）
+     * @param command        被测程序命令
+     * @param compileCommand 运行前的编译命令，为null表示不编译
+     * @param resultFile     容器内结果文件路径
+     * @param cleanupDir     运行结束后删除的容器内工作区，为null表示不删除
+     * @param stdin          标准输入内容，为null表示不使用标准输入
+     * @param outputLimit    标准输出和标准错误各自最多保留的字节数，0表示不限制
+     * @return 已被领取的任务；不支持或运行时未就绪时返回null，改用启动脚本运行
      */
-    private static void addGlobalShutdownHook() {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("=== JVM关闭钩子被触发，开始清理所有Docker容器 ===");
-            cleanupAllExecutors();
-        }, "DockerExecutor-Cleanup-Thread"));
+    protected RunnerAgent.Job submitToRuntime(ExecutionContext context, List<String> command, List<String> compileCommand,
+                                              String resultFile, String cleanupDir, byte[] stdin, long outputLimit) throws InterruptedException {
+        return null;
     }
 
     /**
-     * 清理所有执行器的容器
+     * 把启动命令派发给池容器内的执行代理
+     *
+     * @return 已被领取的任务；容器没有可用的代理时返回null，由调用方改用 docker exec
      */
-    private static void cleanupAllExecutors() {
-//        System.out.println("开始并行清理 " + ALL_EXECUTORS.size() + " 个执行器的容器...");
-
-        if (ALL_EXECUTORS.isEmpty()) {
-            System.out.println("没有执行器需要清理");
-            return;
+    private RunnerAgent.Job submitToAgent(ExecutionContext context, String[] launchCommand, byte[] stdin,
+                                          long outputLimit) throws InterruptedException {
+        ContainerLease lease = context.getLease();
+        if (lease == null || !lease.getContainerInfo().isRunnerAgentAvailable()) {
+            return null;
         }
 
-        long startTime = System.currentTimeMillis();
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger failCount = new AtomicInteger(0);
-
-        // 并行清理所有执行器
-        List<CompletableFuture<Void>> executorCleanupTasks = new ArrayList<>();
-
-        for (AbstractDockerExecutor<?> executor : ALL_EXECUTORS) {
-            CompletableFuture<Void> task = CompletableFuture.runAsync(() -> {
-                try {
-//                    System.out.println("清理执行器: " + executor.getClass().getSimpleName() + ", 容器数量: " + executor.createdContainers.size());
-                    executor.cleanup();
-                    successCount.incrementAndGet();
-                } catch (Exception e) {
-                    System.err.println("清理执行器失败: " + executor.getClass().getSimpleName() + ", 错误: " + e.getMessage());
-                    failCount.incrementAndGet();
-                }
-            }, CLEANUP_EXECUTOR);
-
-            executorCleanupTasks.add(task);
+        LongRunningContainerManager.ContainerInfo containerInfo = lease.getContainerInfo();
+        try {
+            RunnerAgent.Job job = RunnerAgent.submit(containerInfo.getHostAgentDir(), context.getExecutionId(),
+                    "exec " + ProgramLauncher.quote(Arrays.asList(launchCommand)) + "\n", stdin, outputLimit);
+            if (job != null) {
+                return job;
+            }
+        } catch (IOException e) {
+            logger.warning("派发代理任务失败: " + e.getMessage());
         }
+        containerInfo.setRunnerAgentAvailable(false);
+        logger.warning("执行代理不可用，回退到 docker exec: " + context.getContainerId());
+        return null;
+    }
 
+    /**
+     * 等待常驻进程派发的任务结束并收集输出
+     * 运行期间每隔 {@value #OUTPUT_POLL_INTERVAL_MILLIS}ms 读取新写出的标准输出交给比对器，发现第一个不一致时
+     * 终止被测程序的进程组（运行时写出了进程组号时），不再等待程序运行到结束；
+     * 常驻 JVM 在线程中运行被测程序，没有可单独终止的进程组，只能等它结束后判定为答案错误。
+     * 输出已按上限截断后写入挂载目录，结束后统一做上限检查，结果与 {@link #executeCommand} 一致
+     */
+    private CompletedExecution collectJob(ExecutionContext context, RunnerAgent.Job job, long waitMillis, OutputMatcher matcher,
+                                          Path hostResultFile) throws InterruptedException {
         try {
-            // 等待所有执行器清理完成
-            CompletableFuture<Void> allTasks = CompletableFuture.allOf(executorCleanupTasks.toArray(new CompletableFuture[0]));
-
-            // 最多等待120秒
-            allTasks.get(120, TimeUnit.SECONDS);
-
-            long duration = System.currentTimeMillis() - startTime;
-            System.out.println("=== 所有Docker容器清理完成 ===");
-            System.out.println("清理统计 - 耗时: " + duration + "ms, 成功执行器: " + successCount.get() + ", 失败执行器: " + failCount.get());
+            long deadline = System.currentTimeMillis() + waitMillis;
+            boolean done = false;
+            boolean matched = true;
+            while (!done && matched) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                done = job.await(matcher != null ? Math.min(remaining, OUTPUT_POLL_INTERVAL_MILLIS) : remaining);
+                if (matcher != null) {
+                    matched = matcher.feed(job.readNewStdout());
+                }
+            }
+            if (!matched && !done) {
+                logger.info("输出与预期不一致，提前终止任务: " + job.getId());
+                done = stopJob(context, job, deadline, hostResultFile);
+            }
+            if (!done) {
+                logger.warning("任务执行超时: " + job.getId());
+                return new CompletedExecution(-1, "\n执行超时或被中断。", 0, 0, -1, Termination.TIMED_OUT, false);
+            }
 
-        } catch (Exception e) {
-            System.err.println("执行器并行清理异常: " + e.getMessage());
+            OutputSink sink = new OutputSink(outputLimitBytes);
+            boolean withinLimit = sink.write(job.readStdout()) && sink.write(job.readStderr());
+            if (!withinLimit) {
+                logger.warning("命令输出超过上限 " + outputLimitBytes + " 字节: " + job.getId());
+                return new CompletedExecution(-1, sink.getText() + "\n输出超过上限，已停止接收。", 0, 0, -1, Termination.OUTPUT_LIMIT_EXCEEDED, false);
+            }
+            if (!matched) {
+                logger.info("输出与预期不一致: " + job.getId());
+                return new CompletedExecution(-1, sink.getText(), 0, 0, -1, Termination.WRONG_ANSWER, false);
+            }
+            return new CompletedExecution(-1, sink.getText(), 0, 0, -1, Termination.EXITED, matcher != null && matcher.finish());
+        } catch (IOException e) {
+            // 任务已经运行过，不能再通过 exec 重复运行
+            logger.warning("读取任务输出失败: " + e.getMessage());
+            return new CompletedExecution(-1, "", 0, 0, -1, Termination.EXITED, false);
         } finally {
-            // 关闭清理线程池
-            shutdownCleanupExecutor();
+            job.discard();
         }
     }
 
     /**
-     * 关闭清理线程池
+     * 提前终止常驻进程派发的任务并等待它写出完成标记
+     * 能获取进程组号时只终止被测程序，否则（常驻 JVM）等待程序自行结束，直到原定的截止时间
+     *
+     * @return 任务是否已结束
      */
-    private static void shutdownCleanupExecutor() {
-        try {
-            CLEANUP_EXECUTOR.shutdown();
-            if (!CLEANUP_EXECUTOR.awaitTermination(10, TimeUnit.SECONDS)) {
-                System.out.println("强制关闭清理线程池...");
-                CLEANUP_EXECUTOR.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            System.err.println("关闭清理线程池被中断");
-            CLEANUP_EXECUTOR.shutdownNow();
-            Thread.currentThread().interrupt();
+    private boolean stopJob(ExecutionContext context, RunnerAgent.Job job, long deadline, Path hostResultFile) throws InterruptedException {
+        if (killProgramGroup(context, hostResultFile)) {
+            return job.await(KILL_GRACE_MILLIS);
         }
+        return job.await(Math.max(0, deadline - System.currentTimeMillis()));
     }
 
     /**
-     * 收集容器内存使用情况
+     * 终止启动脚本中被测程序所在的进程组，不影响容器内的常驻进程（执行代理、常驻语言运行时）
+     *
+     * @return 是否已发出终止命令；未能获取进程组号时返回 false，由调用方改为终止全部进程
      */
-    protected AtomicLong collectContainerMemoryUsage(String containerId) {
-        AtomicLong memoryUsage = new AtomicLong(0);
+    private boolean killProgramGroup(ExecutionContext context, Path hostResultFile) throws InterruptedException {
+        long pgid = ProgramLauncher.awaitProcessGroup(hostResultFile, PROCESS_GROUP_WAIT_MILLIS);
+        if (pgid <= 0) {
+            return false;
+        }
+        logger.info("终止被测程序进程组 " + pgid + ": " + context.getContainerId());
         try {
-            final CountDownLatch latch = new CountDownLatch(1);
-            final AtomicLong maxMemory = new AtomicLong(0);
-
-            ResultCallback.Adapter<Statistics> statsCallback = new ResultCallback.Adapter<Statistics>() {
-                @Override
-                public void onNext(Statistics stats) {
-                    if (stats != null && stats.getMemoryStats() != null) {
-                        Long usage = stats.getMemoryStats().getUsage();
-                        if (usage != null) {
-                            maxMemory.set(Math.max(maxMemory.get(), usage));
-                        }
-                    }
-                    latch.countDown();
-                }
-
-                @Override
-                public void onError(Throwable throwable) {
-                    logger.log(Level.WARNING, "统计回调中出错", throwable);
-                    latch.countDown();
-                }
-            };
-
-            // 开始收集统计信息
-            dockerClient.statsCmd(containerId).exec(statsCallback);
-
-            // 等待短暂时间以收集统计信息或超时
-            if (!latch.await(3, TimeUnit.SECONDS)) {
-                logger.warning("统计信息收集超时");
-            }
-
-            // 使用收集到的内存值，或回退到基于进程的估计
-            if (maxMemory.get() > 0) {
-                memoryUsage.set(maxMemory.get());
-            } else {
-                // 替代方法来估计内存
-                try {
-                    // 从进程列表获取估计内存
-                    ExecCreateCmdResponse psCmd = dockerClient.execCreateCmd(containerId).withCmd("sh", "-c", "ps -o rss= -p 1").withAttachStdout(true).exec();
-
-                    CompletedExecution psExec = executeCommand(psCmd.getId());
-                    String psOutput = psExec.getOutput().trim();
+            ExecCreateCmdResponse killCmd = dockerClient.execCreateCmd(context.getContainerId())
+                    .withCmd("sh", "-c", "kill -9 -\"$1\" 2>/dev/null || kill -9 \"$1\" 2>/dev/null; exit 0", "sh", String.valueOf(pgid))
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            return executeCommand(killCmd.getId()).getExitCode() == 0;
+        } catch (Exception e) {
+            logger.warning("终止被测程序进程组失败: " + e.getMessage());
+            return false;
+        }
+    }
 
-                    // 解析RSS值（以KB为单位）并转换为字节
-                    try {
-                        long rssKb = Long.parseLong(psOutput.trim());
-                        memoryUsage.set(rssKb * 1024); // 将KB转换为字节
-                    } catch (NumberFormatException nfe) {
-                        logger.warning("无法解析内存使用量: " + psOutput);
-                    }
-                } catch (Exception e) {
-                    logger.warning("获取替代内存使用量失败: " + e.getMessage());
-                }
-            }
+    /**
+     * 强制终止容器内除保活进程外的所有进程，并把长期运行容器标记为损坏（归还时直接销毁）
+     * 容器内的常驻语言运行时会一并被终止，容器不能再复用
+     *
+     * @param context 执行上下文
+     */
+    private void killRunawayProcesses(ExecutionContext context) {
+        logger.warning("强制终止容器内进程: " + context.getContainerId());
+        try {
+            ExecCreateCmdResponse killCmd = dockerClient.execCreateCmd(context.getContainerId())
+                    .withCmd("kill", "-9", "-1")
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            executeCommand(killCmd.getId());
         } catch (Exception e) {
-            logger.log(Level.WARNING, "获取容器统计信息时出错: " + e.getMessage());
+            logger.warning("强制终止容器内进程失败: " + e.getMessage());
         }
-        return memoryUsage;
+        if (context.getLease() != null) {
+            context.getLease().markBroken();
+        }
+    }
+
+    /**
+     * 根据运行结果确定执行状态
+     */
+    protected String resolveStatus(CompletedExecution exec) {
+        if (exec.isOutputLimitExceeded()) {
+            return "OUTPUT_LIMIT_EXCEEDED";
+        }
+        if (exec.isTimedOut()) {
+            return "TIMEOUT_ERROR";
+        }
+        if (exec.getTermination() == Termination.MEMORY_LIMIT_EXCEEDED) {
+            return "MEMORY_LIMIT_EXCEEDED";
+        }
+        if (exec.getTermination() == Termination.WRONG_ANSWER) {
+            return "WRONG_ANSWER";
+        }
+        if (exec.getTermination() == Termination.COMPILATION_FAILED) {
+            return "COMPILATION_ERROR";
+        }
+        return exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR";
+    }
+
+    /**
+     * 本次运行的执行时间：优先使用被测程序自身的墙钟时间，未测得时退回到从 startTime 起的耗时
+     */
+    protected long resolveExecutionTime(CompletedExecution exec, long startTime) {
+        return exec.getWallTime() >= 0 ? exec.getWallTime() : System.currentTimeMillis() - startTime;
     }
 
     /**
@@ -877,11 +1433,66 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
 
     protected abstract void afterTestFileWritten(String testFilePath) throws Exception;
 
-    protected abstract ExecutionMetrics executeInContainer(String codeFileName, String expectedOutput) throws Exception;
+    /**
+     * 在已获取的容器中做运行前准备（如编译、环境检查），每个工作区只调用一次
+     * 用于多测试用例执行；单次运行的编译由 {@link #compileInContainer} 在运行前单独完成
+     *
+     * @return 准备失败时返回错误指标（如编译错误），成功返回null
+     */
+    protected abstract ExecutionMetrics prepareInContainer(ExecutionContext context, String codeFileName) throws Exception;
 
-    protected abstract ExecutionMetrics executeInContainerWithArgs(String codeFileName, String[] args, String expectedOutput) throws Exception;
+    /**
+     * 运行前需要执行的编译命令，由 {@link #compileInContainer} 在被测程序运行之前单独执行
+     * 返回null表示不需要编译（解释型语言，或已从编译缓存恢复编译产物）
+     *
+     * @param context      执行上下文（已获取容器）
+     * @param codeFileName 代码文件名
+     * @return 编译命令，不需要编译时返回null
+     */
+    protected List<String> getCompileCommand(ExecutionContext context, String codeFileName) throws Exception {
+        return null;
+    }
 
-    protected abstract ExecutionMetrics executeInContainerWithTestFile(String codeFileName, String testFileName, String expectedOutput) throws Exception;
+    /**
+     * 在已获取的容器中单独执行编译命令，成功后立即回调 {@link #afterCompiled}
+     * 此时被测程序还没有运行过，工作区中的编译产物只来自编译器
+     *
+     * @param context        执行上下文（已获取容器）
+     * @param codeFileName   代码文件名
+     * @param compileCommand 编译命令
+     * @return 编译失败时返回错误指标，成功返回null
+     */
+    protected ExecutionMetrics compileInContainer(ExecutionContext context, String codeFileName, List<String> compileCommand) throws Exception {
+        ExecCreateCmdResponse compileCmd = dockerClient.execCreateCmd(context.getContainerId())
+                .withCmd(compileCommand.toArray(new String[0]))
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec();
+        CompletedExecution compileExec = executeCommand(compileCmd.getId());
+        if (compileExec.getExitCode() != 0) {
+            logger.warning("编译失败: " + compileExec.getOutput());
+            return createErrorExecutionMetrics("COMPILATION_ERROR", compileExec.getOutput());
+        }
+        afterCompiled(context, codeFileName);
+        return null;
+    }
+
+    /**
+     * 编译成功后、被测程序运行前回调，可用于缓存编译产物
+     *
+     * @param context      执行上下文
+     * @param codeFileName 代码文件名
+     */
+    protected void afterCompiled(ExecutionContext context, String codeFileName) throws Exception {
+    }
+
+    /**
+     * 在已准备好的工作区中运行一次程序
+     *
+     * @param args         命令行参数，可为null
+     * @param testFileName 测试文件名（为null表示不使用测试文件）
+     */
+    protected abstract ExecutionMetrics runInContainer(ExecutionContext context, String codeFileName, String[] args, String testFileName, String expectedOutput) throws Exception;
 
     protected abstract ExecutionMetrics createErrorExecutionMetrics(String status, String errorMessage);
 
@@ -894,16 +1505,49 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
      */
     protected abstract String getLanguageIdentifier();
 
+    /**
+     * 命令结束的方式
+     */
+    protected enum Termination {
+        // 正常退出（退出码可能非0）
+        EXITED,
+        // 超过时间限制被强制终止
+        TIMED_OUT,
+        // 输出超过上限，停止接收并终止程序
+        OUTPUT_LIMIT_EXCEEDED,
+        // 峰值内存超过内存限制（运行中被终止，或结束后测得的进程峰值超过限制）
+        MEMORY_LIMIT_EXCEEDED,
+        // 输出与预期不一致，提前终止程序
+        WRONG_ANSWER,
+        // 启动脚本中的编译失败，没有运行被测程序
+        COMPILATION_FAILED
+    }
+
     /**
      * 命令执行完成的内部类
      */
     protected static class CompletedExecution {
         private final int exitCode;
         private final String output;
+        private final long peakMemory;
+        private final long cpuTime;
+        private final long wallTime;
+        private final Termination termination;
+        private final boolean outputMatched;
 
         public CompletedExecution(int exitCode, String output) {
+            this(exitCode, output, 0, 0, -1, Termination.EXITED, false);
+        }
+
+        public CompletedExecution(int exitCode, String output, long peakMemory, long cpuTime, long wallTime,
+                                  Termination termination, boolean outputMatched) {
             this.exitCode = exitCode;
             this.output = output;
+            this.peakMemory = peakMemory;
+            this.cpuTime = cpuTime;
+            this.wallTime = wallTime;
+            this.termination = termination;
+            this.outputMatched = outputMatched;
         }
 
         public int getExitCode() {
@@ -913,5 +1557,51 @@ public abstract class AbstractDockerExecutor<T extends ExecutionResult> {
         public String getOutput() {
             return output;
         }
+
+        /**
+         * 峰值内存（字节），仅 executeProgram 的结果有效
+         */
+        public long getPeakMemory() {
+            return peakMemory;
+        }
+
+        /**
+         * 用户态 + 内核态 CPU 时间（毫秒），仅 executeProgram 的结果有效
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        /**
+         * 被测程序的墙钟时间（毫秒），未测得时为 -1
+         */
+        public long getWallTime() {
+            return wallTime;
+        }
+
+        public Termination getTermination() {
+            return termination;
+        }
+
+        /**
+         * 是否超过时间限制（已被强制终止）
+         */
+        public boolean isTimedOut() {
+            return termination == Termination.TIMED_OUT;
+        }
+
+        /**
+         * 输出是否超过上限（已停止接收并终止程序）
+         */
+        public boolean isOutputLimitExceeded() {
+            return termination == Termination.OUTPUT_LIMIT_EXCEEDED;
+        }
+
+        /**
+         * 标准输出是否与预期输出一致，未提供预期输出时为 false
+         */
+        public boolean isOutputMatched() {
+            return outputMatched;
+        }
     }
 }
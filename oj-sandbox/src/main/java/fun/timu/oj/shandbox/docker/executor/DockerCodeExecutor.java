@@ -1,18 +1,19 @@
 package fun.timu.oj.shandbox.docker.executor;
 
-import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
-import com.github.dockerjava.api.model.Bind;
-import com.github.dockerjava.api.model.HostConfig;
-import com.github.dockerjava.api.model.Volume;
+import fun.timu.oj.shandbox.docker.cache.CompileCache;
 import fun.timu.oj.shandbox.docker.entity.ExecutionMetrics;
 import fun.timu.oj.shandbox.docker.entity.ExecutionResult;
 import fun.timu.oj.shandbox.docker.entity.JavaExecutionMetrics;
+import fun.timu.oj.shandbox.docker.pool.ContainerLease;
 import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import fun.timu.oj.shandbox.docker.pool.RunnerAgent;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Properties;
 
 /**
  * Java代码执行器
@@ -21,6 +22,15 @@ import java.util.concurrent.atomic.AtomicLong;
 public class DockerCodeExecutor extends AbstractDockerExecutor<ExecutionResult> {
     private static final String DOCKER_IMAGE = "openjdk:11";
 
+    // 编译产物缓存，跨执行次数、测试用例和相同代码的重复提交复用
+    private final CompileCache compileCache = CompileCache.getInstance();
+
+    // 池容器内常驻 JVM 的配置，所有实例共享
+    private static volatile boolean warmJvmEnabled = false;
+    private static volatile int warmJvmMaxRuns = 200;
+
+    private final WarmRuntime warmJvm = WarmRuntime.jvm(dockerClient);
+
     public DockerCodeExecutor() {
         super(DOCKER_IMAGE, DockerCodeExecutor.class.getName());
     }
@@ -29,6 +39,17 @@ public class DockerCodeExecutor extends AbstractDockerExecutor<ExecutionResult>
         super(DOCKER_IMAGE, DockerCodeExecutor.class.getName(), pullImageAlways);
     }
 
+    /**
+     * 配置池容器内的常驻 JVM
+     *
+     * @param enabled 是否启用，启用后池容器内的 Java 程序交给常驻 JVM 运行，省去每次运行的 JVM 启动
+     * @param maxRuns 每个常驻 JVM 最多运行的次数，达到后退出并由下一次运行重新启动
+     */
+    public static void configureWarmJvm(boolean enabled, int maxRuns) {
+        warmJvmEnabled = enabled;
+        warmJvmMaxRuns = Math.max(1, maxRuns);
+    }
+
     @Override
     protected String getCodeFileName() {
         return "Solution.java";
@@ -52,340 +73,199 @@ public class DockerCodeExecutor extends AbstractDockerExecutor<ExecutionResult>
         return "java";
     }
 
+    /**
+     * 编译Java代码，优先使用编译缓存，未命中时编译并缓存编译产物
+     */
     @Override
-    protected ExecutionMetrics executeInContainer(String codeFileName, String expectedOutput) throws Exception {
-        String containerId = null;
-        long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            String mainClassName = codeFileName.replace(".java", "");
-
-            // 尝试获取长期运行容器
-            LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-            
-            if (containerInfo != null) {
-                // 使用长期运行容器
-                containerId = containerInfo.getContainerId();
-                usingLongRunningContainer = true;
-                logger.info("使用长期运行容器: " + containerId);
-                
-                // 将代码文件复制到容器的工作目录
-                containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                
-            } else {
-                // 回退到传统方式创建新容器
-                logger.info("容器复用已禁用，创建新容器");
-                
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig().withBinds(bind).withMemory((long) MEMORY_LIMIT).withCpuCount((long) CPU_LIMIT).withNetworkMode("none");
-
-                logger.info("创建Docker容器");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage).withHostConfig(hostConfig).withWorkingDir(WORK_DIR)
-                        .withCmd("tail", "-f", "/dev/null").exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待容器启动完成
-                Thread.sleep(1000);
-
-                // 检查容器是否在运行
-                boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-                if (!isRunning) {
-                    throw new RuntimeException("容器未能成功启动，请检查Docker服务");
-                }
-
-                logger.info("容器已启动并正在运行");
-            }
-
-            // 编译Java文件
-            logger.info("编译Java代码: " + mainClassName + ".java");
-            ExecCreateCmdResponse compileCmd = dockerClient.execCreateCmd(containerId).withCmd("javac", mainClassName + ".java").withAttachStdout(true).withAttachStderr(true).exec();
-
-            CompletedExecution compileExec = executeCommand(compileCmd.getId());
-            if (compileExec.getExitCode() != 0) {
-                logger.severe("Java编译失败: " + compileExec.getOutput());
-                return new JavaExecutionMetrics("COMPILATION_ERROR", compileExec.getOutput(), System.currentTimeMillis() - startTime, 0, false);
-            }
-
-            logger.info("Java编译成功");
-
-            // 执行Java程序
-            logger.info("执行Java程序: " + mainClassName);
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId).withCmd("java", mainClassName).withAttachStdout(true).withAttachStderr(true).exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 收集内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new JavaExecutionMetrics(exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR", output, System.currentTimeMillis() - startTime, memoryUsage.get(), matched);
-        } finally {
-            // 如果使用长期运行容器，则清理工作目录；否则按原来方式清理容器
-            if (usingLongRunningContainer && containerId != null) {
-                try {
-                    // 清理容器内的代码文件
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -f " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录时出错: " + e.getMessage());
-                }
-            }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupContainer(containerId);
+    protected ExecutionMetrics prepareInContainer(ExecutionContext context, String codeFileName) throws Exception {
+        List<String> compileCommand = getCompileCommand(context, codeFileName);
+        if (compileCommand == null) {
+            return null;
         }
+        return compileInContainer(context, codeFileName, compileCommand);
     }
 
+    /**
+     * 编译Java代码，常驻 JVM 已就绪时在进程内编译，否则通过 docker exec 运行 javac；
+     * 编译成功后在运行被测程序之前缓存编译产物
+     */
     @Override
-    protected ExecutionMetrics executeInContainerWithArgs(String codeFileName, String[] args, String expectedOutput) throws Exception {
-        String containerId = null;
+    protected ExecutionMetrics compileInContainer(ExecutionContext context, String codeFileName, List<String> compileCommand) throws Exception {
         long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            String mainClassName = codeFileName.replace(".java", "");
-
-            // 尝试获取长期运行容器
-            LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-            
-            if (containerInfo != null) {
-                // 使用长期运行容器
-                containerId = containerInfo.getContainerId();
-                usingLongRunningContainer = true;
-                logger.info("使用长期运行容器执行带参数代码: " + containerId);
-                
-                // 将代码文件复制到容器的工作目录
-                containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                
-            } else {
-                // 回退到传统方式创建新容器
-                logger.info("容器复用已禁用，创建新容器(带参数)");
-                
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig().withBinds(bind).withMemory((long) MEMORY_LIMIT).withCpuCount((long) CPU_LIMIT).withNetworkMode("none");
-
-                logger.info("创建Docker容器(带参数)");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage).withHostConfig(hostConfig).withWorkingDir(WORK_DIR)
-                        .withCmd("tail", "-f", "/dev/null").exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待容器启动完成
-                Thread.sleep(1000);
-
-                // 检查容器是否在运行
-                boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-                if (!isRunning) {
-                    throw new RuntimeException("容器未能成功启动，请检查Docker服务");
-                }
-
-                logger.info("容器已启动并正在运行");
-            }
+        CompletedExecution compileExec = compileWithWarmJvm(context, codeFileName);
+        if (compileExec == null) {
+            ExecCreateCmdResponse compileCmd = dockerClient.execCreateCmd(context.getContainerId()).withCmd(compileCommand.toArray(new String[0])).withAttachStdout(true).withAttachStderr(true).exec();
+            compileExec = executeCommand(compileCmd.getId());
+        }
+        if (compileExec.getExitCode() != 0) {
+            logger.severe("Java编译失败: " + compileExec.getOutput());
+            return new JavaExecutionMetrics("COMPILATION_ERROR", compileExec.getOutput(), System.currentTimeMillis() - startTime, 0, false);
+        }
 
-            // 编译Java文件
-            logger.info("编译Java代码: " + mainClassName + ".java");
-            ExecCreateCmdResponse compileCmd = dockerClient.execCreateCmd(containerId).withCmd("javac", mainClassName + ".java").withAttachStdout(true).withAttachStderr(true).exec();
+        afterCompiled(context, codeFileName);
+        return null;
+    }
 
-            CompletedExecution compileExec = executeCommand(compileCmd.getId());
-            if (compileExec.getExitCode() != 0) {
-                logger.severe("Java编译失败: " + compileExec.getOutput());
-                return new JavaExecutionMetrics("COMPILATION_ERROR", compileExec.getOutput(), System.currentTimeMillis() - startTime, 0, false);
-            }
+    /**
+     * 把只编译不运行的任务派发给常驻 JVM
+     *
+     * @return 编译结果（输出为编译器信息）；常驻 JVM 未就绪或任务未被领取时返回null，由调用方改用 javac
+     */
+    private CompletedExecution compileWithWarmJvm(ExecutionContext context, String codeFileName) throws InterruptedException {
+        ContainerLease lease = context.getLease();
+        if (!warmJvmEnabled || lease == null) {
+            return null;
+        }
+        LongRunningContainerManager.ContainerInfo containerInfo = lease.getContainerInfo();
+        if (!warmJvm.ensureRunning(containerInfo, warmJvmMaxRuns, context.getMemoryLimit())) {
+            return null;
+        }
 
-            logger.info("Java编译成功");
+        // 不设置主类即为只编译的任务
+        Properties job = new Properties();
+        job.setProperty("classpath", context.getWorkDir());
+        job.setProperty("compile", context.getWorkDir() + "/" + codeFileName);
+        job.setProperty("result", context.getWorkDir() + "/" + ProgramLauncher.RESULT_FILE_NAME);
+        job.setProperty("limit_ms", String.valueOf(EXECUTION_TIMEOUT * 1000L));
 
-            // 执行Java程序（带参数）
-            List<String> cmdList = new ArrayList<>();
-            cmdList.add("java");
-            cmdList.add(mainClassName);
+        RunnerAgent.Job submitted;
+        try {
+            submitted = warmJvm.submit(containerInfo, context.getExecutionId(), job, null, 0);
+        } catch (IOException e) {
+            logger.warning("派发常驻 JVM 编译任务失败: " + e.getMessage());
+            return null;
+        }
+        if (submitted == null) {
+            return null;
+        }
 
-            // 添加所有参数
-            if (args != null) {
-                for (String arg : args) {
-                    cmdList.add(arg);
-                }
+        try {
+            if (!submitted.await(EXECUTION_TIMEOUT * 1000L)) {
+                logger.warning("常驻 JVM 编译超时: " + submitted.getId());
+                return new CompletedExecution(-1, "编译超时");
             }
-
-            logger.info("执行命令: " + String.join(" ", cmdList));
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId).withCmd(cmdList.toArray(new String[0])).withAttachStdout(true).withAttachStderr(true).exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 收集内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new JavaExecutionMetrics(exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR", output, System.currentTimeMillis() - startTime, memoryUsage.get(), matched);
+            String log = new String(submitted.readStderr(), StandardCharsets.UTF_8);
+            ProgramLauncher.Result result = ProgramLauncher.readResult(context.getHostWorkDir().resolve(ProgramLauncher.RESULT_FILE_NAME));
+            return new CompletedExecution(result.getExitCode(), log);
+        } catch (IOException e) {
+            // 重新用 javac 编译一次即可
+            logger.warning("读取常驻 JVM 编译结果失败: " + e.getMessage());
+            return null;
         } finally {
-            // 如果使用长期运行容器，则清理工作目录；否则按原来方式清理容器
-            if (usingLongRunningContainer && containerId != null) {
-                try {
-                    // 清理容器内的代码文件
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -f " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录(带参数)");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录时出错(带参数): " + e.getMessage());
-                }
-            }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupContainer(containerId);
+            submitted.discard();
         }
     }
 
+    /**
+     * 命中编译缓存时直接恢复编译产物，否则返回javac命令
+     */
     @Override
-    protected ExecutionMetrics executeInContainerWithTestFile(String codeFileName, String testFileName, String expectedOutput) throws Exception {
-        String containerId = null;
-        long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            String mainClassName = codeFileName.replace(".java", "");
-
-            // 尝试获取长期运行容器
-            LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-            
-            if (containerInfo != null) {
-                // 使用长期运行容器
-                containerId = containerInfo.getContainerId();
-                usingLongRunningContainer = true;
-                logger.info("使用长期运行容器执行带测试文件代码: " + containerId);
-                
-                // 将代码文件复制到容器的工作目录
-                containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                
-            } else {
-                // 回退到传统方式创建新容器
-                logger.info("容器复用已禁用，创建新容器(带测试文件)");
-                
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig().withBinds(bind).withMemory((long) MEMORY_LIMIT).withCpuCount((long) CPU_LIMIT).withNetworkMode("none");
-
-                logger.info("创建Docker容器(带测试文件)");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage).withHostConfig(hostConfig).withWorkingDir(WORK_DIR)
-                        .withCmd("tail", "-f", "/dev/null").exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待容器启动完成
-                Thread.sleep(1000);
-
-                // 检查容器是否在运行
-                boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-                if (!isRunning) {
-                    throw new RuntimeException("容器未能成功启动，请检查Docker服务");
-                }
-
-                logger.info("容器已启动并正在运行");
-            }
+    protected List<String> getCompileCommand(ExecutionContext context, String codeFileName) throws Exception {
+        CompileCache.CompiledArtifact artifact = compileCache.get(buildCacheKey(context, codeFileName));
+        if (artifact != null) {
+            compileCache.restore(artifact, context.getHostWorkDir());
+            logger.info("命中编译缓存，跳过编译: " + codeFileName);
+            return null;
+        }
 
-            // 检查容器是否在运行
-            boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-            if (!isRunning) {
-                throw new RuntimeException("容器未能成功启动，请检查Docker服务");
-            }
+        logger.info("编译Java代码: " + codeFileName);
+        List<String> compileCommand = new ArrayList<>();
+        compileCommand.add("javac");
+        compileCommand.add(context.getWorkDir() + "/" + codeFileName);
+        return compileCommand;
+    }
 
-            logger.info("容器已启动并正在运行");
+    /**
+     * 编译成功后（被测程序运行之前）缓存编译产物
+     */
+    @Override
+    protected void afterCompiled(ExecutionContext context, String codeFileName) throws Exception {
+        compileCache.put(buildCacheKey(context, codeFileName), context.getHostWorkDir(), ".class");
+        logger.info("Java编译成功");
+    }
 
-            // 编译Java文件
-            logger.info("编译Java代码: " + mainClassName + ".java");
-            ExecCreateCmdResponse compileCmd = dockerClient.execCreateCmd(containerId).withCmd("javac", mainClassName + ".java").withAttachStdout(true).withAttachStderr(true).exec();
+    private String buildCacheKey(ExecutionContext context, String codeFileName) {
+        String source = new String(context.getWorkspaceFile(codeFileName), StandardCharsets.UTF_8);
+        return CompileCache.buildKey(getImageId(), source);
+    }
 
-            CompletedExecution compileExec = executeCommand(compileCmd.getId());
-            if (compileExec.getExitCode() != 0) {
-                logger.severe("Java编译失败: " + compileExec.getOutput());
-                return new JavaExecutionMetrics("COMPILATION_ERROR", compileExec.getOutput(), System.currentTimeMillis() - startTime, 0, false);
+    /**
+     * 运行已编译的Java程序
+     */
+    @Override
+    protected ExecutionMetrics runInContainer(ExecutionContext context, String codeFileName, String[] args, String testFileName, String expectedOutput) throws Exception {
+        long startTime = System.currentTimeMillis();
+        String workDir = context.getWorkDir();
+
+        List<String> cmdList = new ArrayList<>();
+        cmdList.add("java");
+        cmdList.add("-cp");
+        cmdList.add(workDir);
+        cmdList.add(codeFileName.replace(".java", ""));
+
+        if (testFileName != null) {
+            // 测试文件模式：传递测试文件路径作为参数
+            cmdList.add(workDir + "/" + testFileName);
+        } else if (args != null) {
+            // 添加所有参数
+            for (String arg : args) {
+                cmdList.add(arg);
             }
+        }
 
-            logger.info("Java编译成功");
-
-            // 检查测试文件是否存在
-            ExecCreateCmdResponse checkFileCmd = dockerClient.execCreateCmd(containerId).withCmd("ls", "-la", WORK_DIR).withAttachStdout(true).withAttachStderr(true).exec();
-
-            CompletedExecution checkFileExec = executeCommand(checkFileCmd.getId());
-            logger.info("目录内容: " + checkFileExec.getOutput().trim());
+        logger.info("执行命令: " + String.join(" ", cmdList));
+        CompletedExecution exec = executeProgram(context, cmdList, expectedOutput);
+        String output = exec.getOutput().trim();
+        logger.info("代码执行完成，输出: " + output);
+        logger.info("退出代码: " + exec.getExitCode());
 
-            // 执行Java程序（带测试文件）
-            logger.info("执行Java程序(带测试文件): " + mainClassName);
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId).withCmd("java", mainClassName, testFileName).withAttachStdout(true).withAttachStderr(true).exec();
+        boolean matched = expectedOutput != null && exec.isOutputMatched();
+        return new JavaExecutionMetrics(resolveStatus(exec), output, resolveExecutionTime(exec, startTime), exec.getPeakMemory(), matched, exec.getCpuTime());
+    }
 
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
+    /**
+     * 池容器内的常驻 JVM 已就绪时，把编译（需要时）和运行交给它在进程内完成
+     * 常驻 JVM 未就绪时在后台启动它，本次运行仍走启动脚本
+     */
+    @Override
+    protected RunnerAgent.Job submitToRuntime(ExecutionContext context, List<String> command, List<String> compileCommand,
+                                              String resultFile, String cleanupDir, byte[] stdin, long outputLimit) throws InterruptedException {
+        ContainerLease lease = context.getLease();
+        if (!warmJvmEnabled || lease == null) {
+            return null;
+        }
+        LongRunningContainerManager.ContainerInfo containerInfo = lease.getContainerInfo();
+        if (!warmJvm.ensureRunning(containerInfo, warmJvmMaxRuns, context.getMemoryLimit())) {
+            return null;
+        }
 
-            // 收集内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
+        // 运行命令为 java -cp <工作目录> <主类> [参数...]
+        String mainClass = getCodeFileName().replace(".java", "");
+        List<String> programArgs = command.subList(command.indexOf(mainClass) + 1, command.size());
+        Properties job = new Properties();
+        job.setProperty("classpath", context.getWorkDir());
+        job.setProperty("main", mainClass);
+        for (int i = 0; i < programArgs.size(); i++) {
+            job.setProperty("arg." + i, programArgs.get(i));
+        }
+        if (compileCommand != null) {
+            job.setProperty("compile", context.getWorkDir() + "/" + getCodeFileName());
+        }
+        job.setProperty("result", resultFile);
+        if (cleanupDir != null) {
+            job.setProperty("cleanup", cleanupDir);
+        }
+        job.setProperty("limit_ms", String.valueOf(context.getTimeLimitMillis()));
 
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new JavaExecutionMetrics(exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR", output, System.currentTimeMillis() - startTime, memoryUsage.get(), matched);
-        } finally {
-            // 如果使用长期运行容器，则清理工作目录；否则按原来方式清理容器
-            if (usingLongRunningContainer && containerId != null) {
-                try {
-                    // 清理容器内的代码文件
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -f " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录(带测试文件)");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录时出错(带测试文件): " + e.getMessage());
-                }
+        try {
+            RunnerAgent.Job submitted = warmJvm.submit(containerInfo, context.getExecutionId(), job, stdin, outputLimit);
+            if (submitted != null) {
+                logger.info("已派发给常驻 JVM: " + submitted.getId());
             }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupContainer(containerId);
+            return submitted;
+        } catch (IOException e) {
+            logger.warning("派发常驻 JVM 任务失败: " + e.getMessage());
+            return null;
         }
     }
 
@@ -398,24 +278,34 @@ public class DockerCodeExecutor extends AbstractDockerExecutor<ExecutionResult>
     protected ExecutionResult calculateAverageMetrics(List<ExecutionMetrics> metrics) {
         long totalExecutionTime = 0;
         long totalMemoryUsed = 0;
+        long totalCpuTime = 0;
         long maxExecutionTime = 0;
-        long maxMemoryUsed = 0;
+        long maxMemoryUsed = -1; // 没有任何一次运行测得内存时为 -1
+        long maxCpuTime = 0;
+        int memoryMeasured = 0;
 
         for (ExecutionMetrics metric : metrics) {
             totalExecutionTime += metric.getExecutionTime();
-            totalMemoryUsed += metric.getMemoryUsed();
+            if (metric.getMemoryUsed() >= 0) {
+                totalMemoryUsed += metric.getMemoryUsed();
+                memoryMeasured++;
+            }
+            totalCpuTime += metric.getCpuTime();
 
             maxExecutionTime = Math.max(maxExecutionTime, metric.getExecutionTime());
             maxMemoryUsed = Math.max(maxMemoryUsed, metric.getMemoryUsed());
+            maxCpuTime = Math.max(maxCpuTime, metric.getCpuTime());
         }
 
         int size = metrics.size();
         ExecutionResult result = new ExecutionResult();
         result.setExecutionResults(metrics);
         result.setAverageExecutionTime(size > 0 ? totalExecutionTime / size : 0);
-        result.setAverageMemoryUsed(size > 0 ? totalMemoryUsed / size : 0);
+        result.setAverageMemoryUsed(memoryMeasured > 0 ? totalMemoryUsed / memoryMeasured : -1);
         result.setMaxExecutionTime(maxExecutionTime);
         result.setMaxMemoryUsed(maxMemoryUsed);
+        result.setAverageCpuTime(size > 0 ? totalCpuTime / size : 0);
+        result.setMaxCpuTime(maxCpuTime);
         result.setSuccess(true);
 
         return result;
@@ -0,0 +1,239 @@
+package fun.timu.oj.shandbox.docker.executor;
+
+import fun.timu.oj.shandbox.docker.compare.OutputComparator;
+import fun.timu.oj.shandbox.docker.pool.ContainerLease;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单次执行上下文
+ * 保存一次执行调用独占的状态（代码和测试文件、容器工作区、容器租约、计时和资源限制），
+ * 执行器本身不再持有执行期状态，同一执行器实例可以被多个线程并发调用
+ */
+public class ExecutionContext {
+    private volatile String executionId;
+    // 工作区文件（文件名 -> 内容），只保存在内存中，获取容器时直接写入容器工作区
+    private final Map<String, byte[]> workspaceFiles = new LinkedHashMap<>();
+    private final long memoryLimit;
+    private final long createdTime;
+    private final OutputComparator outputComparator;
+    // 当前运行的时间限制（毫秒），多测试用例执行时按测试用例切换
+    private volatile long timeLimitMillis;
+    // 当前运行的标准输入内容，为null表示不使用标准输入；多测试用例执行时按测试用例切换
+    private volatile String stdinInput;
+    // 下一次运行前由启动脚本执行的编译命令，为null表示不编译
+    private volatile List<String> compileCommand;
+    // 是否由启动脚本在运行结束后删除工作区
+    private volatile boolean cleanupAfterRun;
+    // 启动脚本中的编译是否已成功
+    private volatile boolean compiled;
+    // 工作区是否已被启动脚本删除
+    private volatile boolean workspaceRemoved;
+
+    // 以下字段在获取容器后设置
+    private ContainerLease lease;
+    private String containerId;
+    private String workDir;
+    private Path hostWorkDir;
+    // 独立容器挂载的宿主机目录，同一次执行的多个独立容器共用
+    private Path standaloneWorkDir;
+
+    public ExecutionContext(String executionId, long timeLimitMillis, long memoryLimit, OutputComparator outputComparator) {
+        this.executionId = executionId;
+        this.timeLimitMillis = timeLimitMillis;
+        this.memoryLimit = memoryLimit;
+        this.createdTime = System.currentTimeMillis();
+        this.outputComparator = outputComparator;
+    }
+
+    /**
+     * 执行标识，同时作为长期运行容器内的子工作区名称
+     */
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    /**
+     * 换用新的执行标识（即新的子工作区），同一上下文重复运行时使用；
+     * 上一次运行的工作区可能仍在清理队列中等待删除，不能再写入
+     *
+     * @param executionId 新的执行标识
+     */
+    public void renewExecutionId(String executionId) {
+        this.executionId = executionId;
+        this.compiled = false;
+        this.workspaceRemoved = false;
+    }
+
+    /**
+     * 添加工作区文件
+     *
+     * @param fileName 文件名（相对工作区）
+     * @param content  文件内容
+     */
+    public void addWorkspaceFile(String fileName, byte[] content) {
+        workspaceFiles.put(fileName, content);
+    }
+
+    /**
+     * 工作区文件的内容，不存在时返回null
+     */
+    public byte[] getWorkspaceFile(String fileName) {
+        return workspaceFiles.get(fileName);
+    }
+
+    /**
+     * 全部工作区文件（文件名 -> 内容）
+     */
+    public Map<String, byte[]> getWorkspaceFiles() {
+        return Collections.unmodifiableMap(workspaceFiles);
+    }
+
+    /**
+     * 单次运行的时间限制（毫秒）
+     */
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public void setTimeLimitMillis(long timeLimitMillis) {
+        this.timeLimitMillis = timeLimitMillis;
+    }
+
+    /**
+     * 通过 exec 标准输入传给程序的内容
+     */
+    public String getStdinInput() {
+        return stdinInput;
+    }
+
+    public void setStdinInput(String stdinInput) {
+        this.stdinInput = stdinInput;
+    }
+
+    /**
+     * 下一次运行前由启动脚本执行的编译命令
+     */
+    public List<String> getCompileCommand() {
+        return compileCommand;
+    }
+
+    public void setCompileCommand(List<String> compileCommand) {
+        this.compileCommand = compileCommand;
+    }
+
+    /**
+     * 是否由启动脚本在运行结束后删除工作区（仅长期运行容器有效）
+     */
+    public boolean isCleanupAfterRun() {
+        return cleanupAfterRun;
+    }
+
+    public void setCleanupAfterRun(boolean cleanupAfterRun) {
+        this.cleanupAfterRun = cleanupAfterRun;
+    }
+
+    /**
+     * 启动脚本中的编译是否已成功
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+    }
+
+    /**
+     * 工作区是否已被启动脚本删除，为 true 时归还容器不再执行清理命令
+     */
+    public boolean isWorkspaceRemoved() {
+        return workspaceRemoved;
+    }
+
+    public void setWorkspaceRemoved(boolean workspaceRemoved) {
+        this.workspaceRemoved = workspaceRemoved;
+    }
+
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * 本次执行的输出比对器
+     */
+    public OutputComparator getOutputComparator() {
+        return outputComparator;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * 从创建上下文到现在经过的毫秒数
+     */
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - createdTime;
+    }
+
+    public ContainerLease getLease() {
+        return lease;
+    }
+
+    public void setLease(ContainerLease lease) {
+        this.lease = lease;
+    }
+
+    public String getContainerId() {
+        return containerId;
+    }
+
+    public void setContainerId(String containerId) {
+        this.containerId = containerId;
+    }
+
+    /**
+     * 容器内的工作目录：长期运行容器为 /code/<executionId>，独立容器为 /code
+     */
+    public String getWorkDir() {
+        return workDir;
+    }
+
+    public void setWorkDir(String workDir) {
+        this.workDir = workDir;
+    }
+
+    /**
+     * 宿主机上与容器工作目录对应的目录（容器内生成的文件可在此读取）
+     */
+    public Path getHostWorkDir() {
+        return hostWorkDir;
+    }
+
+    public void setHostWorkDir(Path hostWorkDir) {
+        this.hostWorkDir = hostWorkDir;
+    }
+
+    /**
+     * 独立容器挂载的宿主机目录，未使用独立容器时为null
+     */
+    public Path getStandaloneWorkDir() {
+        return standaloneWorkDir;
+    }
+
+    public void setStandaloneWorkDir(Path standaloneWorkDir) {
+        this.standaloneWorkDir = standaloneWorkDir;
+    }
+
+    /**
+     * 是否使用长期运行容器池中的容器
+     */
+    public boolean isUsingLongRunningContainer() {
+        return lease != null;
+    }
+}
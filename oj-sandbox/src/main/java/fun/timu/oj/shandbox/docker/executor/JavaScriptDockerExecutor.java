@@ -1,24 +1,22 @@
 package fun.timu.oj.shandbox.docker.executor;
 
-import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
-import com.github.dockerjava.api.command.InspectContainerResponse;
-import com.github.dockerjava.api.model.Bind;
-import com.github.dockerjava.api.model.HostConfig;
-import com.github.dockerjava.api.model.Volume;
 import fun.timu.oj.shandbox.docker.entity.ExecutionMetrics;
 import fun.timu.oj.shandbox.docker.entity.ExecutionResult;
 import fun.timu.oj.shandbox.docker.entity.JavaScriptExecutionMetrics;
+import fun.timu.oj.shandbox.docker.pool.ContainerLease;
 import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import fun.timu.oj.shandbox.docker.pool.RunnerAgent;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.nio.file.Files;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -27,7 +25,13 @@ import java.util.logging.Level;
  */
 public class JavaScriptDockerExecutor extends AbstractDockerExecutor<ExecutionResult> {
     private static final String DOCKER_IMAGE = "node:18-alpine";
-    private static final int CONTAINER_WAIT_TIME = 2; // 容器启动等待秒数
+
+    // 池容器内 Node 进程池的配置，所有实例共享
+    private static volatile boolean processPoolEnabled = false;
+    private static volatile int processPoolMaxRuns = 1000;
+    private static volatile int processPoolSize = 2;
+
+    private final WarmRuntime processPool = WarmRuntime.node(dockerClient);
 
     public JavaScriptDockerExecutor() {
         super(DOCKER_IMAGE, JavaScriptDockerExecutor.class.getName());
@@ -37,6 +41,19 @@ public class JavaScriptDockerExecutor extends AbstractDockerExecutor<ExecutionRe
         super(DOCKER_IMAGE, JavaScriptDockerExecutor.class.getName(), pullImageAlways);
     }
 
+    /**
+     * 配置池容器内的 Node 进程池
+     *
+     * @param enabled  是否启用，启用后池容器内的 JavaScript 程序交给预先启动的 node 进程运行，省去 Node 启动
+     * @param maxRuns  每个进程池最多运行的次数，达到后退出并由下一次运行重新启动
+     * @param poolSize 保持的空闲 node 进程数
+     */
+    public static void configureProcessPool(boolean enabled, int maxRuns, int poolSize) {
+        processPoolEnabled = enabled;
+        processPoolMaxRuns = Math.max(1, maxRuns);
+        processPoolSize = Math.max(1, poolSize);
+    }
+
     @Override
     protected String getCodeFileName() {
         return "solution.js";
@@ -65,397 +82,117 @@ public class JavaScriptDockerExecutor extends AbstractDockerExecutor<ExecutionRe
     }
 
     @Override
-    protected ExecutionMetrics executeInContainer(String jsFileName, String expectedOutput) throws Exception {
-        String containerId = null;
-        long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            // 尝试使用长期运行容器
-            if (enableContainerReuse) {
-                try {
-                    LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-                    if (containerInfo != null) {
-                        containerId = containerInfo.getContainerId();
-                        usingLongRunningContainer = true;
-                        logger.info("使用长期运行容器: " + containerId);
-                        
-                        // 复制代码文件到容器
-                        containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                    }
-                } catch (Exception e) {
-                    logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
-                    containerId = null;
-                }
-            }
-
-            // 如果没有使用长期运行容器，使用传统方式
-            if (containerId == null) {
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig()
-                        .withBinds(bind)
-                        .withMemory((long) MEMORY_LIMIT)
-                        .withCpuCount((long) CPU_LIMIT)
-                        .withNetworkMode("none"); // 隔离网络
-
-                logger.info("创建Docker容器");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
-                        .withHostConfig(hostConfig)
-                        .withWorkingDir(WORK_DIR)
-                        // 使用sleep infinity保持容器运行
-                        .withCmd("/bin/sh", "-c", "sleep infinity")
-                        .exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功，ID: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待容器启动完成
-                logger.info("等待容器启动完成 " + (CONTAINER_WAIT_TIME + 1) + " 秒");
-                Thread.sleep((CONTAINER_WAIT_TIME + 1) * 1000);
-
-                // 验证容器是否正在运行
-                InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(containerId).exec();
-                logger.info("容器当前状态: " + containerInfo.getState().getStatus());
-
-                if (!containerInfo.getState().getRunning()) {
-                    throw new RuntimeException("容器未处于运行状态，当前状态: " + containerInfo.getState().getStatus());
-                }
-
-                logger.info("容器启动成功，正在运行");
-            }
-
-            // 检查Node.js是否可用
-            logger.info("检查Node.js可用性");
-            ExecCreateCmdResponse checkNodeCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("node", "--version")
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution checkNodeExec = executeCommand(checkNodeCmd.getId());
-            logger.info("Node.js版本: " + checkNodeExec.getOutput().trim());
-
-            if (checkNodeExec.getExitCode() != 0) {
-                logger.severe("Node.js不可用，退出代码: " + checkNodeExec.getExitCode());
-                return new JavaScriptExecutionMetrics(
-                        "ENVIRONMENT_ERROR",
-                        "Node.js不可用: " + checkNodeExec.getOutput(),
-                        System.currentTimeMillis() - startTime,
-                        0,
-                        false);
-            }
-
-            // 检查JavaScript文件是否存在
-            logger.info("检查代码文件存在性");
-            ExecCreateCmdResponse checkFileCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("ls", "-la", WORK_DIR)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution checkFileExec = executeCommand(checkFileCmd.getId());
-            logger.info("目录内容: " + checkFileExec.getOutput().trim());
-
-            // 执行JavaScript代码
-            logger.info("执行JavaScript代码");
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("node", WORK_DIR + "/" + jsFileName)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 收集内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new JavaScriptExecutionMetrics(
-                    exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR",
-                    output,
-                    System.currentTimeMillis() - startTime,
-                    memoryUsage.get(),
-                    matched);
-
-        } finally {
-            if (usingLongRunningContainer && containerId != null) {
-                // 清理工作目录而不是删除容器
-                try {
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -rf " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录失败: " + e.getMessage());
-                }
-            }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupContainer(containerId);
-        }
+    protected String[] getKeepAliveCommand() {
+        // 使用sleep infinity保持容器运行
+        return new String[]{"/bin/sh", "-c", "sleep infinity"};
     }
 
+    /**
+     * 检查Node.js是否可用
+     */
     @Override
-    protected ExecutionMetrics executeInContainerWithArgs(String jsFileName, String[] args, String expectedOutput) throws Exception {
-        String containerId = null;
+    protected ExecutionMetrics prepareInContainer(ExecutionContext context, String jsFileName) throws Exception {
         long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            // 尝试使用长期运行容器
-            if (enableContainerReuse) {
-                try {
-                    LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-                    if (containerInfo != null) {
-                        containerId = containerInfo.getContainerId();
-                        usingLongRunningContainer = true;
-                        logger.info("使用长期运行容器(带参数): " + containerId);
-                        
-                        // 复制代码文件到容器
-                        containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                    }
-                } catch (Exception e) {
-                    logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
-                    containerId = null;
-                }
-            }
 
-            // 如果没有使用长期运行容器，使用传统方式
-            if (containerId == null) {
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig()
-                        .withBinds(bind)
-                        .withMemory((long) MEMORY_LIMIT)
-                        .withCpuCount((long) CPU_LIMIT)
-                        .withNetworkMode("none"); // 隔离网络
-
-                logger.info("创建Docker容器(带参数)");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
-                        .withHostConfig(hostConfig)
-                        .withWorkingDir(WORK_DIR)
-                        // 使用sleep infinity保持容器运行
-                        .withCmd("/bin/sh", "-c", "sleep infinity")
-                        .exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功，ID: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待容器启动完成
-                logger.info("等待容器启动完成 " + (CONTAINER_WAIT_TIME + 1) + " 秒");
-                Thread.sleep((CONTAINER_WAIT_TIME + 1) * 1000);
-
-                // 验证容器是否正在运行
-                InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(containerId).exec();
-                if (!containerInfo.getState().getRunning()) {
-                    throw new RuntimeException("容器未处于运行状态，当前状态: " + containerInfo.getState().getStatus());
-                }
-            }
+        logger.info("检查Node.js可用性");
+        ExecCreateCmdResponse checkNodeCmd = dockerClient.execCreateCmd(context.getContainerId())
+                .withCmd("node", "--version")
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec();
 
-            // 执行JavaScript代码(带参数)
-            List<String> cmdList = new ArrayList<>();
-            cmdList.add("node");
-            cmdList.add(WORK_DIR + "/" + jsFileName);
+        CompletedExecution checkNodeExec = executeCommand(checkNodeCmd.getId());
+        logger.info("Node.js版本: " + checkNodeExec.getOutput().trim());
 
-            // 添加所有参数
-            if (args != null) {
-                for (String arg : args) {
-                    cmdList.add(arg);
-                }
-            }
-
-            logger.info("执行命令: " + String.join(" ", cmdList));
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd(cmdList.toArray(new String[0]))
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 收集内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
+        if (checkNodeExec.getExitCode() != 0) {
+            logger.severe("Node.js不可用，退出代码: " + checkNodeExec.getExitCode());
             return new JavaScriptExecutionMetrics(
-                    exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR",
-                    output,
+                    "ENVIRONMENT_ERROR",
+                    "Node.js不可用: " + checkNodeExec.getOutput(),
                     System.currentTimeMillis() - startTime,
-                    memoryUsage.get(),
-                    matched);
-
-        } finally {
-            if (usingLongRunningContainer && containerId != null) {
-                // 清理工作目录而不是删除容器
-                try {
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -rf " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录失败: " + e.getMessage());
-                }
-            }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupContainer(containerId);
+                    0,
+                    false);
         }
+        return null;
     }
 
+    /**
+     * 运行JavaScript脚本
+     */
     @Override
-    protected ExecutionMetrics executeInContainerWithTestFile(String jsFileName, String testFileName, String expectedOutput) throws Exception {
-        String containerId = null;
+    protected ExecutionMetrics runInContainer(ExecutionContext context, String jsFileName, String[] args, String testFileName, String expectedOutput) throws Exception {
         long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            // 尝试使用长期运行容器
-            if (enableContainerReuse) {
-                try {
-                    LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-                    if (containerInfo != null) {
-                        containerId = containerInfo.getContainerId();
-                        usingLongRunningContainer = true;
-                        logger.info("使用长期运行容器(带测试文件): " + containerId);
-                        
-                        // 复制代码文件到容器
-                        containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                    }
-                } catch (Exception e) {
-                    logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
-                    containerId = null;
-                }
-            }
+        String workDir = context.getWorkDir();
 
-            // 如果没有使用长期运行容器，使用传统方式
-            if (containerId == null) {
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig()
-                        .withBinds(bind)
-                        .withMemory((long) MEMORY_LIMIT)
-                        .withCpuCount((long) CPU_LIMIT)
-                        .withNetworkMode("none"); // 隔离网络
-
-                logger.info("创建Docker容器(带测试文件)");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
-                        .withHostConfig(hostConfig)
-                        .withWorkingDir(WORK_DIR)
-                        // 使用sleep infinity保持容器运行
-                        .withCmd("/bin/sh", "-c", "sleep infinity")
-                        .exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功，ID: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待容器启动完成
-                logger.info("等待容器启动完成 " + (CONTAINER_WAIT_TIME + 1) + " 秒");
-                Thread.sleep((CONTAINER_WAIT_TIME + 1) * 1000);
-
-                // 验证容器是否正在运行
-                InspectContainerResponse containerInfo = dockerClient.inspectContainerCmd(containerId).exec();
-                if (!containerInfo.getState().getRunning()) {
-                    throw new RuntimeException("容器未处于运行状态，当前状态: " + containerInfo.getState().getStatus());
-                }
-            }
+        List<String> cmdList = new ArrayList<>();
+        cmdList.add("node");
+        cmdList.add(workDir + "/" + jsFileName);
 
-            // 检查测试文件是否存在
-            ExecCreateCmdResponse catFileCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("cat", WORK_DIR + "/" + testFileName)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution catFileExec = executeCommand(catFileCmd.getId());
-            if (catFileExec.getExitCode() != 0) {
-                logger.severe("测试文件无法读取: " + catFileExec.getOutput());
-                return new JavaScriptExecutionMetrics(
-                        "FILE_ERROR",
-                        "测试文件无法读取: " + catFileExec.getOutput(),
-                        System.currentTimeMillis() - startTime,
-                        0,
-                        false);
+        if (testFileName != null) {
+            // 传递测试文件路径作为参数
+            cmdList.add(workDir + "/" + testFileName);
+        } else if (args != null) {
+            // 添加所有参数
+            for (String arg : args) {
+                cmdList.add(arg);
             }
+        }
 
-            // 执行JavaScript代码(带测试文件)
-            logger.info("执行JavaScript代码(带测试文件)");
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("node", WORK_DIR + "/" + jsFileName, WORK_DIR + "/" + testFileName)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
+        // 执行JavaScript代码
+        logger.info("执行命令: " + String.join(" ", cmdList));
+        CompletedExecution exec = executeProgram(context, cmdList, expectedOutput);
+        String output = exec.getOutput().trim();
+        logger.info("代码执行完成，输出: " + output);
+        logger.info("退出代码: " + exec.getExitCode());
+
+        boolean matched = expectedOutput != null && exec.isOutputMatched();
+        return new JavaScriptExecutionMetrics(
+                resolveStatus(exec),
+                output,
+                resolveExecutionTime(exec, startTime),
+                exec.getPeakMemory(),
+                matched,
+                exec.getCpuTime());
+    }
 
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
+    /**
+     * 池容器内的 Node 进程池已就绪时，交给其中一个已启动的 node 进程运行脚本
+     * 进程池未就绪时在后台启动它，本次运行仍走启动脚本
+     */
+    @Override
+    protected RunnerAgent.Job submitToRuntime(ExecutionContext context, List<String> command, List<String> compileCommand,
+                                              String resultFile, String cleanupDir, byte[] stdin, long outputLimit) throws InterruptedException {
+        ContainerLease lease = context.getLease();
+        if (!processPoolEnabled || lease == null || compileCommand != null) {
+            return null;
+        }
+        LongRunningContainerManager.ContainerInfo containerInfo = lease.getContainerInfo();
+        if (!processPool.ensureRunning(containerInfo, processPoolMaxRuns, context.getMemoryLimit(), String.valueOf(processPoolSize))) {
+            return null;
+        }
 
-            // 收集内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
+        // 运行命令为 node <脚本> [参数...]
+        Properties job = new Properties();
+        job.setProperty("script", command.get(1));
+        for (int i = 2; i < command.size(); i++) {
+            job.setProperty("arg." + (i - 2), command.get(i));
+        }
+        job.setProperty("cwd", WORK_DIR);
+        job.setProperty("result", resultFile);
+        if (cleanupDir != null) {
+            job.setProperty("cleanup", cleanupDir);
+        }
+        job.setProperty("limit_ms", String.valueOf(context.getTimeLimitMillis()));
 
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new JavaScriptExecutionMetrics(
-                    exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR",
-                    output,
-                    System.currentTimeMillis() - startTime,
-                    memoryUsage.get(),
-                    matched);
-
-        } finally {
-            if (usingLongRunningContainer && containerId != null) {
-                // 清理工作目录而不是删除容器
-                try {
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -rf " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录失败: " + e.getMessage());
-                }
+        try {
+            RunnerAgent.Job submitted = processPool.submit(containerInfo, context.getExecutionId(), job, stdin, outputLimit);
+            if (submitted != null) {
+                logger.info("已派发给 Node 进程池: " + submitted.getId());
             }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // cleanupContainer(containerId);
+            return submitted;
+        } catch (IOException e) {
+            logger.warning("派发 Node 进程池任务失败: " + e.getMessage());
+            return null;
         }
     }
 
@@ -468,24 +205,34 @@ public class JavaScriptDockerExecutor extends AbstractDockerExecutor<ExecutionRe
     protected ExecutionResult calculateAverageMetrics(List<ExecutionMetrics> metrics) {
         long totalExecutionTime = 0;
         long totalMemoryUsed = 0;
+        long totalCpuTime = 0;
         long maxExecutionTime = 0;
-        long maxMemoryUsed = 0;
+        long maxMemoryUsed = -1; // 没有任何一次运行测得内存时为 -1
+        long maxCpuTime = 0;
+        int memoryMeasured = 0;
 
         for (ExecutionMetrics metric : metrics) {
             totalExecutionTime += metric.getExecutionTime();
-            totalMemoryUsed += metric.getMemoryUsed();
+            if (metric.getMemoryUsed() >= 0) {
+                totalMemoryUsed += metric.getMemoryUsed();
+                memoryMeasured++;
+            }
+            totalCpuTime += metric.getCpuTime();
 
             maxExecutionTime = Math.max(maxExecutionTime, metric.getExecutionTime());
             maxMemoryUsed = Math.max(maxMemoryUsed, metric.getMemoryUsed());
+            maxCpuTime = Math.max(maxCpuTime, metric.getCpuTime());
         }
 
         int size = metrics.size();
         ExecutionResult result = new ExecutionResult();
         result.setExecutionResults(metrics);
         result.setAverageExecutionTime(size > 0 ? totalExecutionTime / size : 0);
-        result.setAverageMemoryUsed(size > 0 ? totalMemoryUsed / size : 0);
+        result.setAverageMemoryUsed(memoryMeasured > 0 ? totalMemoryUsed / memoryMeasured : -1);
         result.setMaxExecutionTime(maxExecutionTime);
         result.setMaxMemoryUsed(maxMemoryUsed);
+        result.setAverageCpuTime(size > 0 ? totalCpuTime / size : 0);
+        result.setMaxCpuTime(maxCpuTime);
         result.setSuccess(true);
 
         return result;
@@ -0,0 +1,76 @@
+package fun.timu.oj.shandbox.docker.executor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 有上限的输出收集器
+ * 按字节收集 exec 输出流中的帧，全部结束后统一按 UTF-8 解码，多字节字符不会在帧边界处被截断。
+ * 超过上限后丢弃后续内容并标记超限，调用方据此停止被测程序。
+ * <p>
+ * 回调线程写入、调用线程读取，方法均已同步。
+ */
+final class OutputSink {
+    private final long limitBytes;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private boolean limitExceeded = false;
+
+    /**
+     * @param limitBytes 最多保留的字节数，小于等于0表示不限制
+     */
+    OutputSink(long limitBytes) {
+        this.limitBytes = limitBytes;
+    }
+
+    /**
+     * 写入一帧输出
+     *
+     * @param payload 帧内容
+     * @return 写入后仍未超过上限时返回 true
+     */
+    synchronized boolean write(byte[] payload) {
+        if (limitExceeded) {
+            return false;
+        }
+        if (limitBytes > 0 && buffer.size() + (long) payload.length > limitBytes) {
+            buffer.write(payload, 0, (int) (limitBytes - buffer.size()));
+            limitExceeded = true;
+            return false;
+        }
+        buffer.write(payload, 0, payload.length);
+        return true;
+    }
+
+    /**
+     * 输出是否超过上限
+     */
+    synchronized boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * 已收集的输出（UTF-8 解码），超限截断时去掉末尾不完整的多字节字符
+     */
+    synchronized String getText() {
+        byte[] bytes = buffer.toByteArray();
+        int length = limitExceeded ? completeLength(bytes) : bytes.length;
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 末尾完整 UTF-8 字符的结束位置
+     */
+    private static int completeLength(byte[] bytes) {
+        int start = bytes.length - 1;
+        // 向前找到最后一个字符的首字节（最多回退3个延续字节）
+        while (start >= 0 && start > bytes.length - 4 && (bytes[start] & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start < 0) {
+            return bytes.length;
+        }
+        int lead = bytes[start] & 0xFF;
+        int expected = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return bytes.length - start >= expected ? bytes.length : start;
+    }
+}
@@ -0,0 +1,400 @@
+package fun.timu.oj.shandbox.docker.executor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 容器内启动脚本
+ * 用一段 sh 脚本在一次 docker exec 中完成单次运行的整个生命周期：编译（可选）、运行、测量和清理工作区，
+ * 结束时把结构化结果（阶段、退出码、峰值内存、CPU 时间、墙钟时间、是否超时、是否超出内存限制、是否已清理）写入结果文件，
+ * 宿主机直接从挂载目录读取结果，不再需要额外的 Docker API 调用。
+ * <p>
+ * 编译失败时脚本把编译器的信息输出到标准错误（不参与输出比对）并以编译器的退出码结束，结果文件中记录 stage=compile。
+ * <p>
+ * 峰值内存取被测进程自身的 VmHWM（进程级内存高水位），运行期间每 10ms 采样一次。
+ * 不使用 cgroup 的内存记账：池容器的 cgroup 同时包含执行代理和常驻语言运行时，读数不只属于被测程序。
+ * 设置了内存限制时，采样到的高水位超过限制即对整个进程组发送 SIGKILL，结果文件中记录 memory_exceeded=1；
+ * 采样间隔内的短暂超出由容器的 cgroup 上限兜底。
+ * <p>
+ * CPU 时间取 cgroup cpu.stat（v2）或 cpuacct（v1）在运行前后的差值（用户态 + 内核态），
+ * 墙钟时间只覆盖被测程序本身，不包含容器获取、文件复制、编译和 Docker API 往返。
+ * <p>
+ * 时间限制由同一脚本中的看门狗执行：被测程序通过 setsid 放入独立进程组，
+ * 超时后对整个进程组发送 SIGKILL，程序派生的子进程不会残留在容器中，结果文件中记录 timed_out=1。
+ * 进程组号在运行期间写入结果文件旁的 .pid 文件，宿主机提前停止接收输出时只终止这个进程组，
+ * 容器内的常驻进程不受影响，脚本随后照常写出结果并清理工作区。
+ * <p>
+ * 通过 exec 标准输入传入数据时，附加的输入流在数据发送完后不会关闭，
+ * 脚本用 head -c 只转发约定的字节数，被测程序因此能读到 EOF。
+ */
+final class ProgramLauncher {
+    private static final Logger logger = Logger.getLogger(ProgramLauncher.class.getName());
+
+    /**
+     * 结果文件名（位于本次执行的工作目录下，脚本负责清理工作区时放在工作区之外）
+     */
+    static final String RESULT_FILE_NAME = ".sandbox-resource";
+
+    // 宿主机等待脚本写出文件时的轮询间隔（毫秒）
+    private static final long RESULT_POLL_INTERVAL_MILLIS = 10;
+
+    // $1 为结果文件路径，$2 为时间限制（秒，可带小数），$3 为标准输入字节数（-1 表示不通过标准输入传入数据），
+    // $4 为运行结束后删除的工作区（- 表示不删除），$5 为编译命令（已转义的 shell 命令，空串表示不编译），
+    // $6 为内存限制（KB，0 表示不限制），其余参数为被测程序命令
+    private static final String LAUNCH_SCRIPT =
+            "out=$1; limit=$2; inlen=$3; cleanup=$4; prep=$5; mem=$6; shift 6\n" +
+            "cpu() {\n" +
+            "  u=0; s=0\n" +
+            "  if [ -f /sys/fs/cgroup/cpu.stat ]; then\n" +
+            "    while read -r k v; do\n" +
+            "      case $k in user_usec) u=$v ;; system_usec) s=$v ;; esac\n" +
+            "    done < /sys/fs/cgroup/cpu.stat\n" +
+            "  elif [ -f /sys/fs/cgroup/cpuacct/cpuacct.usage_user ]; then\n" +
+            "    read -r u < /sys/fs/cgroup/cpuacct/cpuacct.usage_user\n" +
+            "    read -r s < /sys/fs/cgroup/cpuacct/cpuacct.usage_sys\n" +
+            "    u=$((u / 1000)); s=$((s / 1000))\n" +
+            "  fi\n" +
+            "}\n" +
+            "stamp() {\n" +
+            "  t=$(date +%s%N 2>/dev/null)\n" +
+            "  case $t in ''|*N*) read -r up _ < /proc/uptime; t=${up%.*}${up#*.}0000000 ;; esac\n" +
+            "}\n" +
+            "finish() {\n" +
+            "  rm -f \"$out.pid\"\n" +
+            "  if [ \"$cleanup\" != - ] && rm -rf \"$cleanup\" 2>/dev/null; then cleaned=1; fi\n" +
+            "  cpu\n" +
+            "  {\n" +
+            "    echo \"stage=$stage\"\n" +
+            "    echo \"exit_code=$code\"\n" +
+            "    echo \"memory_source=$1\"\n" +
+            "    echo \"memory_peak=$2\"\n" +
+            "    echo \"cpu_user_us=$((u - u0))\"\n" +
+            "    echo \"cpu_sys_us=$((s - s0))\"\n" +
+            "    echo \"wall_us=$(((t1 - t0) / 1000))\"\n" +
+            "    echo \"timed_out=$timed_out\"\n" +
+            "    echo \"memory_exceeded=$mle\"\n" +
+            "    echo \"cleaned=$cleaned\"\n" +
+            "  } > \"$out\"\n" +
+            "  exit $code\n" +
+            "}\n" +
+            "stage=run; code=0; timed_out=0; mle=0; cleaned=0\n" +
+            "cpu; u0=$u; s0=$s; t0=0; t1=0\n" +
+            "rm -f \"$out.timeout\"\n" +
+            "if [ -n \"$prep\" ]; then\n" +
+            "  stage=compile\n" +
+            "  eval \"$prep\" < /dev/null > \"$out.log\" 2>&1; code=$?\n" +
+            "  if [ $code -ne 0 ]; then\n" +
+            "    cat \"$out.log\" >&2; rm -f \"$out.log\"\n" +
+            "    finish none 0\n" +
+            "  fi\n" +
+            "  rm -f \"$out.log\"\n" +
+            "  stage=run\n" +
+            "fi\n" +
+            "run=\n" +
+            "command -v setsid > /dev/null 2>&1 && run=setsid\n" +
+            "exec 3<&0\n" +
+            "cpu; u0=$u; s0=$s; stamp; t0=$t\n" +
+            "if [ \"$inlen\" -ge 0 ]; then\n" +
+            "  head -c \"$inlen\" <&3 | $run \"$@\" 3<&- & pid=$!\n" +
+            "else\n" +
+            "  $run \"$@\" <&3 3<&- & pid=$!\n" +
+            "fi\n" +
+            "exec 3<&-\n" +
+            "echo $pid > \"$out.pid\"\n" +
+            "(\n" +
+            "  trap 'kill $sp 2>/dev/null; exit 0' TERM\n" +
+            "  sleep \"$limit\" & sp=$!\n" +
+            "  wait $sp\n" +
+            "  : > \"$out.timeout\"\n" +
+            "  kill -9 -$pid 2>/dev/null || kill -9 $pid 2>/dev/null\n" +
+            ") &\n" +
+            "wd=$!\n" +
+            "exec 2>/dev/null\n" +
+            "hwm=0; running=1\n" +
+            "while [ $running -eq 1 ]; do\n" +
+            "  running=0\n" +
+            "  while read -r k v _; do\n" +
+            "    case $k in\n" +
+            "      State:) [ \"$v\" != Z ] && running=1 ;;\n" +
+            "      VmHWM:) [ \"$v\" -gt \"$hwm\" ] && hwm=$v ;;\n" +
+            "    esac\n" +
+            "  done 2>/dev/null < /proc/$pid/status\n" +
+            "  if [ $running -eq 1 ] && [ \"$mem\" -gt 0 ] && [ \"$hwm\" -gt \"$mem\" ]; then\n" +
+            "    mle=1; kill -9 -$pid 2>/dev/null || kill -9 $pid 2>/dev/null\n" +
+            "  fi\n" +
+            "  [ $running -eq 1 ] && sleep 0.01\n" +
+            "done\n" +
+            "wait $pid; code=$?\n" +
+            "stamp; t1=$t\n" +
+            "kill $wd 2>/dev/null\n" +
+            "wait $wd 2>/dev/null\n" +
+            "if [ -f \"$out.timeout\" ]; then timed_out=1; rm -f \"$out.timeout\"; fi\n" +
+            "finish process $((hwm * 1024))\n";
+
+    private ProgramLauncher() {
+    }
+
+    /**
+     * 生成启动命令
+     *
+     * @param command         被测程序命令
+     * @param resultFile      容器内结果文件路径
+     * @param timeLimitMillis 时间限制（毫秒）
+     * @param stdinLength     通过标准输入传入的字节数，-1 表示不使用标准输入
+     * @param cleanupDir      运行结束后删除的容器内工作区，为null表示不删除
+     * @param compileCommand  运行前执行的编译命令，为null表示不编译
+     * @param memoryLimit     被测程序的内存限制（字节），0 表示不限制
+     * @return 启动命令
+     */
+    static String[] wrap(List<String> command, String resultFile, long timeLimitMillis, long stdinLength,
+                         String cleanupDir, List<String> compileCommand, long memoryLimit) {
+        List<String> wrapped = new ArrayList<>();
+        wrapped.add("sh");
+        wrapped.add("-c");
+        wrapped.add(LAUNCH_SCRIPT);
+        wrapped.add("sh");
+        wrapped.add(resultFile);
+        wrapped.add(String.format("%d.%03d", timeLimitMillis / 1000, timeLimitMillis % 1000));
+        wrapped.add(String.valueOf(stdinLength));
+        wrapped.add(cleanupDir != null ? cleanupDir : "-");
+        wrapped.add(compileCommand != null ? quote(compileCommand) : "");
+        wrapped.add(String.valueOf(Math.max(0, memoryLimit) / 1024));
+        wrapped.addAll(command);
+        return wrapped.toArray(new String[0]);
+    }
+
+    /**
+     * 把命令转义为单引号包裹的 shell 命令
+     */
+    static String quote(List<String> command) {
+        StringBuilder builder = new StringBuilder();
+        for (String arg : command) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append('\'').append(arg.replace("'", "'\\''")).append('\'');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 读取并删除结果文件
+     *
+     * @param hostResultFile 宿主机上的结果文件
+     * @return 运行结果，无法读取时返回 {@link Result#UNAVAILABLE}
+     */
+    static Result readResult(Path hostResultFile) {
+        try {
+            if (!Files.exists(hostResultFile)) {
+                logger.warning("启动脚本结果文件不存在: " + hostResultFile);
+                return Result.UNAVAILABLE;
+            }
+            Map<String, String> values = new HashMap<>();
+            for (String line : Files.readAllLines(hostResultFile, StandardCharsets.UTF_8)) {
+                int index = line.indexOf('=');
+                if (index > 0) {
+                    values.put(line.substring(0, index).trim(), line.substring(index + 1).trim());
+                }
+            }
+            Files.deleteIfExists(hostResultFile);
+
+            return new Result(
+                    "compile".equals(values.get("stage")),
+                    (int) parseLong(values.get("exit_code"), -1),
+                    values.get("memory_source"),
+                    parseLong(values.get("memory_peak"), -1),
+                    "1".equals(values.get("memory_exceeded")),
+                    parseLong(values.get("cpu_user_us"), 0) + parseLong(values.get("cpu_sys_us"), 0),
+                    parseLong(values.get("wall_us"), -1),
+                    "1".equals(values.get("timed_out")),
+                    "1".equals(values.get("cleaned")));
+        } catch (IOException e) {
+            logger.warning("读取启动脚本结果失败: " + e.getMessage());
+            return Result.UNAVAILABLE;
+        }
+    }
+
+    /**
+     * 等待启动脚本写出被测程序的进程组号
+     *
+     * @param hostResultFile 宿主机上的结果文件
+     * @param timeoutMillis  最长等待时间（毫秒）
+     * @return 进程组号（未使用 setsid 时为进程号），超时或脚本已结束时返回 -1
+     */
+    static long awaitProcessGroup(Path hostResultFile, long timeoutMillis) throws InterruptedException {
+        Path pidFile = hostResultFile.resolveSibling(hostResultFile.getFileName() + ".pid");
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                long pid = parseLong(new String(Files.readAllBytes(pidFile), StandardCharsets.US_ASCII).trim(), -1);
+                if (pid > 0) {
+                    return pid;
+                }
+            } catch (IOException e) {
+                // 尚未写出
+            }
+            Thread.sleep(RESULT_POLL_INTERVAL_MILLIS);
+        }
+        return -1;
+    }
+
+    /**
+     * 等待启动脚本写出结果文件后读取并删除
+     *
+     * @param hostResultFile 宿主机上的结果文件
+     * @param timeoutMillis  最长等待时间（毫秒）
+     * @return 运行结果，超时仍未写出时返回 {@link Result#UNAVAILABLE}
+     */
+    static Result awaitResult(Path hostResultFile, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!Files.exists(hostResultFile) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(RESULT_POLL_INTERVAL_MILLIS);
+        }
+        return readResult(hostResultFile);
+    }
+
+    /**
+     * 结果文件是否记录了编译失败（不删除结果文件），结果文件不存在时返回 false
+     * 用于在输出超限、输出不一致等提前停止的情况下优先判定编译错误
+     *
+     * @param hostResultFile 宿主机上的结果文件
+     */
+    static boolean isCompileFailed(Path hostResultFile) {
+        try {
+            return Files.exists(hostResultFile)
+                    && Files.readAllLines(hostResultFile, StandardCharsets.UTF_8).contains("stage=compile");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 删除被中途终止的启动脚本留下的结果文件和临时文件
+     *
+     * @param hostResultFile 宿主机上的结果文件
+     */
+    static void discard(Path hostResultFile) {
+        for (String suffix : new String[]{"", ".timeout", ".log", ".pid"}) {
+            try {
+                Files.deleteIfExists(hostResultFile.resolveSibling(hostResultFile.getFileName() + suffix));
+            } catch (IOException e) {
+                logger.fine("删除启动脚本临时文件失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 单次运行的结构化结果
+     */
+    static final class Result {
+        static final Result UNAVAILABLE = new Result(false, -1, null, -1, false, 0, -1, false, false);
+
+        private final boolean compileFailed;
+        private final int exitCode;
+        private final String memorySource;
+        private final long peakMemory;
+        private final boolean memoryExceeded;
+        private final long cpuTimeMicros;
+        private final long wallTimeMicros;
+        private final boolean timedOut;
+        private final boolean cleaned;
+
+        Result(boolean compileFailed, int exitCode, String memorySource, long peakMemory, boolean memoryExceeded,
+               long cpuTimeMicros, long wallTimeMicros, boolean timedOut, boolean cleaned) {
+            this.compileFailed = compileFailed;
+            this.exitCode = exitCode;
+            this.memorySource = memorySource;
+            this.peakMemory = peakMemory;
+            this.memoryExceeded = memoryExceeded;
+            this.cpuTimeMicros = cpuTimeMicros;
+            this.wallTimeMicros = wallTimeMicros;
+            this.timedOut = timedOut;
+            this.cleaned = cleaned;
+        }
+
+        /**
+         * 是否在编译阶段失败（此时没有运行被测程序）
+         */
+        boolean isCompileFailed() {
+            return compileFailed;
+        }
+
+        /**
+         * 编译器或被测程序的退出码，未测得时为 -1
+         */
+        int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * 峰值内存（字节），未测得时为 -1
+         * 启动脚本取进程的 VmHWM（memory_source=process），Python fork 服务器和 Node 进程池取子进程的 ru_maxrss（rusage）；
+         * 常驻 JVM 不上报内存（none）
+         */
+        long getPeakMemory() {
+            return isProcessMemory() ? peakMemory : -1;
+        }
+
+        /**
+         * 峰值内存是否是被测进程的常驻内存高水位，只有这类读数可以与内存限制比较
+         */
+        boolean isProcessMemory() {
+            return "process".equals(memorySource) || "rusage".equals(memorySource);
+        }
+
+        /**
+         * 被测程序是否超出内存限制：运行中已被终止，或进程级峰值内存超过限制
+         *
+         * @param memoryLimit 内存限制（字节），0 表示不限制
+         */
+        boolean isMemoryLimitExceeded(long memoryLimit) {
+            return memoryExceeded || (memoryLimit > 0 && isProcessMemory() && peakMemory > memoryLimit);
+        }
+
+        /**
+         * 用户态 + 内核态 CPU 时间（微秒）
+         */
+        long getCpuTimeMicros() {
+            return cpuTimeMicros;
+        }
+
+        /**
+         * 被测程序的墙钟时间（微秒），未测得时为 -1
+         */
+        long getWallTimeMicros() {
+            return wallTimeMicros;
+        }
+
+        /**
+         * 被测程序是否因超过时间限制被看门狗终止
+         */
+        boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * 脚本是否已删除工作区
+         */
+        boolean isCleaned() {
+            return cleaned;
+        }
+    }
+}
@@ -1,18 +1,17 @@
 package fun.timu.oj.shandbox.docker.executor;
 
-import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
-import com.github.dockerjava.api.model.Bind;
-import com.github.dockerjava.api.model.HostConfig;
-import com.github.dockerjava.api.model.Volume;
 import fun.timu.oj.shandbox.docker.entity.ExecutionMetrics;
 import fun.timu.oj.shandbox.docker.entity.ExecutionResult;
 import fun.timu.oj.shandbox.docker.entity.PythonExecutionMetrics;
+import fun.timu.oj.shandbox.docker.pool.ContainerLease;
 import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import fun.timu.oj.shandbox.docker.pool.RunnerAgent;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Properties;
 
 /**
  * Python代码执行器
@@ -21,6 +20,12 @@ import java.util.concurrent.atomic.AtomicLong;
 public class PythonDockerExecutor extends AbstractDockerExecutor<ExecutionResult> {
     private static final String DOCKER_IMAGE = "python:3.9-slim";
 
+    // 池容器内 fork 服务器的配置，所有实例共享
+    private static volatile boolean forkServerEnabled = false;
+    private static volatile int forkServerMaxRuns = 1000;
+
+    private final WarmRuntime forkServer = WarmRuntime.python(dockerClient);
+
     public PythonDockerExecutor() {
         super(DOCKER_IMAGE, PythonDockerExecutor.class.getName());
     }
@@ -29,6 +34,17 @@ public class PythonDockerExecutor extends AbstractDockerExecutor<ExecutionResult
         super(DOCKER_IMAGE, PythonDockerExecutor.class.getName(), pullImageAlways);
     }
 
+    /**
+     * 配置池容器内的 Python fork 服务器
+     *
+     * @param enabled 是否启用，启用后池容器内的 Python 程序由预先导入标准库的服务器 fork 出子进程运行，省去解释器启动
+     * @param maxRuns 每个服务器最多运行的次数，达到后退出并由下一次运行重新启动
+     */
+    public static void configureForkServer(boolean enabled, int maxRuns) {
+        forkServerEnabled = enabled;
+        forkServerMaxRuns = Math.max(1, maxRuns);
+    }
+
     @Override
     protected String getCodeFileName() {
         return "solution.py";
@@ -54,424 +70,105 @@ public class PythonDockerExecutor extends AbstractDockerExecutor<ExecutionResult
         // Python不需要额外的处理
     }
 
+    /**
+     * 检查Python版本（确认环境正确）
+     */
     @Override
-    protected ExecutionMetrics executeInContainer(String pythonFileName, String expectedOutput) throws Exception {
-        String containerId = null;
-        long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            // 尝试使用长期运行容器
-            if (enableContainerReuse) {
-                try {
-                    LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-                    if (containerInfo != null) {
-                        containerId = containerInfo.getContainerId();
-                        usingLongRunningContainer = true;
-                        logger.info("使用长期运行容器: " + containerId);
-                        
-                        // 复制代码文件到容器
-                        containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                    }
-                } catch (Exception e) {
-                    logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
-                    containerId = null;
-                }
-            }
-
-            // 如果没有使用长期运行容器，使用传统方式
-            if (containerId == null) {
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig()
-                        .withBinds(bind)
-                        .withMemory((long) MEMORY_LIMIT)
-                        .withCpuCount((long) CPU_LIMIT)
-                        .withNetworkMode("none"); // 隔离网络
-
-                logger.info("创建容器...");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
-                        .withHostConfig(hostConfig)
-                        .withWorkingDir(WORK_DIR)
-                        // 使用命令保持容器运行
-                        .withCmd("tail", "-f", "/dev/null")
-                        .exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器...");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待一小段时间确保容器启动完成
-                Thread.sleep(1000);
-
-                // 检查容器是否在运行
-                boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-                if (!isRunning) {
-                    throw new RuntimeException("容器未能成功启动，请检查Docker服务和镜像是否正常");
-                }
-
-                logger.info("容器已启动并正在运行");
-            }
-
-            // 检查Python版本（确认环境正确）
-            ExecCreateCmdResponse versionCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("python", "--version")
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution versionExec = executeCommand(versionCmd.getId());
-            logger.info("Python版本: " + versionExec.getOutput().trim());
-
-            if (versionExec.getExitCode() != 0) {
-                throw new RuntimeException("Python环境异常，无法获取Python版本: " + versionExec.getOutput());
-            }
-
-            // 执行Python程序
-            logger.info("执行Python代码: " + pythonFileName);
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("python", WORK_DIR + "/" + pythonFileName)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 获取容器统计信息以获取内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new PythonExecutionMetrics(
-                    exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR",
-                    output,
-                    System.currentTimeMillis() - startTime,
-                    memoryUsage.get(),
-                    matched);
-
-        } finally {
-            if (usingLongRunningContainer && containerId != null) {
-                // 清理工作目录而不是删除容器
-                try {
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -rf " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录失败: " + e.getMessage());
-                }
-            }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // 容器将在应用结束时统一清理
-            // cleanupContainer(containerId);
+    protected ExecutionMetrics prepareInContainer(ExecutionContext context, String pythonFileName) throws Exception {
+        ExecCreateCmdResponse versionCmd = dockerClient.execCreateCmd(context.getContainerId())
+                .withCmd("python", "--version")
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec();
+
+        CompletedExecution versionExec = executeCommand(versionCmd.getId());
+        logger.info("Python版本: " + versionExec.getOutput().trim());
+
+        if (versionExec.getExitCode() != 0) {
+            throw new RuntimeException("Python环境异常，无法获取Python版本: " + versionExec.getOutput());
         }
+        return null;
     }
 
+    /**
+     * 运行Python脚本
+     */
     @Override
-    protected ExecutionMetrics executeInContainerWithArgs(String pythonFileName, String[] args, String expectedOutput) throws Exception {
-        String containerId = null;
+    protected ExecutionMetrics runInContainer(ExecutionContext context, String pythonFileName, String[] args, String testFileName, String expectedOutput) throws Exception {
         long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            // 尝试使用长期运行容器
-            if (enableContainerReuse) {
-                try {
-                    LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-                    if (containerInfo != null) {
-                        containerId = containerInfo.getContainerId();
-                        usingLongRunningContainer = true;
-                        logger.info("使用长期运行容器(带参数): " + containerId);
-                        
-                        // 复制代码文件到容器
-                        containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                    }
-                } catch (Exception e) {
-                    logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
-                    containerId = null;
-                }
-            }
-
-            // 如果没有使用长期运行容器，使用传统方式
-            if (containerId == null) {
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig()
-                        .withBinds(bind)
-                        .withMemory((long) MEMORY_LIMIT)
-                        .withCpuCount((long) CPU_LIMIT)
-                        .withNetworkMode("none"); // 隔离网络
-
-                logger.info("创建Docker容器(带参数)...");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
-                        .withHostConfig(hostConfig)
-                        .withWorkingDir(WORK_DIR)
-                        // 使用命令保持容器运行
-                        .withCmd("tail", "-f", "/dev/null")
-                        .exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器...");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待一小段时间确保容器启动完成
-                Thread.sleep(1000);
-
-                // 检查容器是否在运行
-                boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-                if (!isRunning) {
-                    throw new RuntimeException("容器未能成功启动，请检查Docker服务和镜像是否正常");
-                }
-
-                logger.info("容器已启动并正在运行");
-            }
+        String workDir = context.getWorkDir();
 
-            // 检查Python版本（确认环境正确）
-            ExecCreateCmdResponse versionCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("python", "--version")
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution versionExec = executeCommand(versionCmd.getId());
-            logger.info("Python版本: " + versionExec.getOutput().trim());
-
-            if (versionExec.getExitCode() != 0) {
-                throw new RuntimeException("Python环境异常，无法获取Python版本: " + versionExec.getOutput());
-            }
-
-            // 构建命令行参数列表
-            List<String> cmdList = new ArrayList<>();
-            cmdList.add("python");
-            cmdList.add(WORK_DIR + "/" + pythonFileName);
+        // 构建命令行参数列表
+        List<String> cmdList = new ArrayList<>();
+        cmdList.add("python");
+        cmdList.add(workDir + "/" + pythonFileName);
 
+        if (testFileName != null) {
+            // 传递测试文件路径作为参数
+            cmdList.add(workDir + "/" + testFileName);
+        } else if (args != null) {
             // 添加所有参数
-            if (args != null) {
-                for (String arg : args) {
-                    cmdList.add(arg);
-                }
+            for (String arg : args) {
+                cmdList.add(arg);
             }
-
-            logger.info("执行命令: " + String.join(" ", cmdList));
-
-            // 执行Python程序(带参数)
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd(cmdList.toArray(new String[0]))
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 获取容器统计信息以获取内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new PythonExecutionMetrics(
-                    exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR",
-                    output,
-                    System.currentTimeMillis() - startTime,
-                    memoryUsage.get(),
-                    matched);
-
-        } finally {
-            if (usingLongRunningContainer && containerId != null) {
-                // 清理工作目录而不是删除容器
-                try {
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -rf " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录失败: " + e.getMessage());
-                }
-            }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // 容器将在应用结束时统一清理
-            // cleanupContainer(containerId);
         }
-    }
-
-    @Override
-    protected ExecutionMetrics executeInContainerWithTestFile(String pythonFileName, String testFileName, String expectedOutput) throws Exception {
-        String containerId = null;
-        long startTime = System.currentTimeMillis();
-        AtomicLong memoryUsage = new AtomicLong(0);
-        boolean usingLongRunningContainer = false;
-
-        try {
-            // 尝试使用长期运行容器
-            if (enableContainerReuse) {
-                try {
-                    LongRunningContainerManager.ContainerInfo containerInfo = getOrCreateLongRunningContainer(getLanguageIdentifier());
-                    if (containerInfo != null) {
-                        containerId = containerInfo.getContainerId();
-                        usingLongRunningContainer = true;
-                        logger.info("使用长期运行容器(带测试文件): " + containerId);
-                        
-                        // 复制代码文件到容器
-                        containerManager.copyCodeToContainer(containerInfo, tempDirectory);
-                    }
-                } catch (Exception e) {
-                    logger.warning("长期运行容器不可用，回退到传统模式: " + e.getMessage());
-                    containerId = null;
-                }
-            }
 
-            // 如果没有使用长期运行容器，使用传统方式
-            if (containerId == null) {
-                // 准备卷绑定用于代码目录
-                Volume codeVolume = new Volume(WORK_DIR);
-                Bind bind = new Bind(tempDirectory.toAbsolutePath().toString(), codeVolume);
-
-                // 创建容器
-                HostConfig hostConfig = HostConfig.newHostConfig()
-                        .withBinds(bind)
-                        .withMemory((long) MEMORY_LIMIT)
-                        .withCpuCount((long) CPU_LIMIT)
-                        .withNetworkMode("none"); // 隔离网络
-
-                logger.info("创建Docker容器(带测试文件)...");
-                CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
-                        .withHostConfig(hostConfig)
-                        .withWorkingDir(WORK_DIR)
-                        // 使用命令保持容器运行
-                        .withCmd("tail", "-f", "/dev/null")
-                        .exec();
-
-                containerId = container.getId();
-                createdContainers.add(containerId);
-                logger.info("容器创建成功: " + containerId);
-
-                // 启动容器
-                logger.info("启动容器...");
-                dockerClient.startContainerCmd(containerId).exec();
-
-                // 等待一小段时间确保容器启动完成
-                Thread.sleep(1000);
-
-                // 检查容器是否在运行
-                boolean isRunning = dockerClient.inspectContainerCmd(containerId).exec().getState().getRunning();
-                if (!isRunning) {
-                    throw new RuntimeException("容器未能成功启动，请检查Docker服务和镜像是否正常");
-                }
-
-                logger.info("容器已启动并正在运行");
-            }
+        logger.info("执行命令: " + String.join(" ", cmdList));
 
-            // 检查Python版本（确认环境正确）
-            ExecCreateCmdResponse versionCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("python", "--version")
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
+        // 执行Python程序
+        CompletedExecution exec = executeProgram(context, cmdList, expectedOutput);
+        String output = exec.getOutput().trim();
+        logger.info("代码执行完成，输出: " + output);
+        logger.info("退出代码: " + exec.getExitCode());
 
-            CompletedExecution versionExec = executeCommand(versionCmd.getId());
-            logger.info("Python版本: " + versionExec.getOutput().trim());
+        boolean matched = expectedOutput != null && exec.isOutputMatched();
+        return new PythonExecutionMetrics(
+                resolveStatus(exec),
+                output,
+                resolveExecutionTime(exec, startTime),
+                exec.getPeakMemory(),
+                matched,
+                exec.getCpuTime());
+    }
 
-            if (versionExec.getExitCode() != 0) {
-                throw new RuntimeException("Python环境异常，无法获取Python版本: " + versionExec.getOutput());
-            }
+    /**
+     * 池容器内的 fork 服务器已就绪时，由它 fork 出子进程运行脚本
+     * 服务器未就绪时在后台启动它，本次运行仍走启动脚本
+     */
+    @Override
+    protected RunnerAgent.Job submitToRuntime(ExecutionContext context, List<String> command, List<String> compileCommand,
+                                              String resultFile, String cleanupDir, byte[] stdin, long outputLimit) throws InterruptedException {
+        ContainerLease lease = context.getLease();
+        if (!forkServerEnabled || lease == null || compileCommand != null) {
+            return null;
+        }
+        LongRunningContainerManager.ContainerInfo containerInfo = lease.getContainerInfo();
+        if (!forkServer.ensureRunning(containerInfo, forkServerMaxRuns, context.getMemoryLimit())) {
+            return null;
+        }
 
-            // 检查测试文件是否存在
-            ExecCreateCmdResponse checkFileCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("ls", "-la", WORK_DIR)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution checkFileExec = executeCommand(checkFileCmd.getId());
-            logger.info("目录内容: " + checkFileExec.getOutput().trim());
-
-            // 验证测试文件是否存在和可读
-            ExecCreateCmdResponse catFileCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("cat", WORK_DIR + "/" + testFileName)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution catFileExec = executeCommand(catFileCmd.getId());
-            logger.info("测试文件内容可读性检查: " + (catFileExec.getExitCode() == 0 ? "成功" : "失败"));
-
-            if (catFileExec.getExitCode() != 0) {
-                logger.severe("测试文件无法读取: " + catFileExec.getOutput());
-                return new PythonExecutionMetrics(
-                        "FILE_ERROR",
-                        "测试文件无法读取: " + catFileExec.getOutput(),
-                        System.currentTimeMillis() - startTime,
-                        0,
-                        false);
-            }
+        // 运行命令为 python <脚本> [参数...]
+        Properties job = new Properties();
+        job.setProperty("script", command.get(1));
+        for (int i = 2; i < command.size(); i++) {
+            job.setProperty("arg." + (i - 2), command.get(i));
+        }
+        job.setProperty("cwd", WORK_DIR);
+        job.setProperty("result", resultFile);
+        if (cleanupDir != null) {
+            job.setProperty("cleanup", cleanupDir);
+        }
+        job.setProperty("limit_ms", String.valueOf(context.getTimeLimitMillis()));
 
-            // 执行Python代码(传递测试文件路径作为参数)
-            logger.info("执行Python代码(带测试文件): " + pythonFileName);
-            ExecCreateCmdResponse execCmd = dockerClient.execCreateCmd(containerId)
-                    .withCmd("python", WORK_DIR + "/" + pythonFileName, WORK_DIR + "/" + testFileName)
-                    .withAttachStdout(true)
-                    .withAttachStderr(true)
-                    .exec();
-
-            CompletedExecution exec = executeCommand(execCmd.getId());
-            String output = exec.getOutput().trim();
-            logger.info("代码执行完成，输出: " + output);
-            logger.info("退出代码: " + exec.getExitCode());
-
-            // 获取容器统计信息以获取内存使用情况
-            memoryUsage = collectContainerMemoryUsage(containerId);
-
-            boolean matched = expectedOutput != null && output.equals(expectedOutput.trim());
-            return new PythonExecutionMetrics(
-                    exec.getExitCode() == 0 ? "COMPLETED" : "RUNTIME_ERROR",
-                    output,
-                    System.currentTimeMillis() - startTime,
-                    memoryUsage.get(),
-                    matched);
-
-        } finally {
-            if (usingLongRunningContainer && containerId != null) {
-                // 清理工作目录而不是删除容器
-                try {
-                    ExecCreateCmdResponse cleanupCmd = dockerClient.execCreateCmd(containerId)
-                            .withCmd("sh", "-c", "rm -rf " + WORK_DIR + "/*")
-                            .withAttachStdout(true)
-                            .withAttachStderr(true)
-                            .exec();
-                    executeCommand(cleanupCmd.getId());
-                    logger.info("已清理长期运行容器的工作目录");
-                } catch (Exception e) {
-                    logger.warning("清理长期运行容器工作目录失败: " + e.getMessage());
-                }
+        try {
+            RunnerAgent.Job submitted = forkServer.submit(containerInfo, context.getExecutionId(), job, stdin, outputLimit);
+            if (submitted != null) {
+                logger.info("已派发给 fork 服务器: " + submitted.getId());
             }
-            // 注释掉：不再每次执行后清理容器，提升性能
-            // 容器将在应用结束时统一清理
-            // cleanupContainer(containerId);
+            return submitted;
+        } catch (IOException e) {
+            logger.warning("派发 fork 服务器任务失败: " + e.getMessage());
+            return null;
         }
     }
 
@@ -484,24 +181,34 @@ public class PythonDockerExecutor extends AbstractDockerExecutor<ExecutionResult
     protected ExecutionResult calculateAverageMetrics(List<ExecutionMetrics> metrics) {
         long totalExecutionTime = 0;
         long totalMemoryUsed = 0;
+        long totalCpuTime = 0;
         long maxExecutionTime = 0;
-        long maxMemoryUsed = 0;
+        long maxMemoryUsed = -1; // 没有任何一次运行测得内存时为 -1
+        long maxCpuTime = 0;
+        int memoryMeasured = 0;
 
         for (ExecutionMetrics metric : metrics) {
             totalExecutionTime += metric.getExecutionTime();
-            totalMemoryUsed += metric.getMemoryUsed();
+            if (metric.getMemoryUsed() >= 0) {
+                totalMemoryUsed += metric.getMemoryUsed();
+                memoryMeasured++;
+            }
+            totalCpuTime += metric.getCpuTime();
 
             maxExecutionTime = Math.max(maxExecutionTime, metric.getExecutionTime());
             maxMemoryUsed = Math.max(maxMemoryUsed, metric.getMemoryUsed());
+            maxCpuTime = Math.max(maxCpuTime, metric.getCpuTime());
         }
 
         int size = metrics.size();
         ExecutionResult result = new ExecutionResult();
         result.setExecutionResults(metrics);
         result.setAverageExecutionTime(size > 0 ? totalExecutionTime / size : 0);
-        result.setAverageMemoryUsed(size > 0 ? totalMemoryUsed / size : 0);
+        result.setAverageMemoryUsed(memoryMeasured > 0 ? totalMemoryUsed / memoryMeasured : -1);
         result.setMaxExecutionTime(maxExecutionTime);
         result.setMaxMemoryUsed(maxMemoryUsed);
+        result.setAverageCpuTime(size > 0 ? totalCpuTime / size : 0);
+        result.setMaxCpuTime(maxCpuTime);
         result.setSuccess(true);
 
         return result;
@@ -0,0 +1,234 @@
+package fun.timu.oj.shandbox.docker.executor;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.model.Frame;
+import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import fun.timu.oj.shandbox.docker.pool.RunnerAgent;
+import fun.timu.oj.shandbox.docker.runner.WarmJvmRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 池容器内常驻语言运行时的宿主机端
+ * 负责把运行时的文件安装到池容器的运行时目录、在容器内启动常驻进程、判断进程是否存活和派发任务，
+ * 任务按 {@link RunnerAgent} 的协议派发，任务内容为 {@link Properties}，由运行时解释。
+ * 运行时目录以只读方式挂载到池容器（{@link LongRunningContainerManager#RUNTIME_DIR}），只有宿主机能写入，
+ * 被测程序无法替换常驻进程的代码；容器工作目录下的任务目录只存放管道、锁、就绪标记和任务文件。
+ * 常驻进程未就绪时本次运行仍走启动脚本，同时在后台启动常驻进程，调用方不等待运行时启动。
+ * <p>
+ * 能使用文件锁的运行时在存活期间持有任务目录下 lock 文件的锁，宿主机用共享锁试探即可判断进程是否存活，
+ * 进程被 kill -9 -1 等方式终止后锁自动释放，下次运行时重新启动；新实例启动后先等待锁，上一个实例退出后才接管任务目录。
+ * 没有文件锁接口的运行时（Node）只看就绪标记，任务未被及时领取时撤下就绪标记，下次运行时重新启动。
+ */
+final class WarmRuntime {
+    private static final Logger logger = Logger.getLogger(WarmRuntime.class.getName());
+
+    // 启动中的常驻进程超过该时间仍未就绪时重新启动（毫秒）
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+    // 运行时文件在应用类路径中的位置
+    private static final String RUNNER_RESOURCE_DIR = "/" + WarmJvmRunner.class.getPackage().getName().replace('.', '/') + "/";
+
+    // 启动脚本的公共部分，$1 为任务目录，$2 为最多运行次数，$3 为内存上限（MB），其余为运行时自己的参数
+    private static final String START_PREFIX = "cd \"$1\" && { [ -p ctl ] || mkfifo -m 666 ctl; } && exec ";
+
+    private final DockerClient dockerClient;
+    // 运行时名称（用于日志）
+    private final String name;
+    // 任务目录名（位于容器工作目录下，与各执行的子工作区同级），同时也是运行时目录下的安装目录名
+    private final String dirName;
+    // 需要安装的文件：安装目录下的相对路径 -> 类路径资源
+    private final Map<String, String> files;
+    // 是否通过 lock 文件判断进程存活
+    private final boolean locking;
+    private final String startScript;
+
+    private WarmRuntime(DockerClient dockerClient, String name, String dirName, Map<String, String> files, boolean locking,
+                        String startCommand) {
+        this.dockerClient = dockerClient;
+        this.name = name;
+        this.dirName = dirName;
+        this.files = files;
+        this.locking = locking;
+        this.startScript = START_PREFIX + startCommand + " > runner.log 2>&1";
+    }
+
+    /**
+     * 常驻 JVM（{@link WarmJvmRunner}），在进程内编译并用独立的类加载器运行提交的代码
+     */
+    static WarmRuntime jvm(DockerClient dockerClient) {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (String name : new String[]{"WarmJvmRunner", "WarmJvmRunner$BoundedOutput", "WarmJvmRunner$Outcome", "WarmJvmRunner$Result"}) {
+            files.put("classes" + RUNNER_RESOURCE_DIR + name + ".class", RUNNER_RESOURCE_DIR + name + ".class");
+        }
+        return new WarmRuntime(dockerClient, "JVM", ".jvm", files, true,
+                "java -Xmx\"$3\"m -XX:+UseSerialGC -cp " + home(".jvm") + "/classes " + WarmJvmRunner.class.getName() + " \"$1\" \"$2\"");
+    }
+
+    /**
+     * Python fork 服务器（fork_server.py），预先导入标准库，每次运行 fork 出新的子进程
+     */
+    static WarmRuntime python(DockerClient dockerClient) {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("fork_server.py", RUNNER_RESOURCE_DIR + "fork_server.py");
+        return new WarmRuntime(dockerClient, "Python fork 服务器", ".python", files, true,
+                "python " + home(".python") + "/fork_server.py \"$1\" \"$2\" \"$3\"");
+    }
+
+    /**
+     * Node 进程池（node_pool.js），保持若干个已启动的 node 子进程等待任务，额外参数为空闲子进程数
+     */
+    static WarmRuntime node(DockerClient dockerClient) {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("node_pool.js", RUNNER_RESOURCE_DIR + "node_pool.js");
+        files.put("node_bootstrap.js", RUNNER_RESOURCE_DIR + "node_bootstrap.js");
+        return new WarmRuntime(dockerClient, "Node 进程池", ".node", files, false,
+                "node " + home(".node") + "/node_pool.js \"$1\" \"$2\" \"$3\" \"$4\"");
+    }
+
+    /**
+     * 运行时文件在容器内的安装目录
+     */
+    private static String home(String dirName) {
+        return LongRunningContainerManager.RUNTIME_DIR + "/" + dirName;
+    }
+
+    /**
+     * 检查容器内的常驻进程是否可以领取任务，没有在运行（也没有正在启动）时在后台启动
+     *
+     * @param containerInfo 池容器
+     * @param maxRuns       每个常驻进程最多运行的次数
+     * @param memoryLimit   内存上限（字节）
+     * @param extraArgs     运行时自己的启动参数
+     * @return 常驻进程已就绪时返回 true
+     */
+    boolean ensureRunning(LongRunningContainerManager.ContainerInfo containerInfo, int maxRuns, long memoryLimit, String... extraArgs) {
+        Path dir = containerInfo.getHostWorkDir().resolve(dirName);
+        if (Files.exists(dir.resolve("ready")) && (!locking || isLocked(dir))) {
+            return true;
+        }
+
+        try {
+            Path starting = dir.resolve("starting");
+            if (Files.exists(starting)
+                    && System.currentTimeMillis() - Files.getLastModifiedTime(starting).toMillis() < STARTUP_TIMEOUT_MILLIS) {
+                return false;
+            }
+            start(containerInfo, dir, maxRuns, memoryLimit, extraArgs);
+        } catch (Exception e) {
+            logger.warning("启动常驻" + name + "失败: " + containerInfo.getContainerId() + ", 错误: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 向常驻进程派发任务
+     *
+     * @param containerInfo 池容器
+     * @param jobPrefix     任务编号前缀
+     * @param job           任务内容
+     * @param stdin         标准输入内容，为null表示不使用标准输入
+     * @param outputLimit   标准输出和标准错误各自最多保留的字节数，0表示不限制
+     * @return 已被领取的任务，未能及时领取时返回null
+     */
+    RunnerAgent.Job submit(LongRunningContainerManager.ContainerInfo containerInfo, String jobPrefix, Properties job,
+                           byte[] stdin, long outputLimit) throws IOException, InterruptedException {
+        StringWriter content = new StringWriter();
+        job.store(content, null);
+        Path dir = containerInfo.getHostWorkDir().resolve(dirName);
+        RunnerAgent.Job submitted = RunnerAgent.submit(dir, jobPrefix, content.toString(), stdin, outputLimit);
+        if (submitted == null) {
+            // 进程已经不在领取任务，撤下就绪标记，下次运行时重新启动
+            logger.warning("常驻" + name + "未领取任务，将重新启动: " + containerInfo.getContainerId());
+            Files.deleteIfExists(dir.resolve("ready"));
+        }
+        return submitted;
+    }
+
+    /**
+     * 安装运行时文件并在容器内以分离模式启动常驻进程
+     */
+    private void start(LongRunningContainerManager.ContainerInfo containerInfo, Path dir, int maxRuns, long memoryLimit,
+                       String[] extraArgs) throws Exception {
+        install(LongRunningContainerManager.getInstance().getHostRuntimeDir().resolve(dirName));
+        Files.createDirectories(dir);
+        Path lock = dir.resolve("lock");
+        if (locking && !Files.exists(lock)) {
+            Files.createFile(lock);
+        }
+        Files.deleteIfExists(dir.resolve("ready"));
+        Files.write(dir.resolve("starting"), new byte[0]);
+
+        List<String> command = new ArrayList<>(Arrays.asList("sh", "-c", startScript, "sh",
+                AbstractDockerExecutor.WORK_DIR + "/" + dirName, String.valueOf(maxRuns), String.valueOf(memoryLimit / 1024 / 1024)));
+        command.addAll(Arrays.asList(extraArgs));
+        ExecCreateCmdResponse startCmd = dockerClient.execCreateCmd(containerInfo.getContainerId())
+                .withCmd(command.toArray(new String[0]))
+                .exec();
+        dockerClient.execStartCmd(startCmd.getId())
+                .withDetach(true)
+                .exec(new ResultCallback.Adapter<Frame>())
+                .awaitCompletion(5, TimeUnit.SECONDS);
+        logger.info("已在容器内启动常驻" + name + ": " + containerInfo.getContainerId());
+    }
+
+    /**
+     * 把运行时文件复制到宿主机上的运行时目录（已安装时跳过）
+     * 运行时目录在容器内只读，已安装的文件只可能由宿主机写入；先写临时文件再改名，并发启动时不会读到写了一半的文件
+     */
+    private void install(Path home) throws IOException {
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            Path target = home.resolve(file.getKey());
+            if (Files.exists(target)) {
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (InputStream in = WarmRuntime.class.getResourceAsStream(file.getValue())) {
+                if (in == null) {
+                    throw new IOException("找不到常驻运行时文件: " + file.getValue());
+                }
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 常驻进程是否持有锁（即是否存活）
+     */
+    private boolean isLocked(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir.resolve("lock"), StandardOpenOption.READ)) {
+            FileLock lock = channel.tryLock(0, Long.MAX_VALUE, true);
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (OverlappingFileLockException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package fun.timu.oj.shandbox.docker.pool;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 容器租约
+ * 表示从长期运行容器池中借出的一个容器，使用完毕后通过 close() 归还到池中
+ */
+public class ContainerLease implements AutoCloseable {
+    private final LongRunningContainerManager manager;
+    private final String language;
+    private final LongRunningContainerManager.ContainerInfo containerInfo;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    private volatile boolean broken = false;
+    // 租约期间运行的被测程序数，多测试点会话和批量执行中一个租约会运行多次
+    private final AtomicInteger executions = new AtomicInteger(0);
+
+    ContainerLease(LongRunningContainerManager manager, String language, LongRunningContainerManager.ContainerInfo containerInfo) {
+        this.manager = manager;
+        this.language = language;
+        this.containerInfo = containerInfo;
+    }
+
+    public LongRunningContainerManager.ContainerInfo getContainerInfo() {
+        return containerInfo;
+    }
+
+    public String getContainerId() {
+        return containerInfo.getContainerId();
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * 标记容器已损坏，归还时将直接销毁而不是放回池中
+     */
+    public void markBroken() {
+        this.broken = true;
+    }
+
+    /**
+     * 记录在容器中运行了一次被测程序，归还时计入容器的执行次数
+     */
+    public void recordExecution() {
+        executions.incrementAndGet();
+    }
+
+    /**
+     * 归还容器，重复调用无副作用
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            manager.returnContainer(language, containerInfo, broken, executions.get());
+        }
+    }
+}
@@ -1,30 +1,56 @@
 package fun.timu.oj.shandbox.docker.pool;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
 import com.github.dockerjava.api.command.InspectContainerResponse;
 import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.AccessMode;
 import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.MemoryStatsConfig;
+import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.StatsConfig;
+import com.github.dockerjava.api.model.StreamType;
 import com.github.dockerjava.api.model.Volume;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientConfig;
-import com.github.dockerjava.core.DockerClientImpl;
-import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import fun.timu.oj.shandbox.docker.cleanup.CleanupQueue;
+import fun.timu.oj.shandbox.docker.client.SharedDockerClient;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.Duration;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * 长期运行容器管理器
- * 为每种编程语言维护一个长期运行的容器，通过文件系统隔离实现代码执行复用
+ * 为每种编程语言维护一个长期运行的容器池（最小/最大容器数可配置），执行时借出容器、执行完毕后归还，
+ * 每次执行使用独立的子工作区实现代码执行复用
  */
 public class LongRunningContainerManager {
     private static final Logger logger = Logger.getLogger(LongRunningContainerManager.class.getName());
@@ -36,17 +62,101 @@ public class LongRunningContainerManager {
     // Docker客户端
     private final DockerClient dockerClient;
 
-    // 存储每种语言对应的容器信息
-    private final Map<String, ContainerInfo> languageContainers = new ConcurrentHashMap<>();
+    // 存储每种语言对应的容器池
+    private final Map<String, LanguagePool> languagePools = new ConcurrentHashMap<>();
+
+    // 按语言覆盖的容器池大小配置（{最小容器数, 最大容器数}）
+    private final Map<String, int[]> languagePoolSizes = new ConcurrentHashMap<>();
+
+    // 池内全部容器，按容器ID索引，供Docker事件查找
+    private final Map<String, ContainerInfo> containersById = new ConcurrentHashMap<>();
+
+    // 容器池维护线程（空闲回收、补足最小容器数、后台健康检查）
+    private final ScheduledExecutorService maintenanceScheduler;
+
+    // 容器回收线程（后台创建替换容器）
+    private final ExecutorService recycleExecutor;
+
+    // 归还容器的清理线程（终止遗留进程、删除任务文件后放回池中）
+    private final ExecutorService sanitizeExecutor;
+
+    // 当前的Docker事件订阅
+    private final AtomicReference<ResultCallback.Adapter<Event>> eventSubscription = new AtomicReference<>();
+
+    // 事件订阅断开的时间（秒），重新订阅时从该时间补收断开期间的事件，为0表示订阅正常
+    private volatile long eventsLostSince;
 
     // 管理器是否已关闭
     private final AtomicBoolean shutdown = new AtomicBoolean(false);
 
+    // 宿主机上的常驻运行时目录，首次创建池容器时创建，以只读方式挂载到所有池容器
+    private volatile Path hostRuntimeDir;
+
+    /**
+     * 常驻语言运行时的文件在池容器内的安装目录（只读挂载，只有宿主机能写入）
+     */
+    public static final String RUNTIME_DIR = "/opt/sandbox-runtime";
+
     // 容器配置常量
     private static final String WORK_DIR = "/code";
-    private static final int MEMORY_LIMIT = 512 * 1024 * 1024; // 512MB，比原来增加一些
+    /**
+     * 单个被测程序的内存上限，执行器和常驻运行时都按该值限制被测程序
+     */
+    public static final int PROGRAM_MEMORY_LIMIT = 256 * 1024 * 1024; // 256MB
+    private static final int RUNTIME_MEMORY_RESERVE = 256 * 1024 * 1024; // 为执行代理和常驻语言运行时预留的内存
+    private static final int MEMORY_LIMIT = PROGRAM_MEMORY_LIMIT + RUNTIME_MEMORY_RESERVE; // 池容器的内存上限
     private static final int CPU_LIMIT = 1;
     private static final int CONTAINER_CHECK_INTERVAL = 30; // 秒
+    private static final int EVENT_RESUBSCRIBE_DELAY = 5; // 事件订阅断开后重新订阅的间隔（秒）
+    private static final String POOL_LABEL = "fun.timu.oj.sandbox.pool"; // 池容器标签，值为语言标识
+    private static final int POOL_MAINTENANCE_INTERVAL = 30; // 秒
+    private static final long AGENT_READY_TIMEOUT = 3000; // 等待执行代理就绪的最长时间（毫秒）
+    private static final long CONTAINER_READY_TIMEOUT = 10_000; // 等待池容器就绪的最长时间（毫秒）
+    private static final long READY_PROBE_INITIAL_BACKOFF = 10; // 就绪探测的初始重试间隔（毫秒），每次翻倍
+    private static final long READY_PROBE_MAX_BACKOFF = 500; // 就绪探测的最大重试间隔（毫秒）
+    private static final int RECYCLE_THREADS = 2; // 同时创建替换容器的线程数
+    private static final long RESOURCE_PROBE_TIMEOUT = 5; // 读取容器内存和 /tmp 占用的最长时间（秒）
+    private static final int SANITIZE_THREADS = 2; // 同时清理归还容器的线程数
+
+    // 终止上一个租约遗留的进程：只保留宿主机通过 docker exec 启动的进程（父进程号为0，包括1号进程）
+    // 以及常驻运行时的直接子进程（如 Node 进程池中空闲的子进程）；被测程序遗留的进程要么仍挂在启动它的进程下，
+    // 要么已被1号进程收养，都会被终止。僵尸进程跳过；每轮之间等待被终止的进程退出，多轮后仍有进程存活时视为清理失败
+    private static final String SWEEP_SCRIPT =
+            "self=$$; round=0\n" +
+            "while [ $round -lt 5 ]; do\n" +
+            "  found=0\n" +
+            "  for d in /proc/[0-9]*; do\n" +
+            "    p=${d#/proc/}; [ \"$p\" = \"$self\" ] && continue\n" +
+            "    st=; pp=\n" +
+            "    { while read -r k v _; do case $k in State:) st=$v ;; PPid:) pp=$v; break ;; esac; done < \"$d/status\"; } 2>/dev/null\n" +
+            "    case $pp in ''|0) continue ;; esac\n" +
+            "    [ \"$st\" = Z ] && continue\n" +
+            "    if [ \"$pp\" != 1 ]; then\n" +
+            "      gp=\n" +
+            "      { while read -r k v _; do [ \"$k\" = PPid: ] && { gp=$v; break; }; done < \"/proc/$pp/status\"; } 2>/dev/null\n" +
+            "      [ \"$gp\" = 0 ] && continue\n" +
+            "    fi\n" +
+            "    kill -9 \"$p\" 2>/dev/null && found=1\n" +
+            "  done\n" +
+            "  [ $found = 0 ] && { echo clean; exit 0; }\n" +
+            "  round=$((round + 1)); sleep 0.1\n" +
+            "done\n" +
+            "exit 1\n";
+
+    // 容器池默认配置，可通过 configurePool 覆盖
+    private volatile int defaultMinSize = 1;
+    private volatile int defaultMaxSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private volatile long idleTimeoutMillis = 300_000; // 空闲容器超过该时间且池内容器数大于最小值时回收
+    private volatile long borrowTimeoutMillis = 30_000; // 借出容器的最长等待时间
+    private volatile boolean prewarmEnabled = true;
+    private volatile boolean runnerAgentEnabled = false; // 池容器是否运行常驻执行代理
+    private volatile Path hostWorkRoot = detectHostWorkRoot(); // 挂载目录所在的宿主机目录，为null时使用系统临时目录
+
+    // 容器回收策略，可通过 configureRecycling 覆盖，0 表示不按该条件回收
+    private volatile int recycleMaxExecutions = 500; // 容器执行次数达到该值后替换
+    private volatile long recycleMaxAgeMillis = 3_600_000; // 容器运行超过该时间后替换
+    private volatile long recycleMaxMemoryBytes = 400L * 1024 * 1024; // 空闲容器内存占用超过该值后替换（容器上限见 MEMORY_LIMIT）
+    private volatile long recycleMaxTmpBytes = 50L * 1024 * 1024; // 空闲容器 /tmp 占用超过该值后替换
 
     /**
      * 容器信息内部类
@@ -55,14 +165,24 @@ public class LongRunningContainerManager {
         private final String containerId;
         private final String dockerImage;
         private final Path hostWorkDir;
+        private final long createdTime;
         private volatile long lastUsedTime;
         private final AtomicBoolean healthy = new AtomicBoolean(true);
+        // 已运行的被测程序数（按租约归还时上报的次数累计）
+        private final AtomicInteger executionCount = new AtomicInteger(0);
+        // 是否已开始创建替换容器
+        private final AtomicBoolean recycling = new AtomicBoolean(false);
+        // 替换容器已接管流量，该容器归还时销毁
+        private volatile boolean retired = false;
+        // 容器内的执行代理是否可用
+        private volatile boolean runnerAgentAvailable = false;
 
         public ContainerInfo(String containerId, String dockerImage, Path hostWorkDir) {
             this.containerId = containerId;
             this.dockerImage = dockerImage;
             this.hostWorkDir = hostWorkDir;
-            this.lastUsedTime = System.currentTimeMillis();
+            this.createdTime = System.currentTimeMillis();
+            this.lastUsedTime = this.createdTime;
         }
 
         // Getters
@@ -78,10 +198,26 @@ public class LongRunningContainerManager {
             return hostWorkDir;
         }
 
+        public long getCreatedTime() {
+            return createdTime;
+        }
+
         public long getLastUsedTime() {
             return lastUsedTime;
         }
 
+        public int getExecutionCount() {
+            return executionCount.get();
+        }
+
+        public boolean isRecycling() {
+            return recycling.get();
+        }
+
+        public boolean isRetired() {
+            return retired;
+        }
+
         public boolean isHealthy() {
             return healthy.get();
         }
@@ -97,21 +233,115 @@ public class LongRunningContainerManager {
         public void markHealthy() {
             this.healthy.set(true);
         }
+
+        /**
+         * 开始创建替换容器，同一容器只会成功一次（替换失败后可重试）
+         */
+        boolean startRecycling() {
+            return recycling.compareAndSet(false, true);
+        }
+
+        void cancelRecycling() {
+            recycling.set(false);
+        }
+
+        void markRetired() {
+            this.retired = true;
+        }
+
+        /**
+         * 宿主机上的执行代理目录
+         */
+        public Path getHostAgentDir() {
+            return hostWorkDir.resolve(RunnerAgent.AGENT_DIR);
+        }
+
+        public boolean isRunnerAgentAvailable() {
+            return runnerAgentAvailable;
+        }
+
+        public void setRunnerAgentAvailable(boolean runnerAgentAvailable) {
+            this.runnerAgentAvailable = runnerAgentAvailable;
+        }
+    }
+
+    /**
+     * 单一语言的容器池
+     */
+    private static class LanguagePool {
+        private final String language;
+        private final String dockerImage;
+        private final int minSize;
+        private final int maxSize;
+        // 空闲容器，队首为最近归还的容器
+        private final BlockingDeque<ContainerInfo> idleContainers = new LinkedBlockingDeque<>();
+        // 池内全部容器（空闲 + 借出）
+        private final Set<ContainerInfo> allContainers = ConcurrentHashMap.newKeySet();
+        // 已创建或正在创建的容器数
+        private final AtomicInteger size = new AtomicInteger(0);
+
+        LanguagePool(String language, String dockerImage, int minSize, int maxSize) {
+            this.language = language;
+            this.dockerImage = dockerImage;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * 在未达到最大容器数时占用一个容器名额
+         */
+        boolean tryReserveSlot() {
+            int current;
+            do {
+                current = size.get();
+                if (current >= maxSize) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void releaseSlot() {
+            size.decrementAndGet();
+        }
     }
 
     /**
      * 私有构造函数
      */
     private LongRunningContainerManager() {
-        DockerClientConfig config = DefaultDockerClientConfig.createDefaultConfigBuilder().build();
-        this.dockerClient = DockerClientImpl.getInstance(config,
-                new ApacheDockerHttpClient.Builder()
-                        .dockerHost(config.getDockerHost())
-                        .sslConfig(config.getSSLConfig())
-                        .maxConnections(100)
-                        .connectionTimeout(Duration.ofSeconds(30))
-                        .responseTimeout(Duration.ofSeconds(45))
-                        .build());
+        // 与执行器共用同一个Docker客户端
+        this.dockerClient = SharedDockerClient.getInstance();
+
+        // 启动容器池维护任务
+        this.maintenanceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ContainerPool-Maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenanceScheduler.scheduleWithFixedDelay(this::maintainPools,
+                POOL_MAINTENANCE_INTERVAL, POOL_MAINTENANCE_INTERVAL, TimeUnit.SECONDS);
+        this.maintenanceScheduler.scheduleWithFixedDelay(this::checkContainers,
+                CONTAINER_CHECK_INTERVAL, CONTAINER_CHECK_INTERVAL, TimeUnit.SECONDS);
+
+        // 替换容器在独立线程创建，不占用维护线程
+        AtomicInteger recycleThreadIndex = new AtomicInteger(0);
+        this.recycleExecutor = Executors.newFixedThreadPool(RECYCLE_THREADS, r -> {
+            Thread thread = new Thread(r, "ContainerPool-Recycler-" + recycleThreadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // 归还的容器在独立线程清理，不阻塞归还容器的执行线程
+        AtomicInteger sanitizeThreadIndex = new AtomicInteger(0);
+        this.sanitizeExecutor = Executors.newFixedThreadPool(SANITIZE_THREADS, r -> {
+            Thread thread = new Thread(r, "ContainerPool-Sanitizer-" + sanitizeThreadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // 订阅容器退出事件，借出容器时只读取内存中的健康状态
+        subscribeEvents();
 
         // 添加JVM关闭钩子
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "ContainerManager-Shutdown"));
@@ -134,47 +364,524 @@ public class LongRunningContainerManager {
     }
 
     /**
-     * 获取或创建指定语言的容器
+     * 配置容器池默认参数
+     *
+     * @param minSize              每种语言最少保持的容器数（预热数量）
+     * @param maxSize              每种语言最多创建的容器数
+     * @param idleTimeoutSeconds   空闲容器回收时间（秒）
+     * @param borrowTimeoutSeconds 借出容器的最长等待时间（秒）
+     * @param prewarm              是否在启动时预热容器
+     */
+    public void configurePool(int minSize, int maxSize, long idleTimeoutSeconds, long borrowTimeoutSeconds, boolean prewarm) {
+        this.defaultMaxSize = Math.max(1, maxSize);
+        this.defaultMinSize = Math.max(0, Math.min(minSize, this.defaultMaxSize));
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1, idleTimeoutSeconds));
+        this.borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1, borrowTimeoutSeconds));
+        this.prewarmEnabled = prewarm;
+        logger.info("容器池默认配置: 最小容器数=" + defaultMinSize + ", 最大容器数=" + defaultMaxSize +
+                ", 空闲回收=" + idleTimeoutSeconds + "秒, 借出等待=" + borrowTimeoutSeconds + "秒, 预热=" + prewarm);
+    }
+
+    /**
+     * 配置池容器是否运行常驻执行代理，只影响之后新建的容器
+     *
+     * @param enabled 启用后通过代理派发运行任务，不再为每次运行创建 docker exec
+     */
+    public void configureRunnerAgent(boolean enabled) {
+        this.runnerAgentEnabled = enabled;
+        logger.info("容器池执行代理: " + (enabled ? "启用" : "禁用"));
+    }
+
+    /**
+     * 配置容器回收策略：满足任一条件的容器会在后台创建替换容器，替换容器就绪后接管流量，旧容器随后销毁
+     *
+     * @param maxExecutions 执行次数上限，0 表示不限
+     * @param maxAgeSeconds 容器运行时间上限（秒），0 表示不限
+     * @param maxMemoryMb   空闲容器内存占用上限（MB），0 表示不检查
+     * @param maxTmpMb      空闲容器 /tmp 占用上限（MB），0 表示不检查
+     */
+    public void configureRecycling(int maxExecutions, long maxAgeSeconds, long maxMemoryMb, long maxTmpMb) {
+        this.recycleMaxExecutions = Math.max(0, maxExecutions);
+        this.recycleMaxAgeMillis = TimeUnit.SECONDS.toMillis(Math.max(0, maxAgeSeconds));
+        this.recycleMaxMemoryBytes = Math.max(0, maxMemoryMb) * 1024 * 1024;
+        this.recycleMaxTmpBytes = Math.max(0, maxTmpMb) * 1024 * 1024;
+        logger.info("容器回收策略: 执行次数=" + maxExecutions + ", 运行时间=" + maxAgeSeconds + "秒, 内存=" + maxMemoryMb +
+                "MB, /tmp=" + maxTmpMb + "MB");
+    }
+
+    /**
+     * 配置挂载目录所在的宿主机目录，只影响之后新建的容器和工作区
+     *
+     * @param hostWorkRoot 宿主机目录，为空时优先使用 tmpfs（/dev/shm），不可用时使用系统临时目录
+     */
+    public void configureHostWorkRoot(String hostWorkRoot) {
+        Path root = detectHostWorkRoot();
+        if (hostWorkRoot != null && !hostWorkRoot.isEmpty()) {
+            root = Paths.get(hostWorkRoot);
+            try {
+                Files.createDirectories(root);
+            } catch (IOException e) {
+                logger.warning("无法创建挂载目录所在的宿主机目录，使用系统临时目录: " + hostWorkRoot + ", 错误: " + e.getMessage());
+                root = null;
+            }
+        }
+        this.hostWorkRoot = root;
+        logger.info("挂载目录所在的宿主机目录: " + (root != null ? root : System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * 宿主机有可写的 /dev/shm（tmpfs）时使用它，代码和测试文件、运行结果都不落到磁盘
+     */
+    private static Path detectHostWorkRoot() {
+        Path shm = Paths.get("/dev/shm");
+        return Files.isDirectory(shm) && Files.isWritable(shm) ? shm : null;
+    }
+
+    /**
+     * 按语言覆盖容器池大小，需在该语言的容器池首次使用前调用
+     *
+     * @param language 编程语言标识
+     * @param minSize  最少保持的容器数
+     * @param maxSize  最多创建的容器数
+     */
+    public void configureLanguagePool(String language, int minSize, int maxSize) {
+        int max = Math.max(1, maxSize);
+        languagePoolSizes.put(language, new int[]{Math.max(0, Math.min(minSize, max)), max});
+        logger.info("容器池语言配置: " + language + " -> 最小容器数=" + minSize + ", 最大容器数=" + max);
+    }
+
+    /**
+     * 获取指定语言容器池的最大容器数（按语言覆盖的配置优先）
+     *
+     * @param language 编程语言标识
+     */
+    public int getMaxPoolSize(String language) {
+        LanguagePool pool = languagePools.get(language);
+        if (pool != null) {
+            return pool.maxSize;
+        }
+        int[] sizes = languagePoolSizes.get(language);
+        return sizes != null ? sizes[1] : defaultMaxSize;
+    }
+
+    /**
+     * 从指定语言的容器池借出一个容器
+     * 优先复用空闲容器；没有空闲容器且未达到上限时创建新容器；否则等待其他执行归还
      *
      * @param language    编程语言标识（如 "java", "python", "javascript"）
      * @param dockerImage Docker镜像名称
-     * @return 容器信息
+     * @return 容器租约，使用完毕后必须调用 close() 归还
      */
-    public ContainerInfo getOrCreateContainer(String language, String dockerImage) throws Exception {
+    public ContainerLease borrowContainer(String language, String dockerImage) throws Exception {
         if (shutdown.get()) {
             throw new IllegalStateException("容器管理器已关闭");
         }
 
-        ContainerInfo containerInfo = languageContainers.get(language);
+        LanguagePool pool = getOrCreatePool(language, dockerImage);
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
 
-        // 检查现有容器是否健康
-        if (containerInfo != null && isContainerHealthy(containerInfo)) {
-            containerInfo.updateLastUsedTime();
-            logger.fine("复用现有容器: " + language + " -> " + containerInfo.getContainerId());
-            return containerInfo;
-        }
+        while (true) {
+            // 优先复用空闲容器（后进先出，保持热容器持续被使用）
+            ContainerInfo containerInfo = pool.idleContainers.pollFirst();
+            if (containerInfo != null) {
+                // 健康状态由事件订阅和后台检查维护，借出时不再访问Docker守护进程
+                if (containerInfo.isHealthy()) {
+                    containerInfo.updateLastUsedTime();
+                    logger.fine("复用池中容器: " + language + " -> " + containerInfo.getContainerId());
+                    return new ContainerLease(this, language, containerInfo);
+                }
+                discardContainer(pool, containerInfo);
+                continue;
+            }
 
-        // 如果容器不存在或不健康，创建新容器
-        synchronized (this) {
-            // 双重检查
-            containerInfo = languageContainers.get(language);
-            if (containerInfo != null && isContainerHealthy(containerInfo)) {
-                containerInfo.updateLastUsedTime();
-                return containerInfo;
+            // 未达到上限时创建新容器
+            if (pool.tryReserveSlot()) {
+                try {
+                    containerInfo = createNewContainer(language, dockerImage);
+                } catch (Exception e) {
+                    pool.releaseSlot();
+                    throw e;
+                }
+                pool.allContainers.add(containerInfo);
+                logger.info("为语言 " + language + " 创建新的池容器: " + containerInfo.getContainerId() +
+                        "，当前容器数: " + pool.size.get() + "/" + pool.maxSize);
+                return new ContainerLease(this, language, containerInfo);
             }
 
-            // 清理旧容器（如果存在）
+            // 池已满，等待其他执行归还容器
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("等待 " + language + " 容器超时，当前容器数: " + pool.size.get() + "/" + pool.maxSize);
+            }
+            containerInfo = pool.idleContainers.pollFirst(Math.min(remaining, 500), TimeUnit.MILLISECONDS);
             if (containerInfo != null) {
-                cleanupContainer(containerInfo);
-                languageContainers.remove(language);
+                // 放回队首，由下一轮循环统一检查健康状态
+                pool.idleContainers.offerFirst(containerInfo);
+            }
+        }
+    }
+
+    /**
+     * 归还借出的容器，由 {@link ContainerLease#close()} 调用
+     *
+     * @param language      编程语言标识
+     * @param containerInfo 容器信息
+     * @param broken        容器是否已损坏（损坏的容器直接销毁）
+     * @param executions    本次租约期间运行的被测程序数
+     */
+    void returnContainer(String language, ContainerInfo containerInfo, boolean broken, int executions) {
+        LanguagePool pool = languagePools.get(language);
+        if (pool == null || !pool.allContainers.contains(containerInfo)) {
+            // 容器池已被重启或关闭，直接清理
+            cleanupContainerAsync(containerInfo);
+            return;
+        }
+
+        // 没有运行被测程序的租约（如编译失败）也在容器内执行过命令，至少计一次
+        containerInfo.executionCount.addAndGet(Math.max(1, executions));
+        if (broken || shutdown.get() || !containerInfo.isHealthy()) {
+            discardContainer(pool, containerInfo);
+            return;
+        }
+        if (containerInfo.isRetired()) {
+            // 替换容器已接管流量
+            discardContainer(pool, containerInfo);
+            return;
+        }
+
+        containerInfo.updateLastUsedTime();
+        // 被测程序与执行代理、常驻运行时以同一用户运行，清除上一个租约遗留的进程和任务文件后才放回池中
+        try {
+            sanitizeExecutor.execute(() -> releaseToPool(pool, containerInfo));
+        } catch (RejectedExecutionException e) {
+            discardContainer(pool, containerInfo);
+        }
+    }
+
+    /**
+     * 清理归还的容器并放回池中，清理失败时销毁容器
+     */
+    private void releaseToPool(LanguagePool pool, ContainerInfo containerInfo) {
+        if (!sanitize(containerInfo)) {
+            logger.warning("清理归还的池容器失败，销毁容器: " + containerInfo.getContainerId());
+            discardContainer(pool, containerInfo);
+            return;
+        }
+        if (shutdown.get() || !containerInfo.isHealthy() || containerInfo.isRetired()) {
+            discardContainer(pool, containerInfo);
+            return;
+        }
+        pool.idleContainers.offerFirst(containerInfo);
+
+        String reason = recycleReason(containerInfo);
+        if (reason != null) {
+            scheduleRecycle(pool, containerInfo, reason);
+        }
+    }
+
+    /**
+     * 终止被测程序遗留的进程，再删除代理和常驻运行时任务目录中的任务文件
+     *
+     * @return 是否清理成功
+     */
+    private boolean sanitize(ContainerInfo containerInfo) {
+        StringBuilder output = new StringBuilder();
+        try {
+            ExecCreateCmdResponse exec = dockerClient.execCreateCmd(containerInfo.getContainerId())
+                    .withCmd("sh", "-c", SWEEP_SCRIPT)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            dockerClient.execStartCmd(exec.getId())
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            if (frame.getStreamType() == StreamType.STDOUT) {
+                                output.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                            }
+                        }
+                    })
+                    .awaitCompletion(RESOURCE_PROBE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.warning("终止池容器内的遗留进程失败: " + containerInfo.getContainerId() + ", 错误: " + e.getMessage());
+            return false;
+        }
+        if (!"clean".equals(output.toString().trim())) {
+            return false;
+        }
+
+        // 任务目录都是工作目录下以.开头的目录，各执行的子工作区不以.开头
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(containerInfo.getHostWorkDir(), ".*")) {
+            for (Path dir : dirs) {
+                if (Files.isDirectory(dir)) {
+                    RunnerAgent.purge(dir);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("删除池容器的任务文件失败: " + containerInfo.getContainerId() + ", 错误: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 预热指定语言的容器池，创建容器直到达到最小容器数
+     *
+     * @param language    编程语言标识
+     * @param dockerImage Docker镜像名称
+     */
+    public void prewarm(String language, String dockerImage) {
+        if (!prewarmEnabled || shutdown.get()) {
+            return;
+        }
+
+        LanguagePool pool = getOrCreatePool(language, dockerImage);
+        int created = fillToMinSize(pool);
+        logger.info("容器池预热完成: " + language + "，新建 " + created + " 个容器，当前容器数: " + pool.size.get());
+    }
+
+    /**
+     * 获取或创建指定语言的容器池
+     */
+    private LanguagePool getOrCreatePool(String language, String dockerImage) {
+        return languagePools.computeIfAbsent(language, key -> {
+            int[] sizes = languagePoolSizes.getOrDefault(key, new int[]{defaultMinSize, defaultMaxSize});
+            logger.info("初始化容器池: " + key + "，最小容器数=" + sizes[0] + ", 最大容器数=" + sizes[1]);
+            return new LanguagePool(key, dockerImage, sizes[0], sizes[1]);
+        });
+    }
+
+    /**
+     * 补足容器池的最小容器数
+     *
+     * @return 新建的容器数量
+     */
+    private int fillToMinSize(LanguagePool pool) {
+        int created = 0;
+        while (!shutdown.get() && pool.size.get() < pool.minSize && pool.tryReserveSlot()) {
+            try {
+                ContainerInfo containerInfo = createNewContainer(pool.language, pool.dockerImage);
+                pool.allContainers.add(containerInfo);
+                pool.idleContainers.offerLast(containerInfo);
+                created++;
+            } catch (Exception e) {
+                pool.releaseSlot();
+                logger.warning("预热容器失败: " + pool.language + ", 错误: " + e.getMessage());
+                break;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * 从容器池中移除容器，销毁交给清理队列在后台完成
+     */
+    private void discardContainer(LanguagePool pool, ContainerInfo containerInfo) {
+        if (pool.allContainers.remove(containerInfo)) {
+            pool.releaseSlot();
+        }
+        pool.idleContainers.remove(containerInfo);
+        logger.info("移除池容器: " + pool.language + " -> " + containerInfo.getContainerId());
+        cleanupContainerAsync(containerInfo);
+    }
+
+    /**
+     * 由清理队列在后台停止并删除容器，不阻塞借出或归还容器的执行线程
+     */
+    private void cleanupContainerAsync(ContainerInfo containerInfo) {
+        CleanupQueue.getInstance().submit(() -> cleanupContainer(containerInfo));
+    }
+
+    /**
+     * 按执行次数和运行时间判断容器是否需要替换
+     *
+     * @return 需要替换的原因，不需要替换时返回 null
+     */
+    private String recycleReason(ContainerInfo containerInfo) {
+        int maxExecutions = recycleMaxExecutions;
+        if (maxExecutions > 0 && containerInfo.getExecutionCount() >= maxExecutions) {
+            return "已执行 " + containerInfo.getExecutionCount() + " 次";
+        }
+        long maxAge = recycleMaxAgeMillis;
+        long age = System.currentTimeMillis() - containerInfo.getCreatedTime();
+        if (maxAge > 0 && age >= maxAge) {
+            return "已运行 " + age / 1000 + " 秒";
+        }
+        return null;
+    }
+
+    /**
+     * 按内存和 /tmp 占用判断空闲容器是否需要替换，需要访问Docker守护进程，只在后台检查时调用
+     *
+     * @return 需要替换的原因，不需要替换时返回 null
+     */
+    private String resourceRecycleReason(ContainerInfo containerInfo) {
+        long maxMemory = recycleMaxMemoryBytes;
+        if (maxMemory > 0) {
+            long memory = getMemoryUsage(containerInfo.getContainerId());
+            if (memory >= maxMemory) {
+                return "内存占用 " + memory / 1024 / 1024 + "MB";
             }
+        }
+        long maxTmp = recycleMaxTmpBytes;
+        if (maxTmp > 0) {
+            long tmp = getTmpUsage(containerInfo.getContainerId());
+            if (tmp >= maxTmp) {
+                return "/tmp 占用 " + tmp / 1024 / 1024 + "MB";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取容器当前的内存占用（不含可回收的文件缓存，与 docker stats 一致），读取失败时返回 -1
+     */
+    private long getMemoryUsage(String containerId) {
+        AtomicReference<Statistics> sample = new AtomicReference<>();
+        try (ResultCallback.Adapter<Statistics> callback = new ResultCallback.Adapter<Statistics>() {
+            @Override
+            public void onNext(Statistics statistics) {
+                sample.compareAndSet(null, statistics);
+            }
+        }) {
+            dockerClient.statsCmd(containerId).withNoStream(true).exec(callback)
+                    .awaitCompletion(RESOURCE_PROBE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.fine("读取容器内存占用失败: " + containerId + ", 错误: " + e.getMessage());
+        }
 
-            // 创建新容器
-            containerInfo = createNewContainer(language, dockerImage);
-            languageContainers.put(language, containerInfo);
+        Statistics statistics = sample.get();
+        MemoryStatsConfig memory = statistics != null ? statistics.getMemoryStats() : null;
+        if (memory == null || memory.getUsage() == null) {
+            return -1;
+        }
+        long usage = memory.getUsage();
+        StatsConfig stats = memory.getStats();
+        if (stats != null) {
+            Long inactiveFile = stats.getInactiveFile() != null ? stats.getInactiveFile() : stats.getTotalInactiveFile();
+            if (inactiveFile != null && inactiveFile < usage) {
+                usage -= inactiveFile;
+            }
+        }
+        return usage;
+    }
 
-            logger.info("为语言 " + language + " 创建新的长期运行容器: " + containerInfo.getContainerId());
-            return containerInfo;
+    /**
+     * 读取容器 /tmp 的占用（字节），读取失败时返回 -1
+     */
+    private long getTmpUsage(String containerId) {
+        StringBuilder output = new StringBuilder();
+        try {
+            ExecCreateCmdResponse exec = dockerClient.execCreateCmd(containerId)
+                    .withCmd("du", "-sk", "/tmp")
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            dockerClient.execStartCmd(exec.getId())
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            if (frame.getStreamType() == StreamType.STDOUT) {
+                                output.append(new String(frame.getPayload(), StandardCharsets.UTF_8));
+                            }
+                        }
+                    })
+                    .awaitCompletion(RESOURCE_PROBE_TIMEOUT, TimeUnit.SECONDS);
+            String[] fields = output.toString().trim().split("\\s+");
+            return Long.parseLong(fields[0]) * 1024;
+        } catch (Exception e) {
+            logger.fine("读取容器 /tmp 占用失败: " + containerId + ", 错误: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 蓝绿回收：在后台创建替换容器，旧容器在替换容器就绪前继续提供服务
+     */
+    private void scheduleRecycle(LanguagePool pool, ContainerInfo containerInfo, String reason) {
+        if (shutdown.get() || !containerInfo.startRecycling()) {
+            return;
+        }
+
+        logger.info("池容器需要替换（" + reason + "），后台创建替换容器: " + pool.language + " -> " +
+                containerInfo.getContainerId());
+        // 替换容器临时占用一个额外名额，旧容器移除时释放
+        pool.size.incrementAndGet();
+        try {
+            recycleExecutor.execute(() -> replaceContainer(pool, containerInfo));
+        } catch (RejectedExecutionException e) {
+            pool.releaseSlot();
+            containerInfo.cancelRecycling();
+        }
+    }
+
+    /**
+     * 创建替换容器并切换流量：新容器放入空闲队列队首，旧容器空闲时立即销毁，借出中时归还后销毁
+     */
+    private void replaceContainer(LanguagePool pool, ContainerInfo containerInfo) {
+        ContainerInfo replacement;
+        try {
+            replacement = createNewContainer(pool.language, pool.dockerImage);
+        } catch (Exception e) {
+            pool.releaseSlot();
+            containerInfo.cancelRecycling();
+            logger.warning("创建替换容器失败，旧容器继续使用: " + pool.language + ", 错误: " + e.getMessage());
+            return;
+        }
+
+        if (shutdown.get() || languagePools.get(pool.language) != pool) {
+            // 容器池已被重启或关闭
+            pool.releaseSlot();
+            cleanupContainer(replacement);
+            return;
+        }
+
+        pool.allContainers.add(replacement);
+        // 先标记旧容器，之后归还的旧容器不会再放回空闲队列
+        containerInfo.markRetired();
+        pool.idleContainers.offerFirst(replacement);
+        if (pool.idleContainers.remove(containerInfo)) {
+            discardContainer(pool, containerInfo);
+        }
+        logger.info("池容器已替换: " + pool.language + " -> " + containerInfo.getContainerId() + " => " +
+                replacement.getContainerId());
+    }
+
+    /**
+     * 容器池维护：回收长时间空闲的容器，并补足最小容器数
+     */
+    private void maintainPools() {
+        if (shutdown.get()) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            for (LanguagePool pool : languagePools.values()) {
+                // 被替换后仍留在空闲队列中的容器（与归还并发时）
+                for (ContainerInfo containerInfo : new ArrayList<>(pool.idleContainers)) {
+                    if (containerInfo.isRetired() && pool.idleContainers.remove(containerInfo)) {
+                        discardContainer(pool, containerInfo);
+                    }
+                }
+
+                // 从最久未使用的一端开始回收
+                Iterator<ContainerInfo> iterator = pool.idleContainers.descendingIterator();
+                while (iterator.hasNext() && pool.size.get() > pool.minSize) {
+                    ContainerInfo containerInfo = iterator.next();
+                    if (now - containerInfo.getLastUsedTime() < idleTimeoutMillis) {
+                        break;
+                    }
+                    if (pool.idleContainers.remove(containerInfo)) {
+                        logger.info("回收空闲容器: " + pool.language + " -> " + containerInfo.getContainerId());
+                        discardContainer(pool, containerInfo);
+                    }
+                }
+
+                fillToMinSize(pool);
+            }
+        } catch (Exception e) {
+            logger.warning("容器池维护任务执行失败: " + e.getMessage());
         }
     }
 
@@ -186,62 +893,264 @@ public class LongRunningContainerManager {
         ensureDockerImage(dockerImage);
 
         // 创建宿主机工作目录
-        Path hostWorkDir = Files.createTempDirectory("container-" + language + "-");
+        Path hostWorkDir = createHostWorkDir("container-" + language + "-");
         logger.info("为 " + language + " 创建工作目录: " + hostWorkDir);
 
-        // 准备卷绑定
+        // 准备卷绑定：工作目录可写，常驻运行时目录只读，被测程序无法替换常驻进程的代码
         Volume codeVolume = new Volume(WORK_DIR);
         Bind bind = new Bind(hostWorkDir.toAbsolutePath().toString(), codeVolume);
+        Bind runtimeBind = new Bind(getHostRuntimeDir().toAbsolutePath().toString(), new Volume(RUNTIME_DIR), AccessMode.ro);
 
         // 配置容器
         HostConfig hostConfig = HostConfig.newHostConfig()
-                .withBinds(bind)
+                .withBinds(bind, runtimeBind)
                 .withMemory((long) MEMORY_LIMIT)
                 .withCpuCount((long) CPU_LIMIT)
                 .withNetworkMode("none") // 网络隔离
                 .withReadonlyRootfs(false) // 允许写入临时文件
                 .withTmpFs(Map.of("/tmp", "rw,noexec,nosuid,size=100m")); // 临时文件系统
 
+        // 启用执行代理时由代理保持容器运行，代理目录由宿主机创建，宿主机进程才能写入任务文件
+        boolean runnerAgent = runnerAgentEnabled;
+        if (runnerAgent) {
+            Files.createDirectories(hostWorkDir.resolve(RunnerAgent.AGENT_DIR));
+        }
+
         // 创建容器
         CreateContainerResponse container = dockerClient.createContainerCmd(dockerImage)
                 .withHostConfig(hostConfig)
                 .withWorkingDir(WORK_DIR)
-                .withCmd("tail", "-f", "/dev/null") // 保持容器运行
+                .withCmd(runnerAgent
+                        ? RunnerAgent.keepAliveCommand(WORK_DIR + "/" + RunnerAgent.AGENT_DIR)
+                        : new String[]{"tail", "-f", "/dev/null"}) // 保持容器运行
                 .withEnv("DEBIAN_FRONTEND=noninteractive") // 避免交互式安装
+                .withLabels(Map.of(POOL_LABEL, language)) // 事件订阅只关注池容器
                 .exec();
 
         String containerId = container.getId();
 
-        // 启动容器
-        dockerClient.startContainerCmd(containerId).exec();
-
-        // 等待容器启动完成
-        Thread.sleep(2000);
-
-        // 验证容器状态
-        if (!isContainerRunning(containerId)) {
-            throw new RuntimeException("容器启动失败: " + containerId);
+        // 启动容器并等待容器内可以执行命令
+        try {
+            dockerClient.startContainerCmd(containerId).exec();
+            awaitContainerReady(containerId, CONTAINER_READY_TIMEOUT);
+        } catch (Exception e) {
+            try {
+                dockerClient.removeContainerCmd(containerId).withForce(true).exec();
+            } catch (Exception removeError) {
+                logger.warning("删除启动失败的容器失败: " + containerId + ", 错误: " + removeError.getMessage());
+            }
+            throw e;
         }
 
         logger.info("成功创建并启动长期运行容器: " + language + " -> " + containerId);
 
-        return new ContainerInfo(containerId, dockerImage, hostWorkDir);
+        ContainerInfo containerInfo = new ContainerInfo(containerId, dockerImage, hostWorkDir);
+        containersById.put(containerId, containerInfo);
+        if (runnerAgent) {
+            boolean ready = RunnerAgent.awaitReady(containerInfo.getHostAgentDir(), AGENT_READY_TIMEOUT);
+            containerInfo.setRunnerAgentAvailable(ready);
+            if (!ready) {
+                logger.warning("执行代理未就绪，该容器回退到 docker exec: " + containerId);
+            }
+        }
+        return containerInfo;
     }
 
     /**
-     * 检查容器是否健康
+     * 订阅池容器的退出、OOM和kill事件
+     * 订阅断开时（包括Docker守护进程重启）稍后重新订阅，并补收断开期间的事件
      */
-    private boolean isContainerHealthy(ContainerInfo containerInfo) {
-        if (!containerInfo.isHealthy()) {
-            return false;
+    private void subscribeEvents() {
+        if (shutdown.get()) {
+            return;
         }
 
+        ResultCallback.Adapter<Event> callback = new ResultCallback.Adapter<Event>() {
+            @Override
+            public void onStart(Closeable stream) {
+                super.onStart(stream);
+                eventsLostSince = 0;
+            }
+
+            @Override
+            public void onNext(Event event) {
+                handleEvent(event);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                logger.warning("Docker事件订阅中断: " + throwable.getMessage());
+                super.onError(throwable);
+                resubscribeEvents(this);
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                resubscribeEvents(this);
+            }
+        };
+
+        eventSubscription.set(callback);
         try {
-            return isContainerRunning(containerInfo.getContainerId());
+            long since = eventsLostSince;
+            // 共享客户端的响应超时会让空闲的事件流每隔几十秒断开一次，订阅使用不设响应超时的专用客户端
+            SharedDockerClient.getEventsInstance().eventsCmd()
+                    .withEventTypeFilter(EventType.CONTAINER)
+                    .withEventFilter("die", "oom", "kill")
+                    .withLabelFilter(POOL_LABEL)
+                    .withSince(since > 0 ? String.valueOf(since) : null)
+                    .exec(callback);
         } catch (Exception e) {
-            logger.warning("检查容器健康状态失败: " + containerInfo.getContainerId() + ", 错误: " + e.getMessage());
+            logger.warning("订阅Docker事件失败: " + e.getMessage());
+            resubscribeEvents(callback);
+        }
+    }
+
+    /**
+     * 当前订阅结束后安排重新订阅，同一订阅只处理一次
+     */
+    private void resubscribeEvents(ResultCallback.Adapter<Event> callback) {
+        if (shutdown.get() || !eventSubscription.compareAndSet(callback, null)) {
+            return;
+        }
+        if (eventsLostSince == 0) {
+            // 事件时间精度为秒，多补收一秒
+            eventsLostSince = System.currentTimeMillis() / 1000 - 1;
+        }
+        try {
+            maintenanceScheduler.schedule(this::subscribeEvents, EVENT_RESUBSCRIBE_DELAY, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            logger.fine("无法安排重新订阅Docker事件: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 处理容器事件：容器退出时立即标记为不健康；
+     * OOM 和 kill 事件也可能来自容器内被终止的用户程序，由维护线程立即检查容器是否仍在运行
+     */
+    private void handleEvent(Event event) {
+        ContainerInfo containerInfo = event.getId() != null ? containersById.get(event.getId()) : null;
+        if (containerInfo == null || !containerInfo.isHealthy()) {
+            return;
+        }
+
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        Runnable task;
+        if ("die".equals(action)) {
+            logger.warning("池容器已退出: " + containerInfo.getContainerId());
+            // 先标记，销毁容器放到维护线程，不阻塞事件流
             containerInfo.markUnhealthy();
-            return false;
+            task = () -> markContainerUnhealthy(containerInfo);
+        } else {
+            logger.fine("池容器收到 " + action + " 事件，检查运行状态: " + containerInfo.getContainerId());
+            task = () -> checkContainer(containerInfo);
+        }
+        try {
+            maintenanceScheduler.execute(task);
+        } catch (Exception e) {
+            logger.fine("无法安排容器检查: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 后台健康检查：捕获事件订阅遗漏的容器异常
+     */
+    private void checkContainers() {
+        if (shutdown.get()) {
+            return;
+        }
+
+        try {
+            for (ContainerInfo containerInfo : containersById.values()) {
+                if (containerInfo.isHealthy()) {
+                    checkContainer(containerInfo);
+                }
+            }
+
+            // 检查是否有容器需要提前替换，内存和 /tmp 只在容器空闲时检查
+            for (LanguagePool pool : languagePools.values()) {
+                for (ContainerInfo containerInfo : pool.allContainers) {
+                    if (!containerInfo.isHealthy() || containerInfo.isRecycling()) {
+                        continue;
+                    }
+                    String reason = recycleReason(containerInfo);
+                    if (reason == null && pool.idleContainers.contains(containerInfo)) {
+                        reason = resourceRecycleReason(containerInfo);
+                    }
+                    if (reason != null) {
+                        scheduleRecycle(pool, containerInfo, reason);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warning("容器健康检查执行失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 检查单个容器是否仍在运行，已停止时标记为不健康
+     */
+    private void checkContainer(ContainerInfo containerInfo) {
+        if (!shutdown.get() && containerInfo.isHealthy() && !isContainerRunning(containerInfo.getContainerId())) {
+            logger.warning("池容器未在运行: " + containerInfo.getContainerId());
+            markContainerUnhealthy(containerInfo);
+        }
+    }
+
+    /**
+     * 标记容器为不健康，空闲的容器立即移出容器池，借出中的容器在归还时销毁
+     */
+    private void markContainerUnhealthy(ContainerInfo containerInfo) {
+        containerInfo.markUnhealthy();
+        for (LanguagePool pool : languagePools.values()) {
+            if (pool.idleContainers.remove(containerInfo)) {
+                discardContainer(pool, containerInfo);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 等待容器就绪：在容器内执行一条空命令，失败时按指数退避重试，替代启动后的固定等待
+     * 容器已经退出时立即失败
+     *
+     * @param containerId   容器ID
+     * @param timeoutMillis 最长等待时间（毫秒）
+     */
+    public void awaitContainerReady(String containerId, long timeoutMillis) throws Exception {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long backoff = READY_PROBE_INITIAL_BACKOFF;
+        while (true) {
+            try {
+                ExecCreateCmdResponse probe = dockerClient.execCreateCmd(containerId)
+                        .withCmd("sh", "-c", "exit 0")
+                        .withAttachStdout(true)
+                        .withAttachStderr(true)
+                        .exec();
+                dockerClient.execStartCmd(probe.getId())
+                        .exec(new ResultCallback.Adapter<Frame>())
+                        .awaitCompletion(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                Long exitCode = dockerClient.inspectExecCmd(probe.getId()).exec().getExitCodeLong();
+                if (exitCode != null && exitCode == 0) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                InspectContainerResponse.ContainerState state = dockerClient.inspectContainerCmd(containerId).exec().getState();
+                if (!Boolean.TRUE.equals(state.getRunning()) && !Boolean.TRUE.equals(state.getRestarting())) {
+                    throw new RuntimeException("容器启动失败: " + containerId + "，当前状态: " + state.getStatus());
+                }
+                logger.fine("容器尚未就绪: " + containerId + ", " + e.getMessage());
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("等待容器就绪超时: " + containerId);
+            }
+            Thread.sleep(Math.min(backoff, remaining));
+            backoff = Math.min(backoff * 2, READY_PROBE_MAX_BACKOFF);
         }
     }
 
@@ -306,17 +1215,18 @@ public class LongRunningContainerManager {
     }
 
     /**
-     * 重启指定语言的容器
+     * 重启指定语言的容器池
+     * 销毁该语言当前的所有容器，正在使用的容器在归还时销毁，新容器将在下次借出时创建
      */
     public void restartContainer(String language) throws Exception {
-        ContainerInfo containerInfo = languageContainers.get(language);
-        if (containerInfo != null) {
-            synchronized (this) {
-                logger.info("重启容器: " + language + " -> " + containerInfo.getContainerId());
-                cleanupContainer(containerInfo);
-                languageContainers.remove(language);
-
-                // 重新创建容器将在下次调用 getOrCreateContainer 时进行
+        LanguagePool pool = languagePools.remove(language);
+        if (pool != null) {
+            logger.info("重启容器池: " + language + "，容器数: " + pool.size.get());
+            for (ContainerInfo containerInfo : new ArrayList<>(pool.idleContainers)) {
+                if (pool.idleContainers.remove(containerInfo)) {
+                    pool.allContainers.remove(containerInfo);
+                    cleanupContainerAsync(containerInfo);
+                }
             }
         }
     }
@@ -325,7 +1235,11 @@ public class LongRunningContainerManager {
      * 获取容器数量统计
      */
     public int getContainerCount() {
-        return languageContainers.size();
+        int count = 0;
+        for (LanguagePool pool : languagePools.values()) {
+            count += pool.size.get();
+        }
+        return count;
     }
 
     /**
@@ -333,67 +1247,51 @@ public class LongRunningContainerManager {
      */
     public Map<String, String> getContainerStatus() {
         Map<String, String> status = new ConcurrentHashMap<>();
-        languageContainers.forEach((language, info) -> {
-            boolean running = isContainerRunning(info.getContainerId());
-            status.put(language, String.format("容器ID: %s, 状态: %s, 最后使用: %d秒前",
-                    info.getContainerId().substring(0, 12),
-                    running ? "运行中" : "已停止",
-                    (System.currentTimeMillis() - info.getLastUsedTime()) / 1000));
+        languagePools.forEach((language, pool) -> {
+            List<ContainerInfo> containers = new ArrayList<>(pool.allContainers);
+            for (int i = 0; i < containers.size(); i++) {
+                ContainerInfo info = containers.get(i);
+                boolean running = isContainerRunning(info.getContainerId());
+                status.put(language + "#" + (i + 1), String.format("容器ID: %s, 状态: %s, 使用中: %s, 最后使用: %d秒前, 执行次数: %d, 替换中: %s",
+                        info.getContainerId().substring(0, 12),
+                        running ? "运行中" : "已停止",
+                        pool.idleContainers.contains(info) ? "否" : "是",
+                        (System.currentTimeMillis() - info.getLastUsedTime()) / 1000,
+                        info.getExecutionCount(),
+                        info.isRecycling() ? "是" : "否"));
+            }
         });
         return status;
     }
 
     /**
-     * 将代码文件复制到容器的工作目录
+     * 在宿主机工作根目录下创建一个新目录（池容器或独立容器的挂载目录）
      *
-     * @param containerInfo   容器信息
-     * @param sourceDirectory 源代码目录
-     */
-    public void copyCodeToContainer(ContainerInfo containerInfo, Path sourceDirectory) throws IOException {
-        Path hostWorkDir = containerInfo.getHostWorkDir();
-
-        // 首先清理目标目录
-        if (Files.exists(hostWorkDir)) {
-            Files.walk(hostWorkDir)
-                    .sorted((a, b) -> b.compareTo(a)) // 先删除子文件
-                    .forEach(path -> {
-                        try {
-                            if (!path.equals(hostWorkDir)) { // 不删除工作目录本身
-                                Files.deleteIfExists(path);
-                            }
-                        } catch (IOException e) {
-                            logger.warning("删除文件失败: " + path + ", 错误: " + e.getMessage());
-                        }
-                    });
-        } else {
-            Files.createDirectories(hostWorkDir);
-        }
-
-        // 复制所有文件到容器工作目录
-        if (Files.exists(sourceDirectory)) {
-            Files.walk(sourceDirectory)
-                    .filter(Files::isRegularFile)
-                    .forEach(sourceFile -> {
-                        try {
-                            Path relativePath = sourceDirectory.relativize(sourceFile);
-                            Path targetFile = hostWorkDir.resolve(relativePath);
-
-                            // 确保目标目录存在
-                            Files.createDirectories(targetFile.getParent());
-
-                            // 复制文件
-                            Files.copy(sourceFile, targetFile,
-                                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+     * @param prefix 目录名前缀
+     * @return 新建的目录
+     */
+    public Path createHostWorkDir(String prefix) throws IOException {
+        Path root = hostWorkRoot;
+        return root != null ? Files.createTempDirectory(root, prefix) : Files.createTempDirectory(prefix);
+    }
 
-                            logger.fine("复制文件: " + sourceFile + " -> " + targetFile);
-                        } catch (IOException e) {
-                            logger.warning("复制文件失败: " + sourceFile + ", 错误: " + e.getMessage());
-                            throw new RuntimeException("复制代码文件到容器失败", e);
-                        }
-                    });
+    /**
+     * 获取宿主机上的常驻运行时目录，不存在时创建
+     * 目录在容器内以只读方式挂载到 {@link #RUNTIME_DIR}，由宿主机安装常驻语言运行时的文件
+     */
+    public Path getHostRuntimeDir() throws IOException {
+        Path dir = hostRuntimeDir;
+        if (dir == null) {
+            synchronized (lock) {
+                dir = hostRuntimeDir;
+                if (dir == null) {
+                    dir = createHostWorkDir("runtime-");
+                    hostRuntimeDir = dir;
+                    logger.info("创建常驻运行时目录: " + dir);
+                }
+            }
         }
-
-        logger.info("成功将代码文件复制到容器工作目录: " + hostWorkDir);
+        return dir;
     }
 
     /**
@@ -402,6 +1300,8 @@ public class LongRunningContainerManager {
     private void cleanupContainer(ContainerInfo containerInfo) {
         try {
             String containerId = containerInfo.getContainerId();
+            // 主动停止产生的事件不再需要处理
+            containersById.remove(containerId);
 
             // 停止容器
             try {
@@ -422,29 +1322,35 @@ public class LongRunningContainerManager {
             }
 
             // 清理工作目录
-            try {
-                Path workDir = containerInfo.getHostWorkDir();
-                if (Files.exists(workDir)) {
-                    Files.walk(workDir)
-                            .sorted((a, b) -> b.compareTo(a)) // 先删除子文件
-                            .forEach(path -> {
-                                try {
-                                    Files.deleteIfExists(path);
-                                } catch (IOException e) {
-                                    logger.warning("删除文件失败: " + path + ", 错误: " + e.getMessage());
-                                }
-                            });
-                    logger.fine("已清理工作目录: " + workDir);
-                }
-            } catch (Exception e) {
-                logger.warning("清理工作目录失败: " + e.getMessage());
-            }
+            deleteDirectory(containerInfo.getHostWorkDir());
 
         } catch (Exception e) {
             logger.warning("清理容器时发生异常: " + e.getMessage());
         }
     }
 
+    /**
+     * 递归删除宿主机上的目录
+     */
+    private void deleteDirectory(Path dir) {
+        try {
+            if (Files.exists(dir)) {
+                Files.walk(dir)
+                        .sorted((a, b) -> b.compareTo(a)) // 先删除子文件
+                        .forEach(path -> {
+                            try {
+                                Files.deleteIfExists(path);
+                            } catch (IOException e) {
+                                logger.warning("删除文件失败: " + path + ", 错误: " + e.getMessage());
+                            }
+                        });
+                logger.fine("已清理目录: " + dir);
+            }
+        } catch (Exception e) {
+            logger.warning("清理目录失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 关闭管理器，清理所有容器
      */
@@ -452,21 +1358,32 @@ public class LongRunningContainerManager {
         if (shutdown.compareAndSet(false, true)) {
             logger.info("开始关闭长期运行容器管理器...");
 
+            // 停止容器池维护任务、回收任务和事件订阅
+            maintenanceScheduler.shutdownNow();
+            recycleExecutor.shutdownNow();
+            sanitizeExecutor.shutdownNow();
+            ResultCallback.Adapter<Event> subscription = eventSubscription.getAndSet(null);
+            if (subscription != null) {
+                try {
+                    subscription.close();
+                } catch (IOException e) {
+                    logger.fine("关闭Docker事件订阅失败: " + e.getMessage());
+                }
+            }
+
             // 清理所有容器
-            languageContainers.forEach((language, containerInfo) -> {
-                logger.info("清理容器: " + language + " -> " + containerInfo.getContainerId());
-                cleanupContainer(containerInfo);
+            languagePools.forEach((language, pool) -> {
+                for (ContainerInfo containerInfo : pool.allContainers) {
+                    logger.info("清理容器: " + language + " -> " + containerInfo.getContainerId());
+                    cleanupContainer(containerInfo);
+                }
             });
-            languageContainers.clear();
+            languagePools.clear();
 
-            // 关闭Docker客户端
-            try {
-                if (dockerClient != null) {
-                    dockerClient.close();
-                    logger.info("Docker客户端已关闭");
-                }
-            } catch (Exception e) {
-                logger.warning("关闭Docker客户端失败: " + e.getMessage());
+            // 所有池容器都已删除，常驻运行时目录不再被挂载
+            Path runtimeDir = hostRuntimeDir;
+            if (runtimeDir != null) {
+                deleteDirectory(runtimeDir);
             }
 
             logger.info("长期运行容器管理器已关闭");
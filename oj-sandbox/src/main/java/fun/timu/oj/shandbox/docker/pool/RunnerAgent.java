@@ -0,0 +1,273 @@
+package fun.timu.oj.shandbox.docker.pool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 池容器内的常驻执行代理
+ * 启用后池容器的主进程不再是 tail -f /dev/null，而是一段常驻的 sh 脚本：它阻塞读取挂载目录中的命名管道，
+ * 收到任务编号后执行同目录下的任务文件，把标准输出、标准错误写入结果文件并留下完成标记。
+ * 宿主机写任务文件、向管道写一行即可派发任务，不需要经过 Docker 守护进程创建和检查 exec。
+ * <p>
+ * 代理以容器 1 号进程运行，容器内的 kill -9 -1 不会终止它；空闲时阻塞在管道读取上，不占用 CPU。
+ * 管道跨不了宿主机边界（如 Docker Desktop 的虚拟机挂载）时任务不会被领取，
+ * 调用方在 {@link #submit} 返回null后应回退到 docker exec。
+ * <p>
+ * 同一套派发协议（任务文件、管道中的"任务编号 输出上限"、输出文件和完成标记）也用于容器内常驻的语言运行时，
+ * 任务文件的内容由领取任务的一方解释。
+ * <p>
+ * 任务目录位于可写的挂载目录中，被测程序与代理以同一用户运行，能够改写其中的文件；
+ * 容器归还到池中之前由容器池终止被测程序遗留的进程并调用 {@link #purge} 删除全部任务文件，
+ * 遗留的进程无法改写或伪造之后租约的任务。
+ */
+public final class RunnerAgent {
+    private static final Logger logger = Logger.getLogger(RunnerAgent.class.getName());
+
+    /**
+     * 代理目录名（位于容器工作目录下，与各执行的子工作区同级）
+     */
+    public static final String AGENT_DIR = ".agent";
+
+    // 等待代理领取任务的最长时间（毫秒），超时说明代理不可用
+    private static final long ACCEPT_TIMEOUT_MILLIS = 1000;
+    // 宿主机轮询完成标记的间隔（毫秒）
+    private static final long POLL_INTERVAL_MILLIS = 1;
+
+    // 任务文件的后缀
+    private static final String[] JOB_SUFFIXES = {".in", ".job", ".run", ".out", ".err", ".oom", ".done"};
+
+    // 任务序号，与执行标识一起组成任务编号
+    private static final AtomicLong JOB_SEQUENCE = new AtomicLong();
+
+    // $1 为代理目录；管道中每行为"任务编号 输出上限"，输出上限为0表示不限制
+    private static final String AGENT_SCRIPT =
+            "dir=$1\n" +
+            "mkdir -p \"$dir\"; rm -f \"$dir/ctl\"\n" +
+            "if ! mkfifo -m 666 \"$dir/ctl\"; then\n" +
+            "  while :; do sleep 3600; done\n" +
+            "fi\n" +
+            "exec 3<>\"$dir/ctl\"\n" +
+            ": > \"$dir/ready\"\n" +
+            "while read -r id lim <&3; do\n" +
+            "  case $id in ''|*[!A-Za-z0-9-]*) continue ;; esac\n" +
+            "  case $lim in ''|*[!0-9]*) lim=0 ;; esac\n" +
+            "  mv \"$dir/$id.job\" \"$dir/$id.run\" 2>/dev/null || continue\n" +
+            "  in=/dev/null; [ -f \"$dir/$id.in\" ] && in=$dir/$id.in\n" +
+            "  cap=cat; [ \"$lim\" -gt 0 ] && cap=\"head -c $lim\"\n" +
+            "  ( sh \"$dir/$id.run\" < \"$in\" 3<&- | $cap > \"$dir/$id.out\" ) 2>&1 | $cap > \"$dir/$id.err\"\n" +
+            "  : > \"$dir/$id.done\"\n" +
+            "done\n";
+
+    private RunnerAgent() {
+    }
+
+    /**
+     * 运行代理的容器主命令
+     *
+     * @param agentDir 容器内的代理目录
+     * @return 容器主命令
+     */
+    public static String[] keepAliveCommand(String agentDir) {
+        return new String[]{"sh", "-c", AGENT_SCRIPT, "agent", agentDir};
+    }
+
+    /**
+     * 等待代理就绪
+     *
+     * @param hostAgentDir  宿主机上的代理目录
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 代理是否已就绪
+     */
+    public static boolean awaitReady(Path hostAgentDir, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        Path ready = hostAgentDir.resolve("ready");
+        while (!Files.exists(ready)) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * 向代理派发一个任务
+     *
+     * @param hostAgentDir     宿主机上的代理目录（或常驻运行时的任务目录）
+     * @param jobPrefix        任务编号前缀（只能包含字母、数字和-）
+     * @param jobContent       任务文件内容（执行代理按 sh 脚本执行）
+     * @param stdin            标准输入内容，为null表示不使用标准输入
+     * @param outputLimitBytes 标准输出和标准错误各自最多保留的字节数，小于等于0表示不限制
+     * @return 已被代理领取的任务；代理未能及时领取时返回null，调用方应回退到 docker exec
+     */
+    public static Job submit(Path hostAgentDir, String jobPrefix, String jobContent, byte[] stdin,
+                             long outputLimitBytes) throws IOException, InterruptedException {
+        Job job = new Job(hostAgentDir, jobPrefix + "-" + JOB_SEQUENCE.incrementAndGet());
+        if (stdin != null) {
+            Files.write(job.file(".in"), stdin);
+        }
+        Files.write(job.file(".job"), jobContent.getBytes(StandardCharsets.UTF_8));
+
+        // 读写方式打开管道不会因为没有读端而阻塞，代理不在时写入的内容随关闭丢弃
+        String line = job.id + " " + Math.max(0, outputLimitBytes) + "\n";
+        try (FileChannel channel = FileChannel.open(hostAgentDir.resolve("ctl"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII)));
+        } catch (IOException e) {
+            logger.warning("写入代理管道失败: " + e.getMessage());
+            job.discard();
+            return null;
+        }
+
+        long deadline = System.currentTimeMillis() + ACCEPT_TIMEOUT_MILLIS;
+        while (Files.exists(job.file(".job"))) {
+            if (System.currentTimeMillis() >= deadline) {
+                try {
+                    // 删除成功说明任务确实没有被领取
+                    Files.delete(job.file(".job"));
+                    logger.warning("代理未在 " + ACCEPT_TIMEOUT_MILLIS + "ms 内领取任务: " + job.id);
+                    job.discard();
+                    return null;
+                } catch (NoSuchFileException e) {
+                    break;
+                }
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+        return job;
+    }
+
+    /**
+     * 删除任务目录中的全部任务文件（管道、锁和就绪标记保留），只能在没有任务运行时调用
+     *
+     * @param hostAgentDir 宿主机上的代理目录（或常驻运行时的任务目录）
+     */
+    public static void purge(Path hostAgentDir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(hostAgentDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                for (String suffix : JOB_SUFFIXES) {
+                    if (name.endsWith(suffix)) {
+                        Files.deleteIfExists(file);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 已派发给代理的任务
+     */
+    public static final class Job {
+        private final Path hostAgentDir;
+        private final String id;
+        // 已经通过 readNewStdout 读取的标准输出字节数
+        private long stdoutOffset = 0;
+
+        private Job(Path hostAgentDir, String id) {
+            this.hostAgentDir = hostAgentDir;
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * 等待任务完成
+         *
+         * @param timeoutMillis 最长等待时间（毫秒）
+         * @return 任务是否已完成
+         */
+        public boolean await(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!isDone()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            return true;
+        }
+
+        /**
+         * 任务是否已完成
+         */
+        public boolean isDone() {
+            return Files.exists(file(".done"));
+        }
+
+        /**
+         * 读取上次调用之后新写出的标准输出，任务运行期间即可调用，用于边运行边比对
+         *
+         * @return 新增的字节，没有新输出时为空数组
+         */
+        public byte[] readNewStdout() throws IOException {
+            try (FileChannel channel = FileChannel.open(file(".out"), StandardOpenOption.READ)) {
+                long available = channel.size() - stdoutOffset;
+                if (available <= 0) {
+                    return new byte[0];
+                }
+                byte[] chunk = new byte[(int) Math.min(available, Integer.MAX_VALUE - 8)];
+                int length = 0;
+                while (length < chunk.length) {
+                    int read = channel.read(ByteBuffer.wrap(chunk, length, chunk.length - length), stdoutOffset + length);
+                    if (read <= 0) {
+                        break;
+                    }
+                    length += read;
+                }
+                stdoutOffset += length;
+                return length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
+            } catch (NoSuchFileException e) {
+                return new byte[0];
+            }
+        }
+
+        /**
+         * 已完成任务的标准输出
+         */
+        public byte[] readStdout() throws IOException {
+            return read(".out");
+        }
+
+        /**
+         * 已完成任务的标准错误
+         */
+        public byte[] readStderr() throws IOException {
+            return read(".err");
+        }
+
+        /**
+         * 删除任务的全部文件，重复调用无副作用
+         */
+        public void discard() {
+            for (String suffix : JOB_SUFFIXES) {
+                try {
+                    Files.deleteIfExists(file(suffix));
+                } catch (IOException e) {
+                    logger.fine("删除代理任务文件失败: " + e.getMessage());
+                }
+            }
+        }
+
+        private byte[] read(String suffix) throws IOException {
+            Path path = file(suffix);
+            return Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+        }
+
+        private Path file(String suffix) {
+            return hostAgentDir.resolve(id + suffix);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package fun.timu.oj.shandbox.docker.runner;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * 常驻 JVM 执行器（在 Java 容器内运行，只依赖 JDK）
+ * 由宿主机把编译好的类文件安装到池容器的只读运行时目录后启动，在任务目录中按 {@code RunnerAgent} 的派发协议领取任务：
+ * 每个任务在新建的类加载器中加载 Solution 并在独立线程中调用 main，标准输入、输出和错误重定向到任务文件，
+ * 需要编译时用进程内的 javac 编译，结果按启动脚本的格式写入结果文件；没有主类的任务只编译不运行。
+ * 省去了每次运行的 JVM 启动和 javac 启动，JDK 自身的类也一直保持已加载和已 JIT 编译的状态。
+ * <p>
+ * 被测程序调用 System.exit 会被拦截为退出码；超时、输出超限、遗留线程、类加载器无法回收、
+ * 堆占用过高或累计运行次数达到上限时进程退出，由宿主机启动新的实例。
+ * <p>
+ * 资源测量只针对本次任务：CPU 时间是任务线程组内各线程的 CPU 时间之和。
+ * 任务与执行器共用一个进程，没有与启动脚本口径一致的峰值内存，因此不上报内存（memory_source=none）；
+ * 最大堆即内存限制，被测程序抛出 OutOfMemoryError 时记录为超出内存限制（memory_exceeded=1）。
+ * <p>
+ * 参数：任务目录、最多运行次数。
+ */
+public final class WarmJvmRunner extends SecurityManager {
+    private static final String EXIT_TRAPPED = "System.exit trapped by sandbox";
+    // 运行后堆占用超过最大堆的该比例时退出
+    private static final double HEAP_RETIRE_RATIO = 0.5;
+    // 等待被测程序时的检查间隔（毫秒）
+    private static final long JOIN_SLICE_MILLIS = 10;
+    private static final int OUTPUT_BUFFER_SIZE = 8192;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Path dir;
+    private final int maxRuns;
+    // 所有任务线程组的父线程组，用于识别被测程序的线程
+    private final ThreadGroup jobs = new ThreadGroup("jobs");
+    private volatile Integer exitStatus;
+
+    private WarmJvmRunner(Path dir, int maxRuns) {
+        this.dir = dir;
+        this.maxRuns = maxRuns;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Paths.get(args[0]);
+        int maxRuns = Integer.parseInt(args[1]);
+
+        // 锁在进程存活期间一直持有，宿主机据此判断进程是否存活；上一个实例尚未退出时等待它退出
+        FileChannel lock = FileChannel.open(dir.resolve("lock"), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        lock.lock();
+
+        // 执行器自身不使用标准输出；超时或输出超限后仍在运行的被测线程写入的内容直接丢弃
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        System.setOut(discard);
+        System.setErr(discard);
+
+        WarmJvmRunner runner = new WarmJvmRunner(dir, maxRuns);
+        System.setSecurityManager(runner);
+        runner.serve();
+    }
+
+    /**
+     * 领取并执行任务，需要更换实例时返回
+     */
+    private void serve() throws IOException {
+        // 以读写方式打开管道，宿主机每次写完关闭时不会读到 EOF
+        FileChannel ctl = FileChannel.open(dir.resolve("ctl"), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(ctl), StandardCharsets.US_ASCII));
+        Files.write(dir.resolve("ready"), new byte[0]);
+        Files.deleteIfExists(dir.resolve("starting"));
+
+        int runs = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.trim().split(" ");
+            String id = parts[0];
+            if (!id.matches("[A-Za-z0-9-]+")) {
+                continue;
+            }
+            long limit = parts.length > 1 && parts[1].matches("[0-9]+") ? Long.parseLong(parts[1]) : 0;
+            try {
+                Files.move(dir.resolve(id + ".job"), dir.resolve(id + ".run"), StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+
+            runs++;
+            Outcome outcome = runJob(id, limit);
+            boolean retire = outcome.dirty || runs >= maxRuns;
+            if (retire) {
+                // 先撤下就绪标记，宿主机看到任务完成时即可启动新实例
+                Files.deleteIfExists(dir.resolve("ready"));
+            }
+            Files.write(dir.resolve(id + ".done"), new byte[0]);
+            if (retire || leaked(outcome.loader)) {
+                Files.deleteIfExists(dir.resolve("ready"));
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    /**
+     * 执行一个任务
+     */
+    private Outcome runJob(String id, long limit) throws IOException {
+        Properties job = new Properties();
+        try (Reader reader = Files.newBufferedReader(dir.resolve(id + ".run"), StandardCharsets.UTF_8)) {
+            job.load(reader);
+        }
+        String classpath = job.getProperty("classpath");
+        String resultFile = job.getProperty("result");
+        String cleanup = job.getProperty("cleanup");
+        long timeLimitMillis = Long.parseLong(job.getProperty("limit_ms"));
+        List<String> args = new ArrayList<>();
+        for (int i = 0; job.containsKey("arg." + i); i++) {
+            args.add(job.getProperty("arg." + i));
+        }
+
+        BoundedOutput stdout = new BoundedOutput(dir.resolve(id + ".out"), limit);
+        BoundedOutput stderr = new BoundedOutput(dir.resolve(id + ".err"), limit);
+        PrintStream out = new PrintStream(new BufferedOutputStream(stdout, OUTPUT_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        Outcome outcome = new Outcome();
+        Result result = new Result();
+        try {
+            String source = job.getProperty("compile");
+            if (source != null) {
+                // 与启动脚本一致：编译信息只在编译失败时输出到标准错误，不参与输出比对
+                JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+                ByteArrayOutputStream log = new ByteArrayOutputStream();
+                int code = compiler.run(null, log, log, "-d", classpath, source);
+                if (code != 0) {
+                    log.writeTo(err);
+                    result.stage = "compile";
+                    result.exitCode = code;
+                    return outcome;
+                }
+                if (job.getProperty("main") == null) {
+                    // 只编译的任务：宿主机在运行之前读取编译产物
+                    result.exitCode = 0;
+                    return outcome;
+                }
+            }
+
+            URLClassLoader loader = new URLClassLoader(new URL[]{Paths.get(classpath).toUri().toURL()},
+                    ClassLoader.getPlatformClassLoader());
+            outcome.loader = new WeakReference<>(loader);
+            Method main;
+            try {
+                main = loader.loadClass(job.getProperty("main")).getMethod("main", String[].class);
+            } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+                err.println("错误: 找不到或无法加载主类 " + job.getProperty("main"));
+                err.println("原因: " + e);
+                result.exitCode = 1;
+                loader.close();
+                return outcome;
+            }
+
+            Path stdinFile = dir.resolve(id + ".in");
+            InputStream in = Files.exists(stdinFile) ? Files.newInputStream(stdinFile) : new ByteArrayInputStream(new byte[0]);
+            run(main, loader, args, in, out, err, timeLimitMillis, stdout, stderr, result, outcome);
+            in.close();
+            loader.close();
+        } catch (IOException | RuntimeException e) {
+            err.println("执行器内部错误: " + e);
+            result.exitCode = 1;
+            outcome.dirty = true;
+        } finally {
+            out.flush();
+            err.flush();
+            stdout.close();
+            stderr.close();
+            if (cleanup != null) {
+                result.cleaned = deleteRecursively(Paths.get(cleanup));
+            }
+            result.write(Paths.get(resultFile));
+        }
+        return outcome;
+    }
+
+    /**
+     * 在独立线程中运行被测程序并测量资源使用
+     */
+    private void run(Method main, ClassLoader loader, List<String> args, InputStream in, PrintStream out, PrintStream err,
+                     long timeLimitMillis, BoundedOutput stdout, BoundedOutput stderr, Result result, Outcome outcome) {
+        InputStream savedIn = System.in;
+        PrintStream savedOut = System.out;
+        PrintStream savedErr = System.err;
+        Properties savedProperties = (Properties) System.getProperties().clone();
+
+        ThreadGroup group = new ThreadGroup(jobs, "job");
+        int[] exitCode = {0};
+        // 各任务线程最近一次采样的 CPU 时间（纳秒），线程结束后无法再读取，因此在等待期间持续采样
+        Map<Long, Long> cpuSamples = new HashMap<>();
+        Thread thread = new Thread(group, () -> {
+            try {
+                main.invoke(null, (Object) args.toArray(new String[0]));
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (exitStatus == null || !isTrappedExit(cause)) {
+                    if (cause instanceof OutOfMemoryError) {
+                        result.memoryExceeded = true;
+                    }
+                    System.err.print("Exception in thread \"main\" ");
+                    cause.printStackTrace();
+                    exitCode[0] = 1;
+                }
+            } catch (IllegalAccessException e) {
+                System.err.println("错误: main 方法不可访问");
+                exitCode[0] = 1;
+            } finally {
+                long cpu = threadCpuNanos(Thread.currentThread());
+                synchronized (cpuSamples) {
+                    cpuSamples.merge(Thread.currentThread().getId(), cpu, Math::max);
+                }
+            }
+        }, "main");
+        thread.setContextClassLoader(loader);
+
+        exitStatus = null;
+        System.setIn(in);
+        System.setOut(out);
+        System.setErr(err);
+        long start = System.nanoTime();
+        long deadline = start + timeLimitMillis * 1_000_000L;
+        try {
+            thread.start();
+            // 主线程结束后与普通 JVM 一样等待其余非守护线程
+            for (Thread current = thread; current != null && exitStatus == null; current = nextNonDaemon(group)) {
+                while (current.isAlive() && exitStatus == null && !stdout.isExceeded() && !stderr.isExceeded()
+                        && System.nanoTime() < deadline) {
+                    current.join(JOIN_SLICE_MILLIS);
+                    sampleCpu(group, cpuSamples);
+                }
+                if (current.isAlive()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            long end = System.nanoTime();
+            result.wallMicros = (end - start) / 1000;
+            sampleCpu(group, cpuSamples);
+            synchronized (cpuSamples) {
+                result.cpuMicros = cpuSamples.values().stream().mapToLong(Long::longValue).sum() / 1000;
+            }
+            System.setIn(savedIn);
+            System.setOut(savedOut);
+            System.setErr(savedErr);
+            System.setProperties(savedProperties);
+        }
+
+        boolean running = exitStatus == null && nextNonDaemon(group) != null;
+        if (running && !stdout.isExceeded() && !stderr.isExceeded()) {
+            result.timedOut = true;
+            result.exitCode = 137;
+        } else if (exitStatus != null) {
+            result.exitCode = exitStatus;
+        } else {
+            result.exitCode = exitCode[0];
+        }
+        // 仍有线程在运行（超时、输出超限或 System.exit 之后的遗留线程）时无法安全复用
+        outcome.dirty = running || group.activeCount() > 0;
+    }
+
+    /**
+     * 类加载器在 GC 后仍然可达说明被测程序把引用留在了 JDK 的静态状态中；堆占用过高同样需要更换实例
+     */
+    private boolean leaked(WeakReference<ClassLoader> loader) {
+        System.gc();
+        if (loader != null && loader.get() != null) {
+            return true;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() > runtime.maxMemory() * HEAP_RETIRE_RATIO;
+    }
+
+    private static Thread nextNonDaemon(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 1];
+        int count = group.enumerate(threads, true);
+        for (int i = 0; i < count; i++) {
+            if (threads[i].isAlive() && !threads[i].isDaemon()) {
+                return threads[i];
+            }
+        }
+        return null;
+    }
+
+    private static boolean isTrappedExit(Throwable throwable) {
+        return throwable instanceof SecurityException && EXIT_TRAPPED.equals(throwable.getMessage());
+    }
+
+    /**
+     * 记录线程组内所有存活线程当前的 CPU 时间；在两次采样之间结束的线程只计入上一次采样的值
+     */
+    private static void sampleCpu(ThreadGroup group, Map<Long, Long> samples) {
+        Thread[] threads = new Thread[group.activeCount() + 1];
+        int count = group.enumerate(threads, true);
+        synchronized (samples) {
+            for (int i = 0; i < count; i++) {
+                long cpu = threadCpuNanos(threads[i]);
+                if (cpu > 0) {
+                    samples.merge(threads[i].getId(), cpu, Math::max);
+                }
+            }
+        }
+    }
+
+    private static long threadCpuNanos(Thread thread) {
+        if (!THREADS.isThreadCpuTimeSupported()) {
+            return 0;
+        }
+        return Math.max(0, THREADS.getThreadCpuTime(thread.getId()));
+    }
+
+    private static boolean deleteRecursively(Path root) {
+        if (!Files.exists(root)) {
+            return false;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            return false;
+        }
+        return !Files.exists(root);
+    }
+
+    /**
+     * 只拦截被测程序线程中的 System.exit，其余权限检查一律放行
+     */
+    @Override
+    public void checkExit(int status) {
+        if (jobs.parentOf(Thread.currentThread().getThreadGroup())) {
+            exitStatus = status;
+            throw new SecurityException(EXIT_TRAPPED);
+        }
+    }
+
+    @Override
+    public void checkPermission(Permission permission) {
+        if ("setSecurityManager".equals(permission.getName()) && jobs.parentOf(Thread.currentThread().getThreadGroup())) {
+            throw new SecurityException("不允许替换安全管理器");
+        }
+    }
+
+    @Override
+    public void checkPermission(Permission permission, Object context) {
+        checkPermission(permission);
+    }
+
+    /**
+     * 单个任务的结果，按启动脚本的格式写入结果文件
+     */
+    private static final class Result {
+        private String stage = "run";
+        private int exitCode = -1;
+        private volatile boolean memoryExceeded = false;
+        private long cpuMicros = 0;
+        private long wallMicros = 0;
+        private boolean timedOut = false;
+        private boolean cleaned = false;
+
+        private void write(Path file) throws IOException {
+            String content = "stage=" + stage + "\n" +
+                    "exit_code=" + exitCode + "\n" +
+                    "memory_source=none\n" +
+                    "memory_exceeded=" + (memoryExceeded ? 1 : 0) + "\n" +
+                    "cpu_user_us=" + cpuMicros + "\n" +
+                    "cpu_sys_us=0\n" +
+                    "wall_us=" + wallMicros + "\n" +
+                    "timed_out=" + (timedOut ? 1 : 0) + "\n" +
+                    "cleaned=" + (cleaned ? 1 : 0) + "\n";
+            Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * 任务结束后决定是否更换实例所需的信息
+     */
+    private static final class Outcome {
+        private WeakReference<ClassLoader> loader;
+        private boolean dirty;
+    }
+
+    /**
+     * 写满上限后丢弃后续内容的输出文件
+     */
+    private static final class BoundedOutput extends OutputStream {
+        private final OutputStream target;
+        private final long limit;
+        private long written;
+
+        private BoundedOutput(Path file, long limit) throws IOException {
+            this.target = Files.newOutputStream(file);
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+            long allowed = limit > 0 ? Math.min(length, limit - written) : length;
+            if (allowed > 0) {
+                target.write(bytes, offset, (int) allowed);
+            }
+            written += length;
+        }
+
+        synchronized boolean isExceeded() {
+            return limit > 0 && written >= limit;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            target.close();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package fun.timu.oj.shandbox.docker.task;
+
+import fun.timu.oj.shandbox.docker.pool.LongRunningContainerManager;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 代码执行的准入控制
+ * 每种语言一个信号量，许可数与该语言容器池的最大容器数一致，同步请求、异步任务和批量请求共用同一组许可。
+ * 同步请求在许可用完时进入有界等待，等待的请求数达到上限或等待超时时立即拒绝，
+ * 并根据排队情况和近期执行耗时给出建议的重试间隔，避免请求在 Tomcat 线程和 Docker 中无限堆积后同时超时；
+ * 异步任务和批量请求已在各自的有界队列中排队，由工作线程一直等待到获得许可。
+ * 工作线程单独计数，不占用同步请求的等待名额。
+ * 指标：sandbox.admission.queue.depth（等待中的同步请求数）、sandbox.admission.workers.waiting（等待中的工作线程数）、
+ * sandbox.admission.active（执行中的请求数）、
+ * sandbox.admission.rejected（按原因统计的拒绝次数），均按语言区分
+ */
+public class AdmissionController {
+    private static final Logger logger = Logger.getLogger(AdmissionController.class.getName());
+
+    // 单例实例
+    private static volatile AdmissionController instance;
+    private static final Object lock = new Object();
+
+    private static final long INITIAL_AVERAGE_MILLIS = 2000; // 尚无执行记录时假定的单次执行耗时
+    private static final int MAX_RETRY_AFTER_SECONDS = 60;
+
+    // 每种语言的准入状态，首次使用时按当时的配置创建
+    private final Map<ProgrammingLanguage, LanguageGate> gates = new ConcurrentHashMap<>();
+
+    // 按语言覆盖的配置（{许可数, 最大等待请求数}，许可数为0时使用容器池的最大容器数）
+    private final Map<ProgrammingLanguage, int[]> languageSettings = new ConcurrentHashMap<>();
+
+    // 默认配置，可通过 configure 覆盖，需在首次执行前调用
+    private volatile boolean enabled = true;
+    private volatile int defaultMaxQueue = 20;
+    private volatile long maxWaitMillis = 10_000;
+
+    /**
+     * 单一语言的准入状态
+     */
+    private static class LanguageGate {
+        private final int permits;
+        private final int maxQueue;
+        private final Semaphore semaphore;
+        // 等待许可的同步请求数，受 maxQueue 限制
+        private final AtomicInteger waiting = new AtomicInteger(0);
+        // 等待许可的工作线程数，已由工作线程数限定
+        private final AtomicInteger workersWaiting = new AtomicInteger(0);
+        private final Counter queueFullRejections;
+        private final Counter timeoutRejections;
+        // 单次执行耗时的指数移动平均（毫秒）
+        private double averageMillis = INITIAL_AVERAGE_MILLIS;
+
+        LanguageGate(ProgrammingLanguage language, int permits, int maxQueue) {
+            this.permits = permits;
+            this.maxQueue = maxQueue;
+            this.semaphore = new Semaphore(permits, true);
+            String tag = language.name().toLowerCase();
+            Gauge.builder("sandbox.admission.queue.depth", waiting, AtomicInteger::get)
+                    .description("等待执行许可的请求数")
+                    .tag("language", tag)
+                    .register(Metrics.globalRegistry);
+            Gauge.builder("sandbox.admission.workers.waiting", workersWaiting, AtomicInteger::get)
+                    .description("等待执行许可的工作线程数")
+                    .tag("language", tag)
+                    .register(Metrics.globalRegistry);
+            Gauge.builder("sandbox.admission.active", semaphore, s -> permits - s.availablePermits())
+                    .description("持有执行许可的请求数")
+                    .tag("language", tag)
+                    .register(Metrics.globalRegistry);
+            this.queueFullRejections = Counter.builder("sandbox.admission.rejected")
+                    .description("被准入控制拒绝的请求数")
+                    .tag("language", tag)
+                    .tag("reason", "queue_full")
+                    .register(Metrics.globalRegistry);
+            this.timeoutRejections = Counter.builder("sandbox.admission.rejected")
+                    .description("被准入控制拒绝的请求数")
+                    .tag("language", tag)
+                    .tag("reason", "timeout")
+                    .register(Metrics.globalRegistry);
+        }
+
+        synchronized void recordDuration(long millis) {
+            averageMillis += (millis - averageMillis) / 8;
+        }
+
+        /**
+         * 按排在前面的请求数（含等待中的工作线程）和平均执行耗时估算重试间隔（秒）
+         */
+        synchronized int estimateRetryAfterSeconds() {
+            double seconds = (waiting.get() + workersWaiting.get() + permits) * averageMillis / permits / 1000;
+            return (int) Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, Math.ceil(seconds)));
+        }
+    }
+
+    /**
+     * 执行许可，执行结束后必须调用 close() 归还
+     * 被拒绝的许可 {@link #isAdmitted()} 为 false，携带建议的重试间隔
+     */
+    public static class Permit implements AutoCloseable {
+        private final LanguageGate gate;
+        private final boolean admitted;
+        private final int retryAfterSeconds;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private Permit(LanguageGate gate, boolean admitted, int retryAfterSeconds) {
+            this.gate = gate;
+            this.admitted = admitted;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isAdmitted() {
+            return admitted;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        /**
+         * 归还许可，重复调用无副作用
+         */
+        @Override
+        public void close() {
+            if (gate != null && admitted && released.compareAndSet(false, true)) {
+                gate.recordDuration(System.currentTimeMillis() - startTime);
+                gate.semaphore.release();
+            }
+        }
+    }
+
+    // 包内可见，单元测试据此创建互不影响的实例
+    AdmissionController() {
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static AdmissionController getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new AdmissionController();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 配置是否启用准入控制、默认最大等待请求数和最长等待时间，需在首次执行前调用
+     */
+    public void configure(boolean enabled, int maxQueue, long maxWaitMillis) {
+        this.enabled = enabled;
+        this.defaultMaxQueue = Math.max(0, maxQueue);
+        this.maxWaitMillis = Math.max(0, maxWaitMillis);
+        logger.info("准入控制配置: enabled=" + enabled + ", maxQueue=" + this.defaultMaxQueue +
+                ", maxWait=" + this.maxWaitMillis + "ms");
+    }
+
+    /**
+     * 为指定语言单独配置许可数和最大等待请求数
+     *
+     * @param permits  许可数，0 表示使用该语言容器池的最大容器数
+     * @param maxQueue 最大等待请求数
+     */
+    public void configureLanguage(ProgrammingLanguage language, int permits, int maxQueue) {
+        languageSettings.put(language, new int[]{Math.max(0, permits), Math.max(0, maxQueue)});
+        logger.info("语言 " + language + " 的准入控制配置: permits=" + (permits > 0 ? permits : "容器池大小") +
+                ", maxQueue=" + maxQueue);
+    }
+
+    /**
+     * 申请执行许可：有空闲许可时立即返回；否则在等待请求数未满时最多等待 maxWaitMillis
+     *
+     * @param language 编程语言
+     * @return 执行许可，未获准入时 {@link Permit#isAdmitted()} 为 false
+     */
+    public Permit acquire(ProgrammingLanguage language) {
+        if (!enabled) {
+            return new Permit(null, true, 0);
+        }
+
+        LanguageGate gate = gates.computeIfAbsent(language, this::createGate);
+        if (tryAcquireNow(gate)) {
+            return new Permit(gate, true, 0);
+        }
+
+        if (gate.waiting.incrementAndGet() > gate.maxQueue) {
+            gate.waiting.decrementAndGet();
+            gate.queueFullRejections.increment();
+            logger.warning("语言 " + language + " 的等待队列已满，拒绝请求");
+            return new Permit(gate, false, gate.estimateRetryAfterSeconds());
+        }
+
+        boolean acquired;
+        try {
+            acquired = gate.semaphore.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            gate.waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            gate.timeoutRejections.increment();
+            logger.warning("语言 " + language + " 等待执行许可超时，拒绝请求");
+            return new Permit(gate, false, gate.estimateRetryAfterSeconds());
+        }
+        return new Permit(gate, true, 0);
+    }
+
+    /**
+     * 后台工作线程（异步任务、批量请求）申请执行许可，一直等待到获得许可
+     * 等待的线程数已由工作线程数限定，不受等待队列长度和最长等待时间的限制，也不占用同步请求的等待名额；
+     * 与同步请求按到达顺序获得许可（公平信号量）
+     *
+     * @param language 编程语言
+     * @return 已获准入的执行许可
+     * @throws InterruptedException 等待期间线程被中断（如批量请求超时被取消）
+     */
+    public Permit acquireBlocking(ProgrammingLanguage language) throws InterruptedException {
+        if (!enabled) {
+            return new Permit(null, true, 0);
+        }
+
+        LanguageGate gate = gates.computeIfAbsent(language, this::createGate);
+        if (!gate.semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            gate.workersWaiting.incrementAndGet();
+            try {
+                gate.semaphore.acquire();
+            } finally {
+                gate.workersWaiting.decrementAndGet();
+            }
+        }
+        return new Permit(gate, true, 0);
+    }
+
+    /**
+     * 获取指定语言当前等待许可的同步请求数（不含工作线程）
+     */
+    public int getQueueDepth(ProgrammingLanguage language) {
+        LanguageGate gate = gates.get(language);
+        return gate != null ? gate.waiting.get() : 0;
+    }
+
+    /**
+     * 不等待地申请许可，仍遵守公平顺序：已有请求在等待时不插队
+     * （无参的 tryAcquire 会忽略公平设置，直接抢占刚释放的许可）
+     */
+    private static boolean tryAcquireNow(LanguageGate gate) {
+        try {
+            return gate.semaphore.tryAcquire(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private LanguageGate createGate(ProgrammingLanguage language) {
+        int[] settings = languageSettings.get(language);
+        int permits = settings != null && settings[0] > 0 ? settings[0]
+                : LongRunningContainerManager.getInstance().getMaxPoolSize(language.name().toLowerCase());
+        int maxQueue = settings != null ? settings[1] : defaultMaxQueue;
+        logger.info("初始化准入控制: " + language + "，许可数=" + permits + ", 最大等待请求数=" + maxQueue);
+        return new LanguageGate(language, Math.max(1, permits), maxQueue);
+    }
+}
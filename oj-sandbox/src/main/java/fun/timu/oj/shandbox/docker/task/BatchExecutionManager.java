@@ -0,0 +1,214 @@
+package fun.timu.oj.shandbox.docker.task;
+
+import fun.timu.oj.shandbox.interfaces.ExecuteCodeRequest;
+import fun.timu.oj.shandbox.interfaces.ExecuteCodeResponse;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * 批量执行管理器
+ * 将批量请求按语言分发到各自的工作线程池并行执行（每种语言的并发数和排队请求数都有上限），
+ * 按原始顺序返回结果，每个请求单独计算超时；排队请求数达到上限时整批拒绝
+ */
+public class BatchExecutionManager {
+    private static final Logger logger = Logger.getLogger(BatchExecutionManager.class.getName());
+
+    // 单例实例
+    private static volatile BatchExecutionManager instance;
+    private static final Object lock = new Object();
+
+    private static final long RESULT_POLL_INTERVAL_MILLIS = 500;
+
+    // 每种语言对应的批量执行线程池
+    private final Map<ProgrammingLanguage, ThreadPoolExecutor> languageExecutors = new ConcurrentHashMap<>();
+
+    // 按语言覆盖的并发上限
+    private final Map<ProgrammingLanguage, Integer> languageConcurrency = new ConcurrentHashMap<>();
+
+    // 默认配置，可通过 configure 覆盖
+    private volatile int defaultConcurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private volatile long itemTimeoutMillis = 60_000; // 单个请求从开始执行起的最长时间
+    private volatile int queueCapacity = 100; // 每种语言排队等待的最大请求数
+
+    /**
+     * 单个请求的执行逻辑
+     */
+    @FunctionalInterface
+    public interface ItemHandler {
+        ExecuteCodeResponse execute(ExecuteCodeRequest request) throws Exception;
+    }
+
+    private BatchExecutionManager() {
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static BatchExecutionManager getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new BatchExecutionManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 配置默认的每语言并发上限、单个请求超时和每语言排队上限，需在首次执行前调用
+     */
+    public void configure(int concurrency, long itemTimeoutSeconds, int queueCapacity) {
+        this.defaultConcurrency = Math.max(1, concurrency);
+        this.itemTimeoutMillis = Math.max(1, itemTimeoutSeconds) * 1000;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        logger.info("批量执行配置: concurrency=" + defaultConcurrency + ", itemTimeout=" + itemTimeoutSeconds + "s" +
+                ", queueCapacity=" + this.queueCapacity);
+    }
+
+    /**
+     * 为指定语言单独配置并发上限
+     */
+    public void configureLanguage(ProgrammingLanguage language, int concurrency) {
+        languageConcurrency.put(language, Math.max(1, concurrency));
+        logger.info("语言 " + language + " 的批量执行并发上限: " + concurrency);
+    }
+
+    /**
+     * 并行执行一批请求
+     *
+     * @param requests      请求列表
+     * @param handler       单个请求的执行逻辑
+     * @param errorResponse 根据错误信息构建失败响应
+     * @return 与请求列表顺序一致的响应列表
+     * @throws RejectedExecutionException 某种语言的排队请求数已达上限，整批未执行
+     */
+    public List<ExecuteCodeResponse> executeAll(List<ExecuteCodeRequest> requests, ItemHandler handler,
+                                                Function<String, ExecuteCodeResponse> errorResponse) {
+        List<Future<ExecuteCodeResponse>> futures = new ArrayList<>(requests.size());
+        List<AtomicLong> startTimes = new ArrayList<>(requests.size());
+
+        // 先全部提交，再按顺序收集结果
+        for (int i = 0; i < requests.size(); i++) {
+            ExecuteCodeRequest request = requests.get(i);
+            AtomicLong startTime = new AtomicLong();
+            startTimes.add(startTime);
+
+            if (request == null || request.getLanguage() == null) {
+                futures.add(null);
+                continue;
+            }
+
+            int index = i;
+            try {
+                futures.add(getOrCreateExecutor(request.getLanguage()).submit(() -> {
+                    startTime.set(System.currentTimeMillis());
+                    logger.info("执行第 " + (index + 1) + " 个请求，语言: " + request.getLanguage());
+                    return handler.execute(request);
+                }));
+            } catch (RejectedExecutionException e) {
+                // 撤回已提交的请求，整批拒绝
+                futures.forEach(future -> {
+                    if (future != null) {
+                        future.cancel(true);
+                    }
+                });
+                logger.warning("语言 " + request.getLanguage() + " 的批量执行队列已满，拒绝整批 " + requests.size() + " 个请求");
+                throw e;
+            }
+        }
+
+        List<ExecuteCodeResponse> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < futures.size(); i++) {
+            Future<ExecuteCodeResponse> future = futures.get(i);
+            if (future == null) {
+                responses.add(errorResponse.apply("请求参数不完整：language为必填项"));
+                continue;
+            }
+            responses.add(awaitItem(i, future, startTimes.get(i), errorResponse));
+        }
+        return responses;
+    }
+
+    /**
+     * 等待单个请求完成，超时从请求开始执行时计算（排队时间不计入）
+     */
+    private ExecuteCodeResponse awaitItem(int index, Future<ExecuteCodeResponse> future, AtomicLong startTime,
+                                          Function<String, ExecuteCodeResponse> errorResponse) {
+        try {
+            while (true) {
+                long started = startTime.get();
+                long waitMillis = started > 0
+                        ? started + itemTimeoutMillis - System.currentTimeMillis()
+                        : RESULT_POLL_INTERVAL_MILLIS;
+
+                if (waitMillis <= 0) {
+                    future.cancel(true);
+                    logger.warning("第 " + (index + 1) + " 个请求执行超时");
+                    return errorResponse.apply("执行超时: 超过 " + itemTimeoutMillis / 1000 + " 秒");
+                }
+
+                try {
+                    return future.get(Math.min(waitMillis, RESULT_POLL_INTERVAL_MILLIS), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // 继续等待，循环开头重新计算剩余时间
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.warning("第 " + (index + 1) + " 个请求执行失败: " + cause.getMessage());
+            return errorResponse.apply("执行失败: " + cause.getMessage());
+        } catch (CancellationException e) {
+            return errorResponse.apply("执行已取消");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return errorResponse.apply("执行被中断");
+        }
+    }
+
+    private ThreadPoolExecutor getOrCreateExecutor(ProgrammingLanguage language) {
+        return languageExecutors.computeIfAbsent(language, key -> {
+            int concurrency = languageConcurrency.getOrDefault(key, defaultConcurrency);
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency,
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread thread = new Thread(r, "BatchExecution-" + key.name().toLowerCase() + "-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            logger.info("创建语言 " + key + " 的批量执行线程池，并发上限: " + concurrency + "，排队上限: " + queueCapacity);
+            return executor;
+        });
+    }
+
+    /**
+     * 关闭所有批量执行线程池
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : languageExecutors.values()) {
+            executor.shutdownNow();
+        }
+        languageExecutors.clear();
+        logger.info("批量执行管理器已关闭");
+    }
+}
@@ -0,0 +1,101 @@
+package fun.timu.oj.shandbox.docker.task;
+
+import fun.timu.oj.shandbox.interfaces.ExecuteCodeResponse;
+import fun.timu.oj.shandbox.interfaces.ExecuteTaskResponse;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步执行任务
+ * 记录一次异步提交的状态变化，完成后通过 getCompletion() 通知等待方（SSE 推送等）
+ */
+public class ExecutionTask {
+    private final String taskId;
+    private final ProgrammingLanguage language;
+    private final long submittedTime;
+    private final CompletableFuture<ExecutionTask> completion = new CompletableFuture<>();
+
+    private volatile ExecuteTaskResponse.TaskStatus status = ExecuteTaskResponse.TaskStatus.QUEUED;
+    private volatile String message;
+    private volatile long startedTime;
+    private volatile long finishedTime;
+    private volatile ExecuteCodeResponse result;
+
+    ExecutionTask(String taskId, ProgrammingLanguage language) {
+        this.taskId = taskId;
+        this.language = language;
+        this.submittedTime = System.currentTimeMillis();
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public ProgrammingLanguage getLanguage() {
+        return language;
+    }
+
+    public ExecuteTaskResponse.TaskStatus getStatus() {
+        return status;
+    }
+
+    public long getFinishedTime() {
+        return finishedTime;
+    }
+
+    /**
+     * 任务是否已结束（完成、失败或被拒绝）
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * 任务结束时完成的 Future
+     */
+    public CompletableFuture<ExecutionTask> getCompletion() {
+        return completion;
+    }
+
+    void markRunning() {
+        this.startedTime = System.currentTimeMillis();
+        this.status = ExecuteTaskResponse.TaskStatus.RUNNING;
+    }
+
+    void markCompleted(ExecuteCodeResponse result) {
+        this.result = result;
+        finish(ExecuteTaskResponse.TaskStatus.COMPLETED, null);
+    }
+
+    void markFailed(String message) {
+        finish(ExecuteTaskResponse.TaskStatus.FAILED, message);
+    }
+
+    void markRejected(String message) {
+        finish(ExecuteTaskResponse.TaskStatus.REJECTED, message);
+    }
+
+    private void finish(ExecuteTaskResponse.TaskStatus status, String message) {
+        this.message = message;
+        this.finishedTime = System.currentTimeMillis();
+        this.status = status;
+        completion.complete(this);
+    }
+
+    /**
+     * 生成接口层响应快照
+     */
+    public ExecuteTaskResponse toResponse() {
+        ExecuteTaskResponse response = new ExecuteTaskResponse();
+        response.setTaskId(taskId);
+        response.setLanguage(language);
+        response.setStatus(status);
+        response.setMessage(message);
+        response.setSubmittedTime(submittedTime);
+        response.setStartedTime(startedTime > 0 ? startedTime : null);
+        response.setFinishedTime(finishedTime > 0 ? finishedTime : null);
+        response.setResult(result);
+        return response;
+    }
+}
@@ -0,0 +1,199 @@
+package fun.timu.oj.shandbox.docker.task;
+
+import fun.timu.oj.shandbox.interfaces.ExecuteCodeResponse;
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * 异步执行任务管理器
+ * 每种语言一个有界队列和固定数量的执行槽位，提交后立即返回任务凭证，
+ * 代码执行在后台工作线程中完成，不再占用Servlet线程
+ */
+public class ExecutionTaskManager {
+    private static final Logger logger = Logger.getLogger(ExecutionTaskManager.class.getName());
+
+    // 单例实例
+    private static volatile ExecutionTaskManager instance;
+    private static final Object lock = new Object();
+
+    private static final int TASK_CLEANUP_INTERVAL = 60; // 秒
+
+    // 每种语言对应的执行线程池（固定槽位 + 有界队列）
+    private final Map<ProgrammingLanguage, ThreadPoolExecutor> languageExecutors = new ConcurrentHashMap<>();
+
+    // 按语言覆盖的配置（{执行槽位数, 队列容量}）
+    private final Map<ProgrammingLanguage, int[]> languageSettings = new ConcurrentHashMap<>();
+
+    // 所有未过期的任务
+    private final Map<String, ExecutionTask> tasks = new ConcurrentHashMap<>();
+
+    // 过期任务清理线程
+    private final ScheduledExecutorService cleanupScheduler;
+
+    // 默认配置，可通过 configure 覆盖
+    private volatile int defaultWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private volatile int defaultQueueCapacity = 50;
+    private volatile long resultRetentionMillis = 600_000; // 已结束任务的保留时间
+
+    private ExecutionTaskManager() {
+        this.cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ExecutionTask-Cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupScheduler.scheduleWithFixedDelay(this::removeExpiredTasks,
+                TASK_CLEANUP_INTERVAL, TASK_CLEANUP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取单例实例
+     */
+    public static ExecutionTaskManager getInstance() {
+        if (instance == null) {
+            synchronized (lock) {
+                if (instance == null) {
+                    instance = new ExecutionTaskManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 配置默认执行槽位数、队列容量和结果保留时间，需在首次提交前调用
+     */
+    public void configure(int workers, int queueCapacity, long resultRetentionSeconds) {
+        this.defaultWorkers = Math.max(1, workers);
+        this.defaultQueueCapacity = Math.max(1, queueCapacity);
+        this.resultRetentionMillis = Math.max(1, resultRetentionSeconds) * 1000;
+        logger.info("异步执行队列配置: workers=" + defaultWorkers + ", queueCapacity=" + defaultQueueCapacity +
+                ", resultRetention=" + resultRetentionSeconds + "s");
+    }
+
+    /**
+     * 为指定语言单独配置执行槽位数和队列容量
+     */
+    public void configureLanguage(ProgrammingLanguage language, int workers, int queueCapacity) {
+        languageSettings.put(language, new int[]{Math.max(1, workers), Math.max(1, queueCapacity)});
+        logger.info("语言 " + language + " 的异步执行队列配置: workers=" + workers + ", queueCapacity=" + queueCapacity);
+    }
+
+    /**
+     * 提交异步执行任务
+     *
+     * @param language 编程语言
+     * @param job      实际执行代码的任务
+     * @return 任务凭证；队列已满时任务状态为 REJECTED
+     */
+    public ExecutionTask submit(ProgrammingLanguage language, Callable<ExecuteCodeResponse> job) {
+        ExecutionTask task = new ExecutionTask(UUID.randomUUID().toString().replace("-", ""), language);
+        ThreadPoolExecutor executor = getOrCreateExecutor(language);
+
+        try {
+            tasks.put(task.getTaskId(), task);
+            executor.execute(() -> runTask(task, job));
+            logger.info("异步任务已入队: " + task.getTaskId() + ", 语言: " + language +
+                    ", 队列长度: " + executor.getQueue().size());
+        } catch (RejectedExecutionException e) {
+            logger.warning("语言 " + language + " 的执行队列已满，拒绝任务: " + task.getTaskId());
+            task.markRejected("执行队列已满，请稍后重试");
+        }
+        return task;
+    }
+
+    /**
+     * 查询任务，不存在或已过期时返回 null
+     */
+    public ExecutionTask getTask(String taskId) {
+        return taskId != null ? tasks.get(taskId) : null;
+    }
+
+    /**
+     * 获取指定语言当前排队中的任务数
+     */
+    public int getQueuedCount(ProgrammingLanguage language) {
+        ThreadPoolExecutor executor = languageExecutors.get(language);
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * 获取指定语言正在执行的任务数
+     */
+    public int getRunningCount(ProgrammingLanguage language) {
+        ThreadPoolExecutor executor = languageExecutors.get(language);
+        return executor != null ? executor.getActiveCount() : 0;
+    }
+
+    private void runTask(ExecutionTask task, Callable<ExecuteCodeResponse> job) {
+        task.markRunning();
+        try {
+            task.markCompleted(job.call());
+            logger.info("异步任务执行完成: " + task.getTaskId());
+        } catch (Exception e) {
+            logger.severe("异步任务执行失败: " + task.getTaskId() + ", 原因: " + e.getMessage());
+            task.markFailed("执行出错: " + e.getMessage());
+        }
+    }
+
+    private ThreadPoolExecutor getOrCreateExecutor(ProgrammingLanguage language) {
+        return languageExecutors.computeIfAbsent(language, key -> {
+            int[] settings = languageSettings.getOrDefault(key, new int[]{defaultWorkers, defaultQueueCapacity});
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(settings[0], settings[0],
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(settings[1]),
+                    r -> {
+                        Thread thread = new Thread(r, "ExecutionTask-" + key.name().toLowerCase() + "-" + threadIndex.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            logger.info("创建语言 " + key + " 的异步执行队列: workers=" + settings[0] + ", queueCapacity=" + settings[1]);
+            return executor;
+        });
+    }
+
+    /**
+     * 清理已结束且超过保留时间的任务
+     */
+    private void removeExpiredTasks() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        Iterator<ExecutionTask> iterator = tasks.values().iterator();
+        while (iterator.hasNext()) {
+            ExecutionTask task = iterator.next();
+            if (task.isDone() && now - task.getFinishedTime() > resultRetentionMillis) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("清理过期异步任务 " + removed + " 个，剩余 " + tasks.size() + " 个");
+        }
+    }
+
+    /**
+     * 关闭所有执行队列，未开始的任务将被丢弃
+     */
+    public void shutdown() {
+        cleanupScheduler.shutdownNow();
+        for (ThreadPoolExecutor executor : languageExecutors.values()) {
+            executor.shutdownNow();
+        }
+        languageExecutors.clear();
+        logger.info("异步执行任务管理器已关闭");
+    }
+}
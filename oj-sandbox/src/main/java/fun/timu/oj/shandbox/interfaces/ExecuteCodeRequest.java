@@ -25,7 +25,7 @@ public class ExecuteCodeRequest {
     private List<String> inputs;
 
     /**
-     * 输入类型: "PARAMS"（命令行参数）或 "FILE"（测试文件）
+     * 输入类型: "PARAMS"（命令行参数）、"FILE"（测试文件）或 "STDIN"（标准输入，每个输入占一行）
      */
     private String inputType;
 
@@ -34,4 +34,29 @@ public class ExecuteCodeRequest {
      */
     private Integer executionCount = 1;
 
+    /**
+     * 题目时间限制（毫秒），为空时使用沙箱默认值
+     */
+    private Integer timeLimit;
+
+    /**
+     * 测试用例时间限制覆盖值（毫秒），不为空时优先于题目时间限制
+     */
+    private Integer timeLimitOverride;
+
+    /**
+     * 预期输出，提供时在程序运行过程中比对标准输出，第一次不一致即终止程序
+     */
+    private String expectedOutput;
+
+    /**
+     * 输出比对模式: "EXACT"（默认）、"IGNORE_WHITESPACE"、"LINE_BY_LINE" 或 "FLOAT_EPSILON"
+     */
+    private String compareMode;
+
+    /**
+     * FLOAT_EPSILON 模式允许的误差，默认为1e-6
+     */
+    private Double floatEpsilon;
+
 }
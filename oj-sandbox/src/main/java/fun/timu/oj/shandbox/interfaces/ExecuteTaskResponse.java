@@ -0,0 +1,80 @@
+package fun.timu.oj.shandbox.interfaces;
+
+import lombok.Data;
+
+/**
+ * 异步执行任务响应类 - 用于接口层
+ * 提交时返回任务凭证，轮询时返回任务当前状态，任务完成后携带执行结果
+ */
+@Data
+public class ExecuteTaskResponse {
+    /**
+     * 任务ID（凭证）
+     */
+    private String taskId;
+
+    /**
+     * 编程语言
+     */
+    private ProgrammingLanguage language;
+
+    /**
+     * 任务状态
+     */
+    private TaskStatus status;
+
+    /**
+     * 提示信息（排队、拒绝、异常原因等）
+     */
+    private String message;
+
+    /**
+     * 提交时间（毫秒时间戳）
+     */
+    private Long submittedTime;
+
+    /**
+     * 开始执行时间（毫秒时间戳）
+     */
+    private Long startedTime;
+
+    /**
+     * 结束时间（毫秒时间戳）
+     */
+    private Long finishedTime;
+
+    /**
+     * 执行结果，仅在任务完成后存在
+     */
+    private ExecuteCodeResponse result;
+
+    /**
+     * 任务状态枚举
+     */
+    public enum TaskStatus {
+        /**
+         * 排队中
+         */
+        QUEUED,
+
+        /**
+         * 执行中
+         */
+        RUNNING,
+
+        /**
+         * 已完成（执行结果见 result）
+         */
+        COMPLETED,
+
+        /**
+         * 执行过程中出现异常
+         */
+        FAILED,
+
+        /**
+         * 队列已满，任务被拒绝
+         */
+        REJECTED
+    }
+}
@@ -13,12 +13,22 @@ public class JudgeInfo {
     private String message;
 
     /**
-     * 消耗内存（KB）
+     * 消耗内存（KB），被测进程的峰值常驻内存；没有测得时为空
      */
     private Long memory;
 
     /**
-     * 消耗时间（毫秒）
+     * 消耗时间（毫秒），被测程序自身的墙钟时间
      */
     private Long time;
+
+    /**
+     * 消耗的CPU时间（毫秒），用户态 + 内核态
+     */
+    private Long cpuTime;
+
+    /**
+     * 输出是否与预期输出一致，请求中未提供预期输出时为空
+     */
+    private Boolean outputMatched;
 }
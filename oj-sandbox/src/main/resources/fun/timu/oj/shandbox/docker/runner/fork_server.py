@@ -0,0 +1,255 @@
+"""
+常驻 Python fork 服务器（在 Python 容器内运行，只依赖标准库）
+
+由宿主机安装到池容器的只读运行时目录后启动，在任务目录中按 RunnerAgent 的派发协议领取任务：
+解释器和常用标准库只在服务器启动时加载一次，每个任务 fork 出新的子进程运行提交的脚本，
+子进程放入独立进程组，设置 CPU 时间、地址空间和输出文件大小限制，标准输入、输出和错误重定向到任务文件。
+服务器自身从不执行提交的代码，子进程结束后整个进程组被清理，下一个任务看到的始终是同一份干净的状态。
+子进程的进程组号在运行期间写入结果文件旁的 .pid 文件，宿主机发现输出不一致时据此提前终止它。
+结果按启动脚本的格式写入结果文件，峰值内存取子进程的 ru_maxrss；
+超出地址空间限制抛出的 MemoryError 记录为超出内存限制（memory_exceeded=1）。
+
+参数：任务目录、最多运行次数、内存上限（MB，0 表示不限制）。
+"""
+import fcntl
+import os
+import re
+import resource
+import runpy
+import shutil
+import signal
+import sys
+import time
+import traceback
+
+# 预先导入常用标准库，fork 出的子进程直接共享这些已加载的模块
+import array  # noqa: F401
+import bisect  # noqa: F401
+import collections  # noqa: F401
+import copy  # noqa: F401
+import dataclasses  # noqa: F401
+import decimal  # noqa: F401
+import fractions  # noqa: F401
+import functools  # noqa: F401
+import heapq  # noqa: F401
+import itertools  # noqa: F401
+import json  # noqa: F401
+import math  # noqa: F401
+import operator  # noqa: F401
+import random  # noqa: F401
+import statistics  # noqa: F401
+import string  # noqa: F401
+import typing  # noqa: F401
+
+JOB_ID = re.compile(r'^[A-Za-z0-9-]+$')
+# java.util.Properties#store 的转义规则
+ESCAPE = re.compile(r'\\(u[0-9a-fA-F]{4}|.)')
+SPECIAL = {'t': '\t', 'n': '\n', 'r': '\r', 'f': '\f'}
+ENTRY = re.compile(r'^((?:\\.|[^\\=])*)=(.*)$')
+
+
+def unescape(text):
+    def replace(match):
+        value = match.group(1)
+        if len(value) == 5 and value[0] == 'u':
+            return chr(int(value[1:], 16))
+        return SPECIAL.get(value, value)
+
+    return ESCAPE.sub(replace, text)
+
+
+def load_job(path):
+    job = {}
+    with open(path, encoding='utf-8') as f:
+        for line in f.read().splitlines():
+            if not line or line[0] in '#!':
+                continue
+            match = ENTRY.match(line)
+            if match:
+                job[unescape(match.group(1))] = unescape(match.group(2))
+    return job
+
+
+def remove(path):
+    try:
+        os.remove(path)
+    except OSError:
+        pass
+
+
+def child(job, job_id, limit, time_limit, memory_limit):
+    """子进程：设置资源限制和标准流后以 __main__ 运行提交的脚本，不返回"""
+    code = 1
+    # 切换工作目录前确定超出内存标记的位置
+    oom_marker = os.path.abspath(job_id + '.oom')
+    try:
+        os.setpgid(0, 0)
+        # 解释器默认忽略 SIGXFSZ，恢复后写满输出上限即终止
+        for sig in (signal.SIGALRM, signal.SIGXFSZ):
+            signal.signal(sig, signal.SIG_DFL)
+
+        stdin = job_id + '.in'
+        fd = os.open(stdin if os.path.exists(stdin) else os.devnull, os.O_RDONLY)
+        os.dup2(fd, 0)
+        os.close(fd)
+        for target, suffix in ((1, '.out'), (2, '.err')):
+            fd = os.open(job_id + suffix, os.O_WRONLY | os.O_CREAT | os.O_TRUNC, 0o644)
+            os.dup2(fd, target)
+            os.close(fd)
+        # 不把服务器的管道和锁文件留给被测程序
+        for name in os.listdir('/proc/self/fd'):
+            if int(name) > 2:
+                try:
+                    os.close(int(name))
+                except OSError:
+                    pass
+        os.chdir(job['cwd'])
+
+        # 输出写满上限后再写入时进程终止，与启动脚本的输出上限一致
+        if limit > 0:
+            resource.setrlimit(resource.RLIMIT_FSIZE, (limit, limit))
+        cpu_seconds = int(time_limit) + 1
+        resource.setrlimit(resource.RLIMIT_CPU, (cpu_seconds, cpu_seconds + 1))
+        # 地址空间上限即内存限制，超出时分配失败并抛出 MemoryError
+        if memory_limit > 0:
+            resource.setrlimit(resource.RLIMIT_AS, (memory_limit, memory_limit))
+
+        sys.stdin = open(0, 'r', closefd=False)
+        sys.stdout = open(1, 'w', closefd=False)
+        sys.stderr = open(2, 'w', buffering=1, closefd=False)
+        script = job['script']
+        sys.argv = [script] + [job['arg.%d' % i] for i in range(len(job)) if 'arg.%d' % i in job]
+        sys.path[0] = os.path.dirname(script)
+        try:
+            runpy.run_path(script, run_name='__main__')
+            code = 0
+        except SystemExit as e:
+            if e.code is None:
+                code = 0
+            elif isinstance(e.code, int):
+                code = e.code & 0xff
+            else:
+                print(e.code, file=sys.stderr)
+                code = 1
+        except BaseException as e:
+            if isinstance(e, MemoryError):
+                os.close(os.open(oom_marker, os.O_WRONLY | os.O_CREAT, 0o644))
+            # 与直接运行脚本一致，回溯从提交的脚本开始
+            etype, value, tb = sys.exc_info()
+            while tb is not None and tb.tb_frame.f_code.co_filename != script:
+                tb = tb.tb_next
+            traceback.print_exception(etype, value, tb)
+            code = 1
+        for stream in (sys.stdout, sys.stderr):
+            try:
+                stream.flush()
+            except BaseException:
+                code = code or 120
+    finally:
+        os._exit(code)
+
+
+def run_job(job_id, limit, memory_limit):
+    job = load_job(job_id + '.run')
+    time_limit = int(job['limit_ms']) / 1000.0
+    timed_out = []
+    oom_marker = job_id + '.oom'
+    remove(oom_marker)
+
+    start = time.monotonic()
+    pid = os.fork()
+    if pid == 0:
+        child(job, job_id, limit, time_limit, memory_limit)
+    try:
+        os.setpgid(pid, pid)
+    except OSError:
+        pass
+    pid_file = job['result'] + '.pid'
+    with open(pid_file, 'w') as f:
+        f.write('%d\n' % pid)
+
+    def on_timeout(signum, frame):
+        timed_out.append(True)
+        try:
+            os.killpg(pid, signal.SIGKILL)
+        except OSError:
+            pass
+
+    signal.signal(signal.SIGALRM, on_timeout)
+    signal.setitimer(signal.ITIMER_REAL, time_limit)
+    _, status, usage = os.wait4(pid, 0)
+    signal.setitimer(signal.ITIMER_REAL, 0)
+    wall = time.monotonic() - start
+    remove(pid_file)
+    # 清理被测程序留下的子进程
+    try:
+        os.killpg(pid, signal.SIGKILL)
+    except OSError:
+        pass
+
+    code = os.WEXITSTATUS(status) if os.WIFEXITED(status) else 128 + os.WTERMSIG(status)
+    memory_exceeded = 1 if os.path.exists(oom_marker) else 0
+    remove(oom_marker)
+    cleaned = 0
+    cleanup = job.get('cleanup')
+    if cleanup:
+        shutil.rmtree(cleanup, ignore_errors=True)
+        cleaned = 0 if os.path.lexists(cleanup) else 1
+    with open(job['result'], 'w') as f:
+        f.write('stage=run\n'
+                'exit_code=%d\n'
+                'memory_source=rusage\n'
+                'memory_peak=%d\n'
+                'cpu_user_us=%d\n'
+                'cpu_sys_us=%d\n'
+                'wall_us=%d\n'
+                'timed_out=%d\n'
+                'memory_exceeded=%d\n'
+                'cleaned=%d\n' % (code, usage.ru_maxrss * 1024, usage.ru_utime * 1e6, usage.ru_stime * 1e6,
+                                  wall * 1e6, 1 if timed_out else 0, memory_exceeded, cleaned))
+
+
+def serve(max_runs, memory_limit):
+    # 以读写方式打开管道，宿主机每次写完关闭时不会读到 EOF
+    ctl = open(os.open('ctl', os.O_RDWR), 'rb')
+    open('ready', 'w').close()
+    remove('starting')
+
+    runs = 0
+    for raw in ctl:
+        parts = raw.decode('ascii', 'replace').split()
+        if not parts or not JOB_ID.match(parts[0]):
+            continue
+        job_id = parts[0]
+        limit = int(parts[1]) if len(parts) > 1 and parts[1].isdigit() else 0
+        try:
+            os.rename(job_id + '.job', job_id + '.run')
+        except OSError:
+            continue
+
+        runs += 1
+        retire = runs >= max_runs
+        if retire:
+            # 先撤下就绪标记，宿主机看到任务完成时即可启动新实例
+            remove('ready')
+        try:
+            run_job(job_id, limit, memory_limit)
+        except Exception:
+            traceback.print_exc()
+        open(job_id + '.done', 'w').close()
+        if retire:
+            return
+
+
+def main():
+    os.chdir(sys.argv[1])
+    max_runs = int(sys.argv[2])
+    memory_limit = int(sys.argv[3]) * 1024 * 1024 if len(sys.argv) > 3 else 0
+    # 锁在进程存活期间一直持有，宿主机据此判断进程是否存活；上一个实例尚未退出时等待它退出
+    lock = os.open('lock', os.O_RDWR)
+    fcntl.lockf(lock, fcntl.LOCK_EX)
+    serve(max_runs, memory_limit)
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,35 @@
+'use strict';
+// 预先启动的 Node 子进程：等待服务器通过 IPC 发来任务后，以主模块运行提交的脚本
+// 由 node_pool.js 编译后执行，参数 (exports, require, module, __filename, __dirname)
+const fs = require('fs');
+const Module = require('module');
+
+// 空闲时服务器退出则随之退出
+function onIdleDisconnect() {
+    process.exit(0);
+}
+
+process.on('disconnect', onIdleDisconnect);
+process.once('message', (job) => {
+    process.removeListener('disconnect', onIdleDisconnect);
+    process.chdir(job.cwd);
+    process.argv = [process.argv[0], job.script].concat(job.args);
+    // 退出时通过 3 号描述符报告资源使用，CPU 时间不含子进程启动阶段
+    const base = process.resourceUsage();
+    process.on('exit', () => {
+        const usage = process.resourceUsage();
+        try {
+            fs.writeSync(3, JSON.stringify({
+                maxRSS: usage.maxRSS,
+                userCPUTime: usage.userCPUTime - base.userCPUTime,
+                systemCPUTime: usage.systemCPUTime - base.systemCPUTime
+            }));
+        } catch (e) {
+            // 服务器已关闭读端
+        }
+    });
+    // 断开 IPC，被测脚本无法再与服务器通信，事件循环也不再被通道保持
+    process.disconnect();
+    Module.runMain();
+});
+process.send('ready');
@@ -0,0 +1,273 @@
+'use strict';
+/*
+ * 常驻 Node 进程池（在 Node 容器内运行，只依赖内置模块）
+ *
+ * 由宿主机安装到池容器的只读运行时目录后启动，在任务目录中按 RunnerAgent 的派发协议领取任务：
+ * 服务器始终保持若干个已经启动完毕、等待任务的 node 子进程（node_bootstrap.js），
+ * 收到任务后交给其中一个以主模块运行提交的脚本，标准输入、输出和错误经管道转发到任务文件，
+ * 任务结束后立即补充新的子进程，下一次运行不需要等待 Node 启动。
+ * 补充子进程放在任务结束之后，它的启动不占用被测程序的 CPU 时间。
+ *
+ * 子进程的引导代码每次重新编译，不在容器内可写的目录中保存 V8 代码缓存，避免被测程序篡改后影响之后的任务；
+ * 子进程在任务开始前就已启动，编译不计入任务耗时。
+ * 子进程放入独立进程组，超时或输出超限时对整个进程组发送 SIGKILL，结束后清理残留的子进程；
+ * 运行期间进程组号写入结果文件旁的 .pid 文件，宿主机发现输出不一致时据此提前终止它。
+ * 结果按启动脚本的格式写入结果文件，峰值内存和 CPU 时间取子进程退出时的 process.resourceUsage()（CPU 时间扣除启动阶段）。
+ *
+ * 参数：任务目录、最多运行次数、内存上限（MB，未使用）、空闲子进程数。
+ */
+const childProcess = require('child_process');
+const fs = require('fs');
+const Module = require('module');
+const os = require('os');
+const path = require('path');
+const readline = require('readline');
+const vm = require('vm');
+
+const BOOTSTRAP = path.join(__dirname, 'node_bootstrap.js');
+const JOB_ID = /^[A-Za-z0-9-]+$/;
+// java.util.Properties#store 的转义规则
+const ESCAPE = /\\(u[0-9a-fA-F]{4}|.)/g;
+const SPECIAL = {t: '\t', n: '\n', r: '\r', f: '\f'};
+const ENTRY = /^((?:\\.|[^\\=])*)=(.*)$/;
+
+if (process.argv[2] === '--child') {
+    runChild();
+} else {
+    serve(process.argv[2], parseInt(process.argv[3], 10), parseInt(process.argv[5], 10) || 2);
+}
+
+/**
+ * 子进程入口：编译并执行引导代码
+ */
+function runChild() {
+    const script = new vm.Script(Module.wrap(fs.readFileSync(BOOTSTRAP, 'utf8')), {filename: BOOTSTRAP});
+    const bootstrapModule = new Module(BOOTSTRAP, null);
+    bootstrapModule.filename = BOOTSTRAP;
+    bootstrapModule.paths = Module._nodeModulePaths(__dirname);
+    script.runInThisContext()(bootstrapModule.exports, require, bootstrapModule, BOOTSTRAP, __dirname);
+}
+
+function unescape(text) {
+    return text.replace(ESCAPE, (match, value) => {
+        if (value.length === 5 && value[0] === 'u') {
+            return String.fromCharCode(parseInt(value.substring(1), 16));
+        }
+        return SPECIAL[value] || value;
+    });
+}
+
+function loadJob(file) {
+    const job = {};
+    for (const line of fs.readFileSync(file, 'utf8').split(/\r?\n/)) {
+        if (!line || line[0] === '#' || line[0] === '!') {
+            continue;
+        }
+        const match = ENTRY.exec(line);
+        if (match) {
+            job[unescape(match[1])] = unescape(match[2]);
+        }
+    }
+    return job;
+}
+
+function remove(file) {
+    try {
+        fs.unlinkSync(file);
+    } catch (e) {
+        // 文件不存在
+    }
+}
+
+/**
+ * 启动一个等待任务的子进程
+ */
+function spawnIdle() {
+    const child = childProcess.spawn(process.execPath, [__filename, '--child'], {
+        stdio: ['pipe', 'pipe', 'pipe', 'pipe', 'ipc'],
+        detached: true
+    });
+    child.on('error', () => {});
+    const ready = new Promise((resolve, reject) => {
+        child.once('message', resolve);
+        child.once('exit', () => reject(new Error('子进程在就绪前退出')));
+    });
+    ready.catch(() => {});
+    return {child, ready};
+}
+
+function killGroup(child) {
+    try {
+        process.kill(-child.pid, 'SIGKILL');
+    } catch (e) {
+        // 进程组已不存在
+    }
+}
+
+/**
+ * 按上限写入任务输出文件，超过上限时返回 false
+ */
+function boundedWriter(file, limit) {
+    const fd = fs.openSync(file, 'w');
+    let written = 0;
+    return {
+        write(chunk) {
+            if (limit > 0 && written + chunk.length > limit) {
+                fs.writeSync(fd, chunk, 0, limit - written);
+                written = limit;
+                return false;
+            }
+            fs.writeSync(fd, chunk);
+            written += chunk.length;
+            return true;
+        },
+        close() {
+            fs.closeSync(fd);
+        }
+    };
+}
+
+/**
+ * 用一个空闲子进程执行任务并写入结果文件
+ */
+async function runJob(idle, id, limit) {
+    const job = loadJob(id + '.run');
+    const timeLimitMillis = parseInt(job.limit_ms, 10);
+    const args = [];
+    for (let i = 0; ('arg.' + i) in job; i++) {
+        args.push(job['arg.' + i]);
+    }
+
+    let entry = idle.shift() || spawnIdle();
+    try {
+        await entry.ready;
+    } catch (e) {
+        entry = null;
+    }
+    if (entry === null || !entry.child.connected) {
+        // 空闲期间退出的子进程直接替换
+        entry = spawnIdle();
+        await entry.ready;
+    }
+    const child = entry.child;
+    child.removeAllListeners('exit');
+
+    const out = boundedWriter(id + '.out', limit);
+    const err = boundedWriter(id + '.err', limit);
+    let timedOut = false;
+    let usage = '';
+    const closed = new Promise((resolve) => child.once('close', (code, signal) => resolve({code, signal})));
+    child.once('exit', () => killGroup(child));
+    child.stdout.on('data', (chunk) => {
+        if (!out.write(chunk)) {
+            killGroup(child);
+        }
+    });
+    child.stderr.on('data', (chunk) => {
+        if (!err.write(chunk)) {
+            killGroup(child);
+        }
+    });
+    child.stdio[3].on('data', (chunk) => {
+        usage += chunk;
+    });
+    child.stdin.on('error', () => {});
+    if (fs.existsSync(id + '.in')) {
+        fs.createReadStream(id + '.in').pipe(child.stdin);
+    } else {
+        child.stdin.end();
+    }
+
+    const pidFile = job.result + '.pid';
+    fs.writeFileSync(pidFile, child.pid + '\n');
+    const start = process.hrtime.bigint();
+    child.send({script: job.script, args, cwd: job.cwd});
+    const timer = setTimeout(() => {
+        timedOut = true;
+        killGroup(child);
+    }, timeLimitMillis);
+    const {code, signal} = await closed;
+    const wallMicros = Number((process.hrtime.bigint() - start) / 1000n);
+    clearTimeout(timer);
+    fs.rmSync(pidFile, {force: true});
+    out.close();
+    err.close();
+
+    let resources = {};
+    try {
+        resources = JSON.parse(usage);
+    } catch (e) {
+        // 被强制终止的进程没有报告资源使用
+    }
+    let cleaned = 0;
+    if (job.cleanup) {
+        fs.rmSync(job.cleanup, {recursive: true, force: true});
+        cleaned = fs.existsSync(job.cleanup) ? 0 : 1;
+    }
+    const exitCode = code !== null ? code : 128 + (os.constants.signals[signal] || 0);
+    fs.writeFileSync(job.result,
+        'stage=run\n' +
+        'exit_code=' + exitCode + '\n' +
+        'memory_source=rusage\n' +
+        'memory_peak=' + (resources.maxRSS || 0) * 1024 + '\n' +
+        'cpu_user_us=' + (resources.userCPUTime || 0) + '\n' +
+        'cpu_sys_us=' + (resources.systemCPUTime || 0) + '\n' +
+        'wall_us=' + wallMicros + '\n' +
+        'timed_out=' + (timedOut ? 1 : 0) + '\n' +
+        'cleaned=' + cleaned + '\n');
+}
+
+function serve(dir, maxRuns, poolSize) {
+    process.chdir(dir);
+    const idle = [];
+    for (let i = 0; i < poolSize; i++) {
+        idle.push(spawnIdle());
+    }
+
+    Promise.all(idle.map((entry) => entry.ready)).catch(() => {}).then(() => {
+        // 以读写方式打开管道，宿主机每次写完关闭时不会读到 EOF
+        const ctl = fs.createReadStream(null, {fd: fs.openSync('ctl', 'r+')});
+        const lines = readline.createInterface({input: ctl});
+        let runs = 0;
+        let queue = Promise.resolve();
+
+        lines.on('line', (line) => {
+            queue = queue.then(async () => {
+                const parts = line.trim().split(/\s+/);
+                if (!JOB_ID.test(parts[0])) {
+                    return;
+                }
+                const id = parts[0];
+                const limit = /^[0-9]+$/.test(parts[1] || '') ? parseInt(parts[1], 10) : 0;
+                try {
+                    fs.renameSync(id + '.job', id + '.run');
+                } catch (e) {
+                    return;
+                }
+
+                runs++;
+                const retire = runs >= maxRuns;
+                if (retire) {
+                    // 先撤下就绪标记，宿主机看到任务完成时即可启动新实例
+                    remove('ready');
+                }
+                try {
+                    await runJob(idle, id, limit);
+                } catch (e) {
+                    console.error(e);
+                }
+                fs.writeFileSync(id + '.done', '');
+                if (retire) {
+                    idle.forEach((entry) => killGroup(entry.child));
+                    process.exit(0);
+                }
+                while (idle.length < poolSize) {
+                    idle.push(spawnIdle());
+                }
+            });
+        });
+
+        fs.writeFileSync('ready', '');
+        remove('starting');
+    });
+}
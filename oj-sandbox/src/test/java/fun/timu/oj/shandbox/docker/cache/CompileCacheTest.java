@@ -0,0 +1,140 @@
+package fun.timu.oj.shandbox.docker.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * CompileCache 单元测试：缓存键、按条目数和总字节数的 LRU 淘汰
+ */
+public class CompileCacheTest {
+    private final CompileCache cache = CompileCache.getInstance();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        // 单例在测试之间共享，先关闭以清空条目
+        cache.configure(false, 1, 1);
+    }
+
+    @After
+    public void tearDown() {
+        cache.configure(false, 1, 1);
+        cache.configure(true, 256, 64L * 1024 * 1024);
+    }
+
+    /**
+     * 创建只含一个 .class 文件的编译输出目录
+     */
+    private Path outputDirectory(String className, int size) throws IOException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Files.write(directory.resolve(className + ".class"), new byte[size]);
+        Files.write(directory.resolve(className + ".java"), new byte[]{1});
+        return directory;
+    }
+
+    @Test
+    public void keyDependsOnImageAndSource() {
+        String key = CompileCache.buildKey("sha256:a", "class Main {}");
+        assertEquals(key, CompileCache.buildKey("sha256:a", "class Main {}"));
+        assertNotEquals(key, CompileCache.buildKey("sha256:b", "class Main {}"));
+        assertNotEquals(key, CompileCache.buildKey("sha256:a", "class Main { }"));
+    }
+
+    @Test
+    public void storesOnlyFilesWithSuffixAndRestoresThem() throws IOException {
+        cache.configure(true, 4, 1024);
+        cache.put("a", outputDirectory("Main", 10), ".class");
+
+        CompileCache.CompiledArtifact artifact = cache.get("a");
+        assertNotNull(artifact);
+        assertEquals(1, artifact.getFiles().size());
+        assertEquals(10, artifact.getSize());
+
+        Path target = temporaryFolder.newFolder().toPath();
+        cache.restore(artifact, target);
+        assertArrayEquals(new byte[10], Files.readAllBytes(target.resolve("Main.class")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenEntryLimitIsReached() throws IOException {
+        cache.configure(true, 2, 1024);
+        cache.put("a", outputDirectory("A", 10), ".class");
+        cache.put("b", outputDirectory("B", 10), ".class");
+        // 访问 a 后 b 成为最久未使用的条目
+        assertNotNull(cache.get("a"));
+        cache.put("c", outputDirectory("C", 10), ".class");
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(20, cache.getTotalBytes());
+    }
+
+    @Test
+    public void evictsUntilTotalBytesFit() throws IOException {
+        cache.configure(true, 10, 100);
+        cache.put("a", outputDirectory("A", 40), ".class");
+        cache.put("b", outputDirectory("B", 40), ".class");
+        cache.put("c", outputDirectory("C", 40), ".class");
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(80, cache.getTotalBytes());
+    }
+
+    @Test
+    public void replacingEntryUpdatesTotalBytes() throws IOException {
+        cache.configure(true, 10, 100);
+        cache.put("a", outputDirectory("A", 40), ".class");
+        cache.put("a", outputDirectory("A", 30), ".class");
+
+        assertEquals(1, cache.size());
+        assertEquals(30, cache.getTotalBytes());
+    }
+
+    @Test
+    public void skipsArtifactLargerThanCache() throws IOException {
+        cache.configure(true, 10, 100);
+        cache.put("a", outputDirectory("A", 40), ".class");
+        cache.put("big", outputDirectory("Big", 101), ".class");
+
+        assertNull(cache.get("big"));
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    public void shrinkingCapacityEvictsImmediately() throws IOException {
+        cache.configure(true, 10, 1024);
+        cache.put("a", outputDirectory("A", 10), ".class");
+        cache.put("b", outputDirectory("B", 10), ".class");
+        cache.put("c", outputDirectory("C", 10), ".class");
+
+        cache.configure(true, 1, 1024);
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void disabledCacheStoresNothing() throws IOException {
+        cache.put("a", outputDirectory("A", 10), ".class");
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,65 @@
+package fun.timu.oj.shandbox.docker.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * InstrumentedDockerHttpClient 单元测试：由请求方法和路径识别 Docker 命令类型
+ */
+public class InstrumentedDockerHttpClientTest {
+    private static final String ID = "3f4e8a1c9b2d";
+
+    private static String commandOf(String method, String path) {
+        return InstrumentedDockerHttpClient.commandOf(method, path);
+    }
+
+    @Test
+    public void recognizesContainerCommands() {
+        assertEquals("create", commandOf("POST", "/containers/create?name=sandbox"));
+        assertEquals("list", commandOf("GET", "/containers/json?all=1"));
+        assertEquals("inspect", commandOf("GET", "/containers/" + ID + "/json"));
+        assertEquals("start", commandOf("POST", "/containers/" + ID + "/start"));
+        assertEquals("stop", commandOf("POST", "/containers/" + ID + "/stop?t=3"));
+        assertEquals("stats", commandOf("GET", "/containers/" + ID + "/stats?stream=false"));
+        assertEquals("remove", commandOf("DELETE", "/containers/" + ID + "?force=true"));
+        assertEquals("execCreate", commandOf("POST", "/containers/" + ID + "/exec"));
+    }
+
+    @Test
+    public void distinguishesArchiveDirection() {
+        assertEquals("copyTo", commandOf("PUT", "/containers/" + ID + "/archive?path=/code"));
+        assertEquals("copyFrom", commandOf("GET", "/containers/" + ID + "/archive?path=/code"));
+    }
+
+    @Test
+    public void recognizesExecCommands() {
+        assertEquals("execStart", commandOf("POST", "/exec/" + ID + "/start"));
+        assertEquals("execInspect", commandOf("GET", "/exec/" + ID + "/json"));
+        assertEquals("other", commandOf("POST", "/exec/" + ID + "/resize"));
+    }
+
+    @Test
+    public void recognizesImageAndSystemCommands() {
+        assertEquals("pull", commandOf("POST", "/images/create?fromImage=python&tag=3.9"));
+        assertEquals("inspectImage", commandOf("GET", "/images/python:3.9/json"));
+        assertEquals("image", commandOf("GET", "/images/python:3.9/history"));
+        assertEquals("events", commandOf("GET", "/events?filters=%7B%7D"));
+        assertEquals("ping", commandOf("GET", "/_ping"));
+    }
+
+    @Test
+    public void stripsApiVersionPrefix() {
+        assertEquals("inspect", commandOf("GET", "/v1.41/containers/" + ID + "/json"));
+        assertEquals("execStart", commandOf("POST", "/v1.24/exec/" + ID + "/start"));
+        assertEquals("ping", commandOf("GET", "/v1.41/_ping"));
+    }
+
+    @Test
+    public void unknownPathsAreOther() {
+        assertEquals("other", commandOf("GET", "/networks"));
+        assertEquals("other", commandOf("POST", "/containers/" + ID + "/pause"));
+        assertEquals("other", commandOf("GET", "/containers/" + ID));
+        assertEquals("other", commandOf("GET", "/"));
+    }
+}
@@ -0,0 +1,116 @@
+package fun.timu.oj.shandbox.docker.compare;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OutputMatcher 单元测试：各比对模式、浮点误差以及按帧输入时的提前判定
+ */
+public class OutputMatcherTest {
+
+    private static boolean matches(CompareMode mode, String output, String expected) {
+        return OutputComparator.of(mode, null).matches(output, expected);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void exactIgnoresOnlyLeadingAndTrailingWhitespace() {
+        assertTrue(matches(CompareMode.EXACT, "  1 2\n3\n\n", "1 2\n3"));
+        assertFalse(matches(CompareMode.EXACT, "1  2\n3", "1 2\n3"));
+        assertFalse(matches(CompareMode.EXACT, "1 2\r\n3", "1 2\n3"));
+    }
+
+    @Test
+    public void exactRejectsMissingAndExtraOutput() {
+        assertFalse(matches(CompareMode.EXACT, "1 2", "1 2 3"));
+        assertFalse(matches(CompareMode.EXACT, "1 2 3 4", "1 2 3"));
+        assertTrue(matches(CompareMode.EXACT, "", "  \n"));
+    }
+
+    @Test
+    public void ignoreWhitespaceComparesTokens() {
+        assertTrue(matches(CompareMode.IGNORE_WHITESPACE, "1   2\r\n\t3 \n", "1 2 3"));
+        assertFalse(matches(CompareMode.IGNORE_WHITESPACE, "1 2", "1 2 3"));
+        assertFalse(matches(CompareMode.IGNORE_WHITESPACE, "1 2 3 4", "1 2 3"));
+        assertFalse(matches(CompareMode.IGNORE_WHITESPACE, "12 3", "1 2 3"));
+    }
+
+    @Test
+    public void lineByLineIgnoresLineEndWhitespaceAndTrailingBlankLines() {
+        assertTrue(matches(CompareMode.LINE_BY_LINE, "a b  \r\nc\t\n\n\n", "a b\nc"));
+        assertFalse(matches(CompareMode.LINE_BY_LINE, "a  b\nc", "a b\nc"));
+        assertFalse(matches(CompareMode.LINE_BY_LINE, "a b c", "a b\nc"));
+        assertFalse(matches(CompareMode.LINE_BY_LINE, "a b\nc\nd", "a b\nc"));
+    }
+
+    @Test
+    public void floatEpsilonAcceptsAbsoluteAndRelativeError() {
+        OutputComparator comparator = OutputComparator.of(CompareMode.FLOAT_EPSILON, 1e-3);
+        assertTrue(comparator.matches("0.3334 1", "0.3333 1"));
+        assertFalse(comparator.matches("0.335 1", "0.3333 1"));
+        // 相对误差：1000000 * 1e-3 = 1000
+        assertTrue(comparator.matches("1000500", "1000000"));
+        assertFalse(comparator.matches("1002000", "1000000"));
+    }
+
+    @Test
+    public void floatEpsilonComparesNonNumbersExactly() {
+        OutputComparator comparator = OutputComparator.of(CompareMode.FLOAT_EPSILON, 1e-3);
+        assertTrue(comparator.matches("YES 1.0", "YES 1"));
+        assertFalse(comparator.matches("yes 1", "YES 1"));
+        assertFalse(comparator.matches("NaN", "NaN0"));
+    }
+
+    @Test
+    public void defaultEpsilonIsUsedWhenNotGiven() {
+        OutputComparator comparator = OutputComparator.of(CompareMode.FLOAT_EPSILON, null);
+        assertTrue(comparator.matches("1.0000001", "1"));
+        assertFalse(comparator.matches("1.001", "1"));
+    }
+
+    @Test
+    public void reportsFirstMismatchBeforeOutputEnds() {
+        OutputMatcher matcher = OutputComparator.of(CompareMode.IGNORE_WHITESPACE, null).start("1 2 3");
+        assertTrue(matcher.feed(bytes("1 ")));
+        assertFalse(matcher.feed(bytes("5 ")));
+        assertTrue(matcher.isMismatched());
+        assertFalse(matcher.finish());
+    }
+
+    @Test
+    public void exactReportsMismatchBeforeOutputEnds() {
+        OutputMatcher matcher = OutputComparator.EXACT.start("abc");
+        assertTrue(matcher.feed(bytes("ab")));
+        assertFalse(matcher.feed(bytes("x")));
+    }
+
+    @Test
+    public void tokenSplitAcrossFramesStillMatches() {
+        OutputMatcher matcher = OutputComparator.of(CompareMode.FLOAT_EPSILON, 1e-6).start("3.14159 测试");
+        byte[] output = bytes("3.14159 测试\n");
+        for (byte b : output) {
+            assertTrue(matcher.feed(new byte[]{b}));
+        }
+        assertTrue(matcher.finish());
+    }
+
+    @Test
+    public void lineByLineMismatchIsDetectedAtLineEnd() {
+        OutputMatcher matcher = OutputComparator.of(CompareMode.LINE_BY_LINE, null).start("a\nb\nc");
+        assertTrue(matcher.feed(bytes("a\nx")));
+        assertFalse(matcher.feed(bytes("\n")));
+    }
+
+    @Test
+    public void nullExpectedOutputMatchesEmptyOutput() {
+        assertTrue(OutputComparator.EXACT.matches(" \n", null));
+        assertFalse(OutputComparator.EXACT.matches("1", null));
+    }
+}
@@ -0,0 +1,82 @@
+package fun.timu.oj.shandbox.docker.executor;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OutputSink 单元测试：多字节字符跨帧、输出上限
+ */
+public class OutputSinkTest {
+
+    @Test
+    public void decodesCharacterSplitAcrossFrames() {
+        byte[] bytes = "评测结果😀".getBytes(StandardCharsets.UTF_8);
+        OutputSink sink = new OutputSink(0);
+        // 逐字节写入，每个多字节字符都被拆到多帧中
+        for (byte b : bytes) {
+            assertTrue(sink.write(new byte[]{b}));
+        }
+        assertEquals("评测结果😀", sink.getText());
+        assertFalse(sink.isLimitExceeded());
+    }
+
+    @Test
+    public void writesUpToLimitExactly() {
+        OutputSink sink = new OutputSink(4);
+        assertTrue(sink.write("ab".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(sink.write("cd".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(sink.isLimitExceeded());
+        assertEquals("abcd", sink.getText());
+    }
+
+    @Test
+    public void truncatesAtLimitAndRejectsLaterFrames() {
+        OutputSink sink = new OutputSink(5);
+        assertTrue(sink.write("abc".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(sink.write("defg".getBytes(StandardCharsets.US_ASCII)));
+        assertTrue(sink.isLimitExceeded());
+        assertFalse(sink.write("h".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("abcde", sink.getText());
+    }
+
+    @Test
+    public void dropsIncompleteCharacterCutByLimit() {
+        // "a" 之后的"测"占3个字节，上限落在它的中间
+        byte[] bytes = "a测".getBytes(StandardCharsets.UTF_8);
+        OutputSink sink = new OutputSink(3);
+        assertFalse(sink.write(bytes));
+        assertEquals("a", sink.getText());
+    }
+
+    @Test
+    public void keepsCompleteCharacterEndingAtLimit() {
+        byte[] bytes = "a测b".getBytes(StandardCharsets.UTF_8);
+        OutputSink sink = new OutputSink(4);
+        assertFalse(sink.write(bytes));
+        assertEquals("a测", sink.getText());
+    }
+
+    @Test
+    public void dropsIncompleteFourByteCharacter() {
+        byte[] bytes = "😀".getBytes(StandardCharsets.UTF_8);
+        OutputSink sink = new OutputSink(3);
+        assertFalse(sink.write(Arrays.copyOf(bytes, bytes.length)));
+        assertEquals("", sink.getText());
+    }
+
+    @Test
+    public void nonPositiveLimitMeansUnlimited() {
+        OutputSink sink = new OutputSink(-1);
+        byte[] large = new byte[1 << 20];
+        Arrays.fill(large, (byte) 'x');
+        assertTrue(sink.write(large));
+        assertFalse(sink.isLimitExceeded());
+        assertEquals(large.length, sink.getText().length());
+    }
+}
@@ -0,0 +1,221 @@
+package fun.timu.oj.shandbox.docker.executor;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ProgramLauncher 单元测试：在本机 sh 中运行启动脚本，验证编译、运行、标准输入、测量、清理和结果文件的读取
+ * 启动脚本依赖 /proc，非 Linux 环境跳过运行类的测试
+ */
+public class ProgramLauncherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void requireProcfs() {
+        Assume.assumeTrue(new File("/proc/self/status").exists() && new File("/bin/sh").exists());
+    }
+
+    /**
+     * 启动脚本的一次本地运行
+     */
+    static final class Run {
+        final int exitCode;
+        final String stdout;
+        final String stderr;
+        final ProgramLauncher.Result result;
+
+        Run(int exitCode, String stdout, String stderr, ProgramLauncher.Result result) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.result = result;
+        }
+    }
+
+    /**
+     * 运行启动脚本
+     *
+     * @param stdin 写入标准输入的内容，写完后标准输入保持打开，与 exec 附加的输入流一致；
+     *              为null表示不附加标准输入，程序直接读到 EOF
+     */
+    Run launch(List<String> command, long timeLimitMillis, byte[] stdin, String cleanupDir, List<String> compileCommand,
+               long memoryLimit) throws IOException, InterruptedException {
+        Path dir = temporaryFolder.newFolder().toPath();
+        Path resultFile = dir.resolve(ProgramLauncher.RESULT_FILE_NAME);
+        Path stdout = dir.resolve("stdout");
+        Path stderr = dir.resolve("stderr");
+        String[] wrapped = ProgramLauncher.wrap(command, resultFile.toString(), timeLimitMillis,
+                stdin != null ? stdin.length : -1, cleanupDir, compileCommand, memoryLimit);
+
+        Process process = new ProcessBuilder(wrapped)
+                .redirectOutput(stdout.toFile())
+                .redirectError(stderr.toFile())
+                .start();
+        OutputStream input = process.getOutputStream();
+        if (stdin != null) {
+            input.write(stdin);
+            input.flush();
+        } else {
+            input.close();
+        }
+        try {
+            assertTrue("启动脚本没有结束", process.waitFor(10, TimeUnit.SECONDS));
+        } finally {
+            input.close();
+            process.destroyForcibly();
+        }
+        return new Run(process.exitValue(),
+                new String(Files.readAllBytes(stdout), StandardCharsets.UTF_8),
+                new String(Files.readAllBytes(stderr), StandardCharsets.UTF_8),
+                ProgramLauncher.readResult(resultFile));
+    }
+
+    Run launch(String script, long timeLimitMillis) throws IOException, InterruptedException {
+        return launch(Arrays.asList("sh", "-c", script), timeLimitMillis, null, null, null, 0);
+    }
+
+    @Test
+    public void runsProgramAndWritesResult() throws Exception {
+        Run run = launch("echo hello; exit 3", 5000);
+
+        assertEquals(3, run.exitCode);
+        assertEquals("hello\n", run.stdout);
+        assertFalse(run.result.isCompileFailed());
+        assertEquals(3, run.result.getExitCode());
+        assertFalse(run.result.isTimedOut());
+        assertTrue(run.result.getPeakMemory() > 0);
+        assertTrue(run.result.getWallTimeMicros() >= 0);
+        assertFalse(run.result.isMemoryLimitExceeded(0));
+    }
+
+    @Test
+    public void killsProgramGroupOnTimeout() throws Exception {
+        long start = System.currentTimeMillis();
+        Run run = launch("sleep 5 & sleep 5; echo done", 300);
+
+        assertTrue(run.result.isTimedOut());
+        assertEquals("", run.stdout);
+        assertTrue(System.currentTimeMillis() - start < 4000);
+    }
+
+    @Test
+    public void compilesBeforeRunning() throws Exception {
+        Path workspace = temporaryFolder.newFolder().toPath();
+        Path marker = workspace.resolve("compiled");
+        Run run = launch(Arrays.asList("sh", "-c", "cat " + ProgramLauncher.quote(Collections.singletonList(marker.toString()))),
+                5000, null, null, Arrays.asList("sh", "-c", "echo compiler-log; echo ok > \"$0\"", marker.toString()), 0);
+
+        assertEquals(0, run.result.getExitCode());
+        assertFalse(run.result.isCompileFailed());
+        // 编译成功时编译器输出不进入标准输出
+        assertEquals("ok\n", run.stdout);
+    }
+
+    @Test
+    public void reportsCompileFailureOnStderr() throws Exception {
+        Run run = launch(Collections.singletonList("true"), 5000, null, null,
+                Arrays.asList("sh", "-c", "echo 'Main.java:1: error'; exit 2"), 0);
+
+        assertTrue(run.result.isCompileFailed());
+        assertEquals(2, run.result.getExitCode());
+        assertEquals("", run.stdout);
+        assertTrue(run.stderr.contains("Main.java:1: error"));
+    }
+
+    @Test
+    public void removesWorkspaceAfterRun() throws Exception {
+        Path workspace = temporaryFolder.newFolder().toPath();
+        Files.write(workspace.resolve("Main.java"), new byte[]{1});
+        Run run = launch(Arrays.asList("sh", "-c", "exit 0"), 5000, null, workspace.toString(), null, 0);
+
+        assertTrue(run.result.isCleaned());
+        assertFalse(Files.exists(workspace));
+    }
+
+    @Test
+    public void killsProgramOverMemoryLimit() throws Exception {
+        // 命令替换把 64MB 读入 shell 的内存，内存限制为 16MB
+        Run run = launch(Arrays.asList("sh", "-c", "x=$(head -c 67108864 /dev/zero | tr '\\0' a); sleep 5"), 5000,
+                null, null, null, 16L * 1024 * 1024);
+
+        assertTrue(run.result.isMemoryLimitExceeded(16L * 1024 * 1024));
+        assertFalse(run.result.isTimedOut());
+    }
+
+    @Test
+    public void forwardsDeclaredStdinAndEndsWithEof() throws Exception {
+        // 标准输入写完后保持打开，程序仍然能读到 EOF 并结束
+        byte[] stdin = "3\n1 2 3\n测试\n".getBytes(StandardCharsets.UTF_8);
+        Run run = launch(Collections.singletonList("cat"), 5000, stdin, null, null, 0);
+
+        assertFalse(run.result.isTimedOut());
+        assertEquals(0, run.result.getExitCode());
+        assertEquals("3\n1 2 3\n测试\n", run.stdout);
+    }
+
+    @Test
+    public void emptyStdinIsImmediateEof() throws Exception {
+        Run run = launch(Arrays.asList("sh", "-c", "wc -c"), 5000, new byte[0], null, null, 0);
+
+        assertFalse(run.result.isTimedOut());
+        assertEquals("0", run.stdout.trim());
+    }
+
+    @Test
+    public void withoutStdinProgramStillTerminates() throws Exception {
+        Run run = launch(Arrays.asList("sh", "-c", "read -r line; echo \"[$line]\""), 2000, null, null, null, 0);
+
+        assertFalse(run.result.isTimedOut());
+        assertEquals("[]\n", run.stdout);
+    }
+
+    @Test
+    public void quotesArgumentsForShell() {
+        assertEquals("'javac' 'it'\\''s here.java'", ProgramLauncher.quote(Arrays.asList("javac", "it's here.java")));
+    }
+
+    @Test
+    public void readsResultFileAndDeletesIt() throws Exception {
+        Path resultFile = temporaryFolder.newFile().toPath();
+        Files.write(resultFile, ("stage=run\nexit_code=0\nmemory_source=none\nmemory_peak=123\ncpu_user_us=10\n" +
+                "cpu_sys_us=5\nwall_us=20\ntimed_out=0\nmemory_exceeded=1\ncleaned=1\n").getBytes(StandardCharsets.UTF_8));
+
+        ProgramLauncher.Result result = ProgramLauncher.readResult(resultFile);
+        assertFalse(Files.exists(resultFile));
+        assertEquals(0, result.getExitCode());
+        assertEquals(15, result.getCpuTimeMicros());
+        assertEquals(20, result.getWallTimeMicros());
+        assertTrue(result.isCleaned());
+        // 没有进程级读数时不上报内存，但运行时标记的超出内存限制仍然有效
+        assertEquals(-1, result.getPeakMemory());
+        assertTrue(result.isMemoryLimitExceeded(0));
+    }
+
+    @Test
+    public void missingResultFileIsUnavailable() throws Exception {
+        ProgramLauncher.Result result = ProgramLauncher.readResult(temporaryFolder.getRoot().toPath().resolve("missing"));
+        assertEquals(-1, result.getExitCode());
+        assertEquals(-1, result.getPeakMemory());
+        assertFalse(result.isCleaned());
+    }
+}
@@ -0,0 +1,179 @@
+package fun.timu.oj.shandbox.docker.task;
+
+import fun.timu.oj.shandbox.interfaces.ProgrammingLanguage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AdmissionController 单元测试：准入、排队已满和等待超时的拒绝、Retry-After 估算、工作线程的单独计数
+ */
+public class AdmissionControllerTest {
+    private static final ProgrammingLanguage LANGUAGE = ProgrammingLanguage.JAVA;
+    private static final long MAX_WAIT_MILLIS = 200;
+
+    // 每个测试使用独立实例，许可数显式配置，不依赖容器池
+    private AdmissionController controller;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        controller = new AdmissionController();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void configure(int permits, int maxQueue) {
+        controller.configure(true, maxQueue, MAX_WAIT_MILLIS);
+        controller.configureLanguage(LANGUAGE, permits, maxQueue);
+    }
+
+    /**
+     * 等待线程阻塞在许可上
+     */
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            assertTrue("线程未进入等待", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void admitsWhilePermitsAreFree() {
+        configure(2, 0);
+        AdmissionController.Permit first = controller.acquire(LANGUAGE);
+        AdmissionController.Permit second = controller.acquire(LANGUAGE);
+        assertTrue(first.isAdmitted());
+        assertTrue(second.isAdmitted());
+        assertEquals(0, first.getRetryAfterSeconds());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void rejectsImmediatelyWhenQueueIsFull() {
+        configure(1, 0);
+        try (AdmissionController.Permit held = controller.acquire(LANGUAGE)) {
+            assertTrue(held.isAdmitted());
+
+            long start = System.currentTimeMillis();
+            AdmissionController.Permit rejected = controller.acquire(LANGUAGE);
+            assertFalse(rejected.isAdmitted());
+            assertTrue(System.currentTimeMillis() - start < MAX_WAIT_MILLIS);
+            // 尚无执行记录：(0 个等待 + 1 个许可) * 2000ms / 1 个许可 = 2 秒
+            assertEquals(2, rejected.getRetryAfterSeconds());
+        }
+    }
+
+    @Test
+    public void rejectsAfterWaitTimesOut() {
+        configure(1, 1);
+        try (AdmissionController.Permit held = controller.acquire(LANGUAGE)) {
+            assertTrue(held.isAdmitted());
+
+            long start = System.currentTimeMillis();
+            AdmissionController.Permit rejected = controller.acquire(LANGUAGE);
+            assertFalse(rejected.isAdmitted());
+            assertTrue(System.currentTimeMillis() - start >= MAX_WAIT_MILLIS - 10);
+            assertTrue(rejected.getRetryAfterSeconds() >= 1);
+            assertEquals(0, controller.getQueueDepth(LANGUAGE));
+        }
+    }
+
+    @Test
+    public void waitingRequestIsAdmittedWhenPermitIsReleased() throws Exception {
+        configure(1, 1);
+        AdmissionController.Permit held = controller.acquire(LANGUAGE);
+        Future<AdmissionController.Permit> waiting = executor.submit(() -> controller.acquire(LANGUAGE));
+        Thread.sleep(MAX_WAIT_MILLIS / 4);
+        assertEquals(1, controller.getQueueDepth(LANGUAGE));
+
+        held.close();
+        AdmissionController.Permit admitted = waiting.get(MAX_WAIT_MILLIS * 5, TimeUnit.MILLISECONDS);
+        assertTrue(admitted.isAdmitted());
+        admitted.close();
+    }
+
+    @Test
+    public void closingTwiceReleasesOnce() {
+        configure(1, 0);
+        AdmissionController.Permit permit = controller.acquire(LANGUAGE);
+        permit.close();
+        permit.close();
+
+        AdmissionController.Permit next = controller.acquire(LANGUAGE);
+        assertTrue(next.isAdmitted());
+        assertFalse(controller.acquire(LANGUAGE).isAdmitted());
+        next.close();
+    }
+
+    @Test
+    public void waitingWorkersDoNotUseRequestQueueButCountInRetryAfter() throws Exception {
+        configure(1, 0);
+        AdmissionController.Permit held = controller.acquire(LANGUAGE);
+
+        CompletableFuture<Thread> workerThread = new CompletableFuture<>();
+        Future<AdmissionController.Permit> worker = executor.submit(() -> {
+            workerThread.complete(Thread.currentThread());
+            return controller.acquireBlocking(LANGUAGE);
+        });
+        awaitBlocked(workerThread.get());
+
+        assertEquals(0, controller.getQueueDepth(LANGUAGE));
+        AdmissionController.Permit rejected = controller.acquire(LANGUAGE);
+        assertFalse(rejected.isAdmitted());
+        // 排在前面的工作线程计入估算：(0 + 1 个工作线程 + 1 个许可) * 2000ms / 1 = 4 秒
+        assertEquals(4, rejected.getRetryAfterSeconds());
+
+        held.close();
+        AdmissionController.Permit workerPermit = worker.get(5, TimeUnit.SECONDS);
+        assertTrue(workerPermit.isAdmitted());
+        workerPermit.close();
+    }
+
+    @Test
+    public void requestDoesNotBargePastWaitingWorker() throws Exception {
+        configure(1, 1);
+        AdmissionController.Permit held = controller.acquire(LANGUAGE);
+
+        CompletableFuture<Thread> workerThread = new CompletableFuture<>();
+        Future<AdmissionController.Permit> worker = executor.submit(() -> {
+            workerThread.complete(Thread.currentThread());
+            return controller.acquireBlocking(LANGUAGE);
+        });
+        awaitBlocked(workerThread.get());
+
+        // 释放后立即申请：许可属于先到的工作线程，新到的请求不能插队，只能排队直到超时
+        held.close();
+        AdmissionController.Permit late = controller.acquire(LANGUAGE);
+        assertFalse(late.isAdmitted());
+        AdmissionController.Permit workerPermit = worker.get(5, TimeUnit.SECONDS);
+        assertTrue(workerPermit.isAdmitted());
+        workerPermit.close();
+    }
+
+    @Test
+    public void disabledControllerAdmitsEverything() throws InterruptedException {
+        controller.configure(false, 0, 0);
+        controller.configureLanguage(LANGUAGE, 1, 0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(controller.acquire(LANGUAGE).isAdmitted());
+            assertTrue(controller.acquireBlocking(LANGUAGE).isAdmitted());
+        }
+    }
+}